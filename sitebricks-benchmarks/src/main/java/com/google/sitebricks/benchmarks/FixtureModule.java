@@ -0,0 +1,41 @@
+package com.google.sitebricks.benchmarks;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.inject.AbstractModule;
+import com.google.inject.TypeLiteral;
+import com.google.inject.multibindings.Multibinder;
+import com.google.sitebricks.Bricks;
+import com.google.sitebricks.compiler.Parsing;
+import com.google.sitebricks.conversion.Converter;
+import com.google.sitebricks.conversion.ConverterUtils;
+import com.google.sitebricks.headless.Request;
+import com.google.sitebricks.http.Delete;
+import com.google.sitebricks.http.Get;
+import com.google.sitebricks.http.Post;
+import com.google.sitebricks.http.Put;
+
+import java.lang.annotation.Annotation;
+import java.util.Map;
+
+/**
+ * The few bindings that pages, widgets and type conversion need from the
+ * sitebricks module, without the servlet pipeline around them.
+ */
+class FixtureModule extends AbstractModule {
+  @Override
+  @SuppressWarnings("rawtypes")
+  protected void configure() {
+    bind(Request.class).toInstance(new ParamsRequest(ImmutableMultimap.<String, String>of()));
+    bind(new TypeLiteral<Map<String, Class<? extends Annotation>>>() {})
+        .annotatedWith(Bricks.class)
+        .toInstance(ImmutableMap.<String, Class<? extends Annotation>>of(
+            "get", Get.class,
+            "post", Post.class,
+            "put", Put.class,
+            "delete", Delete.class));
+
+    ConverterUtils.createConverterMultibinder(Multibinder.newSetBinder(binder(), Converter.class));
+    requestStaticInjection(Parsing.class);
+  }
+}
@@ -0,0 +1,102 @@
+package com.google.sitebricks.benchmarks;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generators for realistic-looking benchmark inputs. All generators are
+ * seeded, so that runs are comparable with each other.
+ */
+final class Fixtures {
+  static final long SEED = 0x5173b71c4L;
+
+  private static final String[] WORDS = {
+      "report", "quarterly", "revenue", "user", "account", "region", "total",
+      "pending", "shipped", "invoice", "customer", "product", "north", "south",
+  };
+
+  private Fixtures() {
+  }
+
+  /**
+   * @return Fragments of an HTML table body, roughly as a compiled page
+   *     would write them, adding up to about {@code size} characters.
+   */
+  static List<String> bodyFragments(int size) {
+    Random random = new Random(SEED);
+    List<String> fragments = new ArrayList<String>();
+
+    int written = 0;
+    for (int row = 0; written < size; row++) {
+      String[] pieces = {
+          "<tr class=\"", (row % 2 == 0) ? "even" : "odd", "\">",
+          "<td>", Integer.toString(row), "</td>",
+          "<td>", word(random), " ", word(random), "</td>",
+          "<td>", Integer.toString(random.nextInt(100000)), "</td>",
+          "</tr>\n"
+      };
+
+      for (String piece : pieces) {
+        fragments.add(piece);
+        written += piece.length();
+      }
+    }
+
+    return fragments;
+  }
+
+  /**
+   * @return {@code count} distinct uri templates of the shapes typical of a
+   *     web app: static paths, and paths with one or two variable segments.
+   */
+  static List<String> routes(int count) {
+    Random random = new Random(SEED);
+    Set<String> routes = new LinkedHashSet<String>();
+
+    while (routes.size() < count) {
+      switch (random.nextInt(5)) {
+        case 0:
+          routes.add("/" + word(random) + "/" + word(random));
+          break;
+        case 1:
+          routes.add("/" + word(random) + "/" + word(random) + "/" + word(random));
+          break;
+        case 2:
+          routes.add("/" + word(random) + "/:id");
+          break;
+        case 3:
+          routes.add("/" + word(random) + "/:id/" + word(random));
+          break;
+        default:
+          routes.add("/" + word(random) + "/" + word(random) + "/:id/:action");
+      }
+    }
+
+    return new ArrayList<String>(routes);
+  }
+
+  /**
+   * @return {@code count} concrete uris, each addressing one of the given
+   *     uri templates (picked at random) with its variables filled in.
+   */
+  static List<String> uris(List<String> routes, int count) {
+    Random random = new Random(SEED);
+    List<String> uris = new ArrayList<String>(count);
+
+    for (int i = 0; i < count; i++) {
+      String route = routes.get(random.nextInt(routes.size()));
+      uris.add(route
+          .replace(":id", Integer.toString(random.nextInt(100000)))
+          .replace(":action", word(random)));
+    }
+
+    return uris;
+  }
+
+  static String word(Random random) {
+    return WORDS[random.nextInt(WORDS.length)];
+  }
+}
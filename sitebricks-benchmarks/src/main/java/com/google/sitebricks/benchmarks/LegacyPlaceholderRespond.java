@@ -0,0 +1,51 @@
+package com.google.sitebricks.benchmarks;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A copy of the head-injection scheme {@code StringBuilderRespond} used before it
+ * switched to an insertion index: a sentinel string is written at the end of
+ * the {@code <head>}, then searched for and regex-replaced on render. Kept
+ * only as a baseline for {@link RespondBenchmark}.
+ */
+class LegacyPlaceholderRespond {
+  private static final String HEADER_PLACEHOLDER = "__sb:PLACEhOlDeR:__";
+
+  private final StringBuilder out = new StringBuilder();
+  private final StringBuilder head = new StringBuilder();
+  private final Set<String> requires = new LinkedHashSet<String>();
+
+  public void write(String text) {
+    out.append(text);
+  }
+
+  public void require(String require) {
+    requires.add(require);
+  }
+
+  public void writeToHead(String text) {
+    head.append(text);
+  }
+
+  public void headerPlaceholder() {
+    write(HEADER_PLACEHOLDER);
+  }
+
+  @Override
+  public String toString() {
+    for (String require : requires) {
+      writeToHead(require);
+    }
+
+    int index = out.indexOf(HEADER_PLACEHOLDER);
+
+    String output = out.toString();
+
+    if (index > 0) {
+      output = output.replaceFirst(HEADER_PLACEHOLDER, head.toString());
+    }
+
+    return output;
+  }
+}
@@ -0,0 +1,68 @@
+package com.google.sitebricks.benchmarks;
+
+import com.google.inject.Guice;
+import com.google.sitebricks.routing.DefaultPageBook;
+import com.google.sitebricks.routing.PageBook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves incoming uris against a page book of 10 to 1000 registered uri
+ * templates, cycling through a fixed set of requests that mostly hit (and
+ * occasionally miss) a route.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PageBookBenchmark {
+  private static final int REQUESTS = 1024;
+
+  @Param({ "10", "100", "1000" })
+  int routes;
+
+  private PageBook pageBook;
+  private String[] uris;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    pageBook = new DefaultPageBook(Guice.createInjector(new FixtureModule()));
+
+    List<String> templates = Fixtures.routes(routes);
+    for (String template : templates) {
+      pageBook.at(template, RoutedPage.class);
+    }
+
+    List<String> requests = Fixtures.uris(templates, REQUESTS);
+
+    // Every so often, a uri that no page is registered at.
+    for (int i = 0; i < REQUESTS; i += 16) {
+      requests.set(i, "/missing" + requests.get(i));
+    }
+    uris = requests.toArray(new String[REQUESTS]);
+  }
+
+  @Benchmark
+  public PageBook.Page get() {
+    next = (next + 1) & (REQUESTS - 1);
+    return pageBook.get(uris[next]);
+  }
+
+  public static class RoutedPage {
+  }
+}
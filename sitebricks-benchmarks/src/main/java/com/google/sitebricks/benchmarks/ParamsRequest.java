@@ -0,0 +1,84 @@
+package com.google.sitebricks.benchmarks;
+
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+import com.google.sitebricks.headless.Request;
+
+import java.io.OutputStream;
+
+/**
+ * A stand-in request that carries only request parameters, for
+ * benchmarking code that reads nothing else (like request binding).
+ */
+class ParamsRequest implements Request {
+  private final Multimap<String, String> params;
+
+  ParamsRequest(Multimap<String, String> params) {
+    this.params = params;
+  }
+
+  @Override
+  public Multimap<String, String> params() {
+    return params;
+  }
+
+  @Override
+  public String param(String name) {
+    return params.containsKey(name) ? params.get(name).iterator().next() : null;
+  }
+
+  @Override
+  public Multimap<String, String> headers() {
+    return ImmutableMultimap.of();
+  }
+
+  @Override
+  public Multimap<String, String> matrix() {
+    return ImmutableMultimap.of();
+  }
+
+  @Override
+  public String matrixParam(String name) {
+    return null;
+  }
+
+  @Override
+  public String header(String name) {
+    return null;
+  }
+
+  @Override
+  public <E> RequestRead<E> read(Class<E> type) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void readTo(OutputStream out) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public <E> AsyncRequestRead<E> readAsync(Class<E> type) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public String uri() {
+    return "/";
+  }
+
+  @Override
+  public String path() {
+    return "/";
+  }
+
+  @Override
+  public String context() {
+    return "";
+  }
+
+  @Override
+  public String method() {
+    return "POST";
+  }
+}
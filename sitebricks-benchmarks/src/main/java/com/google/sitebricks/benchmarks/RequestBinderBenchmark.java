@@ -0,0 +1,122 @@
+package com.google.sitebricks.benchmarks;
+
+import com.google.common.collect.ImmutableMultimap;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.sitebricks.Evaluator;
+import com.google.sitebricks.binding.RequestBinder;
+import com.google.sitebricks.headless.Request;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binds a typical form post (ten parameters of mixed types) onto a page
+ * object, comparing {@link RequestBinder} against writing each parameter
+ * with an MVEL property expression, as the binder used to.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBinderBenchmark {
+  private RequestBinder binder;
+  private Evaluator evaluator;
+  private Request request;
+
+  @Setup
+  public void setUp() {
+    Injector injector = Guice.createInjector();
+    binder = injector.getInstance(RequestBinder.class);
+    evaluator = injector.getInstance(Evaluator.class);
+
+    // The same kind of multimap that servlet requests produce.
+    ImmutableMultimap.Builder<String, String> params = ImmutableMultimap.builder();
+    params.put("name", "Dhanji");
+    params.put("email", "dhanji@gmail.com");
+    params.put("age", "27");
+    params.put("id", "1234567890");
+    params.put("height", "6.0");
+    params.put("alive", "true");
+    params.put("country", "Australia");
+    params.put("zip", "2000");
+    params.put("comment", "a short comment");
+    params.put("subscribed", "false");
+    request = new ParamsRequest(params.build());
+  }
+
+  @Benchmark
+  public Object compiledSetters() {
+    FormPage page = new FormPage();
+    binder.bind(request, page);
+    return page;
+  }
+
+  @Benchmark
+  public Object mvelPerProperty() {
+    FormPage page = new FormPage();
+    for (Map.Entry<String, String> param : request.params().entries()) {
+      evaluator.write(param.getKey(), page, param.getValue());
+    }
+    return page;
+  }
+
+  @SuppressWarnings("UnusedDeclaration")
+  public static class FormPage {
+    private String name;
+    private String email;
+    private int age;
+    private long id;
+    private double height;
+    private boolean alive;
+    private String country;
+    private Integer zip;
+
+    public String comment;
+    public boolean subscribed;
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public void setEmail(String email) {
+      this.email = email;
+    }
+
+    public void setAge(int age) {
+      this.age = age;
+    }
+
+    public void setId(long id) {
+      this.id = id;
+    }
+
+    public void setHeight(double height) {
+      this.height = height;
+    }
+
+    public void setAlive(boolean alive) {
+      this.alive = alive;
+    }
+
+    public void setCountry(String country) {
+      this.country = country;
+    }
+
+    public void setZip(Integer zip) {
+      this.zip = zip;
+    }
+  }
+}
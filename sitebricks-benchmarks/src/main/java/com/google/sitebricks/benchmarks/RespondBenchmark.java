@@ -0,0 +1,82 @@
+package com.google.sitebricks.benchmarks;
+
+import com.google.sitebricks.Respond;
+import com.google.sitebricks.StringBuilderRespond;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders a whole page (head, requires and a table body) into a respond
+ * and produces the final output, comparing the insertion-index
+ * {@link StringBuilderRespond} against the old placeholder search/replace.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RespondBenchmark {
+  private static final String[] REQUIRES = {
+      "<script type=\"text/javascript\" src=\"/js/jquery.js\"></script>",
+      "<link rel=\"stylesheet\" href=\"/css/report.css\"/>",
+  };
+
+  @Param({ "10240", "102400", "1048576" })
+  int pageSize;
+
+  private List<String> body;
+
+  @Setup
+  public void setUp() {
+    body = Fixtures.bodyFragments(pageSize);
+  }
+
+  @Benchmark
+  public String insertionIndex() {
+    Respond respond = new StringBuilderRespond(this);
+    respond.write("<html><head><title>Report</title>");
+    respond.withHtml().headerPlaceholder();
+    respond.write("</head><body><table>");
+
+    for (String require : REQUIRES) {
+      respond.require(require);
+    }
+    for (String fragment : body) {
+      respond.write(fragment);
+    }
+
+    respond.write("</table></body></html>");
+    return respond.toString();
+  }
+
+  @Benchmark
+  public String placeholderReplace() {
+    LegacyPlaceholderRespond respond = new LegacyPlaceholderRespond();
+    respond.write("<html><head><title>Report</title>");
+    respond.headerPlaceholder();
+    respond.write("</head><body><table>");
+
+    for (String require : REQUIRES) {
+      respond.require(require);
+    }
+    for (String fragment : body) {
+      respond.write(fragment);
+    }
+
+    respond.write("</table></body></html>");
+    return respond.toString();
+  }
+}
@@ -0,0 +1,201 @@
+package com.google.sitebricks.benchmarks;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.sitebricks.Renderable;
+import com.google.sitebricks.Respond;
+import com.google.sitebricks.StringBuilderRespond;
+import com.google.sitebricks.Template;
+import com.google.sitebricks.compiler.HtmlTemplateCompiler;
+import com.google.sitebricks.rendering.control.WidgetRegistry;
+import com.google.sitebricks.routing.PageBook;
+import com.google.sitebricks.routing.SystemMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders pages compiled by {@link HtmlTemplateCompiler}: a report page that
+ * lists its rows with {@code @Repeat}, and a profile page made only of
+ * expressions and {@code @ShowIf}. Templates are compiled once; each
+ * invocation renders a fresh respond and produces its output.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+// MVEL's ASM accessors don't verify on newer JVMs; this is what GaeModule does too.
+@Fork(value = 1, jvmArgsAppend = "-Dmvel2.disable.jit=true")
+public class TemplateRenderBenchmark {
+  private static final String PROFILE_PAGE =
+      "<html>\n<head><title>${title}</title></head>\n<body>\n"
+      + "<h1>${user.name}</h1>\n"
+      + "<p class=\"email\">${user.email}</p>\n"
+      + "<dl>\n"
+      + "  <dt>Country</dt><dd>${user.country}</dd>\n"
+      + "  <dt>Member since</dt><dd>${user.since}</dd>\n"
+      + "  <dt>Orders</dt><dd>${user.orders}</dd>\n"
+      + "</dl>\n"
+      + "@ShowIf(user.admin)\n<p class=\"admin\">Administrator</p>\n"
+      + "<a href=\"/users/${user.id}/edit\">Edit ${user.name}</a>\n"
+      + "</body>\n</html>";
+
+  private static final String REPORT_PAGE =
+      "<html>\n<head><title>${title}</title></head>\n<body>\n"
+      + "<h1>${title}</h1>\n"
+      + "<table>\n"
+      + "@Repeat(items=rows, var=\"row\")\n"
+      + "<tr><td>${row.id}</td><td>${row.name}</td><td>${row.region}</td>"
+      + "<td>${row.total}</td></tr>\n"
+      + "</table>\n"
+      + "</body>\n</html>";
+
+  @Param({ "10", "100", "1000" })
+  int rows;
+
+  private Renderable profile;
+  private Renderable report;
+  private ProfilePage profilePage;
+  private ReportPage reportPage;
+
+  @Setup
+  public void setUp() {
+    Injector injector = Guice.createInjector(new FixtureModule());
+
+    HtmlTemplateCompiler compiler = new HtmlTemplateCompiler(
+        injector.getInstance(WidgetRegistry.class),
+        injector.getInstance(PageBook.class),
+        injector.getInstance(SystemMetrics.class));
+
+    profile = compiler.compile(ProfilePage.class, new Template(PROFILE_PAGE));
+    report = compiler.compile(ReportPage.class, new Template(REPORT_PAGE));
+
+    profilePage = new ProfilePage();
+    reportPage = new ReportPage(rows);
+  }
+
+  @Benchmark
+  public String expressionsOnly() {
+    Respond respond = new StringBuilderRespond(profilePage);
+    profile.render(profilePage, respond);
+    return respond.toString();
+  }
+
+  @Benchmark
+  public String repeat() {
+    Respond respond = new StringBuilderRespond(reportPage);
+    report.render(reportPage, respond);
+    return respond.toString();
+  }
+
+  @SuppressWarnings("UnusedDeclaration")
+  public static class ProfilePage {
+    private final User user = new User();
+
+    public String getTitle() {
+      return "Profile";
+    }
+
+    public User getUser() {
+      return user;
+    }
+  }
+
+  @SuppressWarnings("UnusedDeclaration")
+  public static class User {
+    public long getId() {
+      return 1234567890L;
+    }
+
+    public String getName() {
+      return "Dhanji R. Prasanna";
+    }
+
+    public String getEmail() {
+      return "dhanji@gmail.com";
+    }
+
+    public String getCountry() {
+      return "Australia";
+    }
+
+    public String getSince() {
+      return "March 2008";
+    }
+
+    public int getOrders() {
+      return 42;
+    }
+
+    public boolean isAdmin() {
+      return true;
+    }
+  }
+
+  @SuppressWarnings("UnusedDeclaration")
+  public static class ReportPage {
+    private final List<Row> rows;
+
+    public ReportPage(int count) {
+      Random random = new Random(Fixtures.SEED);
+      rows = new ArrayList<Row>(count);
+      for (int i = 0; i < count; i++) {
+        rows.add(new Row(i, Fixtures.word(random) + " " + Fixtures.word(random),
+            Fixtures.word(random), random.nextInt(100000)));
+      }
+    }
+
+    public String getTitle() {
+      return "Quarterly report";
+    }
+
+    public List<Row> getRows() {
+      return rows;
+    }
+  }
+
+  @SuppressWarnings("UnusedDeclaration")
+  public static class Row {
+    private final int id;
+    private final String name;
+    private final String region;
+    private final int total;
+
+    public Row(int id, String name, String region, int total) {
+      this.id = id;
+      this.name = name;
+      this.region = region;
+      this.total = total;
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getRegion() {
+      return region;
+    }
+
+    public int getTotal() {
+      return total;
+    }
+  }
+}
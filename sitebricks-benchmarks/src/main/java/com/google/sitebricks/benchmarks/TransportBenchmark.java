@@ -0,0 +1,166 @@
+package com.google.sitebricks.benchmarks;
+
+import com.google.inject.Guice;
+import com.google.sitebricks.client.Transport;
+import com.google.sitebricks.client.transport.JacksonJsonTransport;
+import com.google.sitebricks.client.transport.Xml;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Round trips (writes and reads back) an order of 1 to 100 line items through
+ * the Jackson JSON and XStream XML transports.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransportBenchmark {
+  @Param({ "1", "10", "100" })
+  int items;
+
+  private Transport json;
+  private Transport xml;
+  private Order order;
+
+  @Setup
+  public void setUp() {
+    json = new JacksonJsonTransport(new ObjectMapper());
+    xml = Guice.createInjector().getInstance(Xml.class);
+    order = Order.generate(items);
+  }
+
+  @Benchmark
+  public Order jackson() throws IOException {
+    return roundTrip(json);
+  }
+
+  @Benchmark
+  public Order xstream() throws IOException {
+    return roundTrip(xml);
+  }
+
+  private Order roundTrip(Transport transport) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+    transport.out(out, Order.class, order);
+    return transport.in(new ByteArrayInputStream(out.toByteArray()), Order.class);
+  }
+
+  @SuppressWarnings("UnusedDeclaration")
+  public static class Order {
+    private long id;
+    private String customer;
+    private String region;
+    private boolean shipped;
+    private List<LineItem> items = new ArrayList<LineItem>();
+
+    static Order generate(int items) {
+      Random random = new Random(Fixtures.SEED);
+      Order order = new Order();
+      order.id = random.nextInt(1000000);
+      order.customer = Fixtures.word(random) + " " + Fixtures.word(random);
+      order.region = Fixtures.word(random);
+      order.shipped = random.nextBoolean();
+
+      for (int i = 0; i < items; i++) {
+        LineItem item = new LineItem();
+        item.product = Fixtures.word(random) + "-" + random.nextInt(1000);
+        item.quantity = 1 + random.nextInt(10);
+        item.price = random.nextInt(100000) / 100.0;
+        order.items.add(item);
+      }
+      return order;
+    }
+
+    public long getId() {
+      return id;
+    }
+
+    public void setId(long id) {
+      this.id = id;
+    }
+
+    public String getCustomer() {
+      return customer;
+    }
+
+    public void setCustomer(String customer) {
+      this.customer = customer;
+    }
+
+    public String getRegion() {
+      return region;
+    }
+
+    public void setRegion(String region) {
+      this.region = region;
+    }
+
+    public boolean isShipped() {
+      return shipped;
+    }
+
+    public void setShipped(boolean shipped) {
+      this.shipped = shipped;
+    }
+
+    public List<LineItem> getItems() {
+      return items;
+    }
+
+    public void setItems(List<LineItem> items) {
+      this.items = items;
+    }
+  }
+
+  @SuppressWarnings("UnusedDeclaration")
+  public static class LineItem {
+    private String product;
+    private int quantity;
+    private double price;
+
+    public String getProduct() {
+      return product;
+    }
+
+    public void setProduct(String product) {
+      this.product = product;
+    }
+
+    public int getQuantity() {
+      return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+      this.quantity = quantity;
+    }
+
+    public double getPrice() {
+      return price;
+    }
+
+    public void setPrice(double price) {
+      this.price = price;
+    }
+  }
+}
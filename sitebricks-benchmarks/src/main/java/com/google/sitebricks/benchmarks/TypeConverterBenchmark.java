@@ -0,0 +1,84 @@
+package com.google.sitebricks.benchmarks;
+
+import com.google.inject.Guice;
+import com.google.sitebricks.conversion.StandardTypeConverter;
+import com.google.sitebricks.conversion.TypeConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts request-parameter-like values with the {@link StandardTypeConverter}
+ * and its default converters, as when binding requests or evaluating typed
+ * template expressions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypeConverterBenchmark {
+  private static final int VALUES = 256;
+
+  private TypeConverter converter;
+  private String[] numbers;
+  private String[] booleans;
+  private Integer[] integers;
+  private int next;
+
+  @Setup
+  public void setUp() {
+    converter = Guice.createInjector(new FixtureModule()).getInstance(StandardTypeConverter.class);
+
+    Random random = new Random(Fixtures.SEED);
+    numbers = new String[VALUES];
+    booleans = new String[VALUES];
+    integers = new Integer[VALUES];
+    for (int i = 0; i < VALUES; i++) {
+      numbers[i] = Integer.toString(random.nextInt(1000000));
+      booleans[i] = Boolean.toString(random.nextBoolean());
+      integers[i] = random.nextInt(1000000);
+    }
+  }
+
+  @Benchmark
+  public Integer stringToInteger() {
+    return converter.convert(numbers[next()], Integer.class);
+  }
+
+  @Benchmark
+  public Boolean stringToBoolean() {
+    return converter.convert(booleans[next()], boolean.class);
+  }
+
+  @Benchmark
+  public BigDecimal integerToBigDecimal() {
+    return converter.convert(integers[next()], BigDecimal.class);
+  }
+
+  @Benchmark
+  public String integerToString() {
+    return converter.convert(integers[next()], String.class);
+  }
+
+  @Benchmark
+  public String identity() {
+    return converter.convert(numbers[next()], String.class);
+  }
+
+  private int next() {
+    return next = (next + 1) & (VALUES - 1);
+  }
+}
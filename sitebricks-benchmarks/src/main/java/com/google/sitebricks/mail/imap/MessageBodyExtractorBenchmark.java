@@ -0,0 +1,200 @@
+package com.google.sitebricks.mail.imap;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.xml.bind.DatatypeConverter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parses a canned {@code FETCH (UID BODY[])} transcript of 1 to 100
+ * messages: a mix of plain text mails, multipart/alternative mails with
+ * quoted-printable HTML, and multipart/mixed mails with a base64 attachment.
+ * <p>
+ * Lives in the extractor's package, since the extractor is package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageBodyExtractorBenchmark {
+  private static final long SEED = 0x5173b71c4L;
+
+  private static final String[] WORDS = {
+      "report", "quarterly", "revenue", "user", "account", "region", "total",
+      "pending", "shipped", "invoice", "customer", "product", "north", "south",
+  };
+
+  @Param({ "1", "10", "100" })
+  int messages;
+
+  private MessageBodyExtractor extractor;
+  private List<String> transcript;
+
+  @Setup
+  public void setUp() {
+    extractor = new MessageBodyExtractor();
+    transcript = transcript(messages);
+
+    // Make sure we measure parsing, not error handling.
+    List<Message> extracted = extractor.extract(transcript);
+    if (extracted.size() != messages || extracted.contains(Message.ERROR))
+      throw new IllegalStateException("Transcript did not parse cleanly: " + extracted);
+  }
+
+  @Benchmark
+  public List<Message> extract() {
+    return extractor.extract(transcript);
+  }
+
+  /**
+   * @return The response lines of a fetch of {@code count} messages, as the
+   *     mail client hands them to the extractor (with the tagged OK line).
+   */
+  static List<String> transcript(int count) {
+    Random random = new Random(SEED);
+    List<String> lines = new ArrayList<String>();
+
+    for (int i = 0; i < count; i++) {
+      List<String> message;
+      switch (i % 3) {
+        case 0:
+          message = plainMessage(random, i);
+          break;
+        case 1:
+          message = alternativeMessage(random, i);
+          break;
+        default:
+          message = attachmentMessage(random, i);
+      }
+
+      // The literal's size counts CRLF line endings.
+      int size = 0;
+      for (String line : message) {
+        size += line.length() + 2;
+      }
+
+      lines.add("* " + (i + 1) + " FETCH (UID " + (1000 + i) + " BODY[] {" + size + "}");
+      lines.addAll(message);
+      lines.add(")");
+    }
+
+    lines.add("5 OK Success");
+    return lines;
+  }
+
+  private static List<String> plainMessage(Random random, int index) {
+    List<String> lines = headers(random, index);
+    lines.add("Content-Type: text/plain; charset=ISO-8859-1");
+    lines.add("Content-Transfer-Encoding: 7bit");
+    lines.add("");
+    paragraphs(random, lines, 3);
+    return lines;
+  }
+
+  private static List<String> alternativeMessage(Random random, int index) {
+    String boundary = "000e0cd2f1b0" + Integer.toHexString(random.nextInt());
+    List<String> lines = headers(random, index);
+    lines.add("Content-Type: multipart/alternative; boundary=" + boundary);
+    lines.add("");
+    lines.add("--" + boundary);
+    lines.add("Content-Type: text/plain; charset=UTF-8");
+    lines.add("");
+    paragraphs(random, lines, 3);
+    lines.add("");
+    lines.add("--" + boundary);
+    lines.add("Content-Type: text/html; charset=UTF-8");
+    lines.add("Content-Transfer-Encoding: quoted-printable");
+    lines.add("");
+    lines.add("<div dir=3D\"ltr\">");
+    for (int i = 0; i < 3; i++) {
+      lines.add("<p>" + sentence(random) + "=");
+      lines.add(sentence(random) + "</p>");
+    }
+    lines.add("</div>");
+    lines.add("");
+    lines.add("--" + boundary + "--");
+    return lines;
+  }
+
+  private static List<String> attachmentMessage(Random random, int index) {
+    String boundary = "000e0cd2f1b1" + Integer.toHexString(random.nextInt());
+    List<String> lines = headers(random, index);
+    lines.add("Content-Type: multipart/mixed; boundary=" + boundary);
+    lines.add("");
+    lines.add("--" + boundary);
+    lines.add("Content-Type: text/plain; charset=UTF-8");
+    lines.add("");
+    paragraphs(random, lines, 1);
+    lines.add("");
+    lines.add("--" + boundary);
+    lines.add("Content-Type: application/octet-stream; name=\"report.bin\"");
+    lines.add("Content-Disposition: attachment; filename=\"report.bin\"");
+    lines.add("Content-Transfer-Encoding: base64");
+    lines.add("");
+
+    byte[] attachment = new byte[4 * 1024];
+    random.nextBytes(attachment);
+    String encoded = DatatypeConverter.printBase64Binary(attachment);
+    for (int i = 0; i < encoded.length(); i += 76) {
+      lines.add(encoded.substring(i, Math.min(encoded.length(), i + 76)));
+    }
+    lines.add("");
+    lines.add("--" + boundary + "--");
+    return lines;
+  }
+
+  private static List<String> headers(Random random, int index) {
+    List<String> lines = new ArrayList<String>();
+    lines.add("Received: by 10.231.31.195 with SMTP id z3fc89823ibc;");
+    lines.add("        Thu, 8 Sep 2011 17:07:49 -0700 (PDT)");
+    lines.add("Received: from mail.sitebricks.org (mail.sitebricks.org [10.241.242.135])");
+    lines.add("\tby mx.sitebricks.org with ESMTP id PPz3fc89823ibc");
+    lines.add("\tfor <dhanji@gmail.com>; Thu, 8 Sep 2011 17:07:45 -0700");
+    lines.add("Message-ID: <" + Integer.toHexString(random.nextInt()) + "." + index
+        + "@mail.sitebricks.org>");
+    lines.add("Date: Thu, 8 Sep 2011 17:07:45 -0700");
+    lines.add("From: " + word(random) + " <" + word(random) + "@sitebricks.org>");
+    lines.add("To: dhanji@gmail.com");
+    lines.add("Subject: " + sentence(random));
+    lines.add("MIME-Version: 1.0");
+    return lines;
+  }
+
+  private static void paragraphs(Random random, List<String> lines, int count) {
+    for (int i = 0; i < count; i++) {
+      for (int j = 0; j < 4; j++) {
+        lines.add(sentence(random));
+      }
+      lines.add("");
+    }
+  }
+
+  private static String sentence(Random random) {
+    StringBuilder sentence = new StringBuilder();
+    for (int i = 0; i < 10; i++) {
+      if (i > 0)
+        sentence.append(' ');
+      sentence.append(word(random));
+    }
+    return sentence.append('.').toString();
+  }
+
+  private static String word(Random random) {
+    return WORDS[random.nextInt(WORDS.length)];
+  }
+}
@@ -2,10 +2,13 @@ package com.google.sitebricks.client;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.inject.Injector;
+import com.google.common.util.concurrent.AbstractListenableFuture;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.inject.Key;
+import com.ning.http.client.AsyncCompletionHandler;
 import com.ning.http.client.AsyncHttpClient;
-import com.ning.http.client.AsyncHttpClientConfig;
 import com.ning.http.client.Realm;
+import com.ning.http.client.Request;
 import com.ning.http.client.RequestBuilder;
 import com.ning.http.client.Response;
 import net.jcip.annotations.ThreadSafe;
@@ -14,8 +17,12 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * @author Jeanfrancois Arcand (jfarcand@apache.org)
@@ -29,40 +36,33 @@ class AHCWebClient<T> implements WebClient<T> {
     private final Class<T> transporting;
     private final Key<? extends Transport> transport;
     private final AsyncHttpClient httpClient;
+    private final WebClientPool pool;
+    private final boolean chunked;
+    private final Realm realm;
 
-    private final Web.Auth authType;
-    private final String username;
-    private final String password;
+    // Requests still in flight, aborted if this client is closed.
+    private final Set<ResponseFuture> pending =
+            Collections.newSetFromMap(new ConcurrentHashMap<ResponseFuture, Boolean>());
+    private volatile boolean closed;
 
     public AHCWebClient(Injector injector, Web.Auth authType, String username,
                         String password, String url, Map<String, String> headers,
                         Class<T> transporting,
-                        Key<? extends Transport> transport) {
+                        Key<? extends Transport> transport, boolean chunked) {
 
         this.injector = injector;
 
         this.url = url;
         this.headers = (null == headers) ? null : ImmutableMap.copyOf(headers);
 
-
-        this.authType = authType;
-        this.username = username;
-        this.password = password;
         this.transporting = transporting;
         this.transport = transport;
+        this.chunked = chunked;
 
-        // configure auth
-        AsyncHttpClientConfig.Builder c = new AsyncHttpClientConfig.Builder();
-        if (null != authType) {
-            Realm.RealmBuilder b = new Realm.RealmBuilder();
-            // TODO: Add support for Kerberos and SPNEGO
-            Realm.AuthScheme scheme = authType.equals(Web.Auth.BASIC) ? Realm.AuthScheme.BASIC : Realm.AuthScheme.DIGEST;
-            b.setPrincipal(username).setPassword(password).setScheme(scheme);
-            c.setRealm(b.build());
-        }
-
-        this.httpClient = new AsyncHttpClient(c.build());
-
+        // shared with all other web clients, credentials go with each request
+        this.pool = injector.getInstance(WebClientPool.class);
+        this.httpClient = pool.client();
+        this.realm = WebClientPool.realmFor(authType, username, password);
     }
 
     private static URI toUri(String url) {
@@ -73,55 +73,92 @@ class AHCWebClient<T> implements WebClient<T> {
         }
     }
 
-    private WebResponse simpleRequest(RequestBuilder requestBuilder) {
+    private ListenableFuture<WebResponse> simpleRequest(RequestBuilder requestBuilder) {
+        return execute(requestBuilder);
+    }
 
-        //set request headers as necessary
-        if (null != headers)
-            for (Map.Entry<String, String> header : headers.entrySet())
-                requestBuilder.addHeader(header.getKey(), header.getValue());
+    private ListenableFuture<WebResponse> request(RequestBuilder requestBuilder, T t) {
+        if (chunked) {
+            // Let the transport write straight into the outgoing request.
+            requestBuilder.setBody(new StreamingBodyGenerator<T>(pool.serializers(),
+                    injector.getInstance(transport), transporting, t));
+            return stream(requestBuilder);
+        }
 
+        // Read the entity from the transport plugin.
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
         try {
+            injector.getInstance(transport)
+                    .out(stream, transporting, t);
+        } catch (IOException e) {
+            throw new TransportException(e);
+        }
 
-            Response r = httpClient.executeRequest(requestBuilder.build()).get();
+        // TODO worry about endian issues? Or will Content-Encoding be sufficient?
+        // Buffers the whole entity, see Web.FormatBuilder#chunked() for large ones.
+        final byte[] outBuffer = stream.toByteArray();
 
-            return new WebResponseImpl(injector, r);
+        //set request body
+        requestBuilder.setBody(outBuffer);
+
+        return execute(requestBuilder);
+    }
+
+    private ListenableFuture<WebResponse> execute(RequestBuilder requestBuilder) {
+        Request request = prepare(requestBuilder);
+
+        //fire method, the response is completed on an IO thread
+        final ResponseFuture future = new ResponseFuture();
+        pending.add(future);
+        try {
+            future.send(httpClient, request);
         } catch (IOException e) {
             throw new TransportException(e);
-        } catch (InterruptedException e) {
-            throw new TransportException(e);
-        } catch (ExecutionException e) {
-            throw new TransportException(e);
         }
+
+        return future;
     }
 
+    /**
+     * Sending a chunked entity blocks until the transport has written all of
+     * it, so it is sent from a serializer thread over the pool's blocking
+     * client. See {@link WebClientPool#streamingClient()}.
+     */
+    private ListenableFuture<WebResponse> stream(RequestBuilder requestBuilder) {
+        final Request request = prepare(requestBuilder);
+        final ResponseFuture future = new ResponseFuture();
+        pending.add(future);
+        pool.serializers().execute(new Runnable() {
+            public void run() {
+                try {
+                    future.send(pool.streamingClient(), request);
+                } catch (IOException e) {
+                    future.handler.onThrowable(e);
+                }
+            }
+        });
+
+        return future;
+    }
 
-    private WebResponse request(RequestBuilder requestBuilder, T t) {
+    private Request prepare(RequestBuilder requestBuilder) {
+        if (closed)
+            throw new IllegalStateException("Web client has been closed: " + url);
+
+        if (null != realm)
+            requestBuilder.setRealm(realm);
 
         //set request headers as necessary
         if (null != headers)
             for (Map.Entry<String, String> header : headers.entrySet())
                 requestBuilder.addHeader(header.getKey(), header.getValue());
 
-        //fire method
-        try {
-
-            // Read the entity from the transport plugin.
-            final ByteArrayOutputStream stream = new ByteArrayOutputStream();
-            injector.getInstance(transport)
-                    .out(stream, transporting, t);
-
-            // TODO worry about endian issues? Or will Content-Encoding be sufficient?
-            // OOM if the stream is too bug
-            final byte[] outBuffer = stream.toByteArray();
-
-            //set request body
-            requestBuilder.setBody(outBuffer);
-
-            Response r = httpClient.executeRequest(requestBuilder.build()).get();
+        return requestBuilder.build();
+    }
 
-            return new WebResponseImpl(injector, r);
-        } catch (IOException e) {
-            throw new TransportException(e);
+    private static WebResponse await(ListenableFuture<WebResponse> future) {
+        try {
+            return future.get();
         } catch (InterruptedException e) {
             throw new TransportException(e);
         } catch (ExecutionException e) {
@@ -130,23 +167,98 @@ class AHCWebClient<T> implements WebClient<T> {
     }
 
     public WebResponse get() {
-        return simpleRequest((new RequestBuilder("GET")).setUrl(url));
+        return await(getAsync());
     }
 
     public WebResponse post(T t) {
-        return request((new RequestBuilder("POST")).setUrl(url), t);
+        return await(postAsync(t));
     }
 
     public WebResponse put(T t) {
-        return request((new RequestBuilder("PUT")).setUrl(url), t);
+        return await(putAsync(t));
     }
 
     public WebResponse delete() {
+        return await(deleteAsync());
+    }
+
+    public ListenableFuture<WebResponse> getAsync() {
+        return simpleRequest((new RequestBuilder("GET")).setUrl(url));
+    }
+
+    public ListenableFuture<WebResponse> postAsync(T t) {
+        return request((new RequestBuilder("POST")).setUrl(url), t);
+    }
+
+    public ListenableFuture<WebResponse> putAsync(T t) {
+        return request((new RequestBuilder("PUT")).setUrl(url), t);
+    }
+
+    public ListenableFuture<WebResponse> deleteAsync() {
         return simpleRequest((new RequestBuilder("DELETE")).setUrl(url));
     }
 
+    /**
+     * Completes with the response when the underlying client calls back. Cancelling
+     * it aborts the HTTP request.
+     */
+    private class ResponseFuture extends AbstractListenableFuture<WebResponse> {
+        private volatile Future<Response> request;
+
+        private final AsyncCompletionHandler<Response> handler = new AsyncCompletionHandler<Response>() {
+            @Override
+            public Response onCompleted(Response response) {
+                pending.remove(ResponseFuture.this);
+                set(new WebResponseImpl(injector, response));
+                return response;
+            }
+
+            @Override
+            public void onThrowable(Throwable t) {
+                pending.remove(ResponseFuture.this);
+                setException(t);
+            }
+        };
+
+        private void send(AsyncHttpClient client, Request request) throws IOException {
+            // Cancelled (or its web client closed) before it could be sent.
+            if (isCancelled())
+                return;
+
+            try {
+                this.request = client.executeRequest(request, handler);
+            } catch (IOException e) {
+                pending.remove(this);
+                throw e;
+            }
+
+            // Cancelled while it was being sent.
+            if (isCancelled())
+                this.request.cancel(true);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (!super.cancel(mayInterruptIfRunning))
+                return false;
+
+            pending.remove(this);
+            Future<Response> request = this.request;
+            if (null != request)
+                request.cancel(true);
+            return true;
+        }
+    }
+
+    /**
+     * Aborts any requests still in flight; no further requests may be made.
+     * The underlying HTTP client is shared, so it stays open. See
+     * {@link WebClientPool#shutdown()}.
+     */
     @Override
     public void close() {
-        httpClient.close();    
+        closed = true;
+        for (ResponseFuture future : pending)
+            future.cancel(true);
     }
 }
@@ -0,0 +1,205 @@
+package com.google.sitebricks.client;
+
+import com.ning.http.client.Body;
+import com.ning.http.client.BodyGenerator;
+import net.jcip.annotations.ThreadSafe;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates a request body by running a {@link Transport} on a background
+ * thread and handing what it writes to the HTTP client in fixed-size chunks.
+ * At most {@link #MAX_CHUNKS} chunks are ever held in memory, so the size of
+ * the entity makes no difference to the heap used to send it. The body has
+ * no known length, so it is sent with chunked transfer encoding.
+ * <p>
+ * Reading the body waits on the transport whenever it has not yet produced
+ * the next chunk, so it must not be read on a non-blocking IO thread that
+ * other connections share. See {@link WebClientPool#streamingClient()}.
+ */
+@ThreadSafe
+class StreamingBodyGenerator<T> implements BodyGenerator {
+  // Most that a chunk size line and trailing CRLF can take up, for reads of up to 64K.
+  private static final int FRAMING = 4 + 2 + 2;
+
+  // Sized so that each framed chunk fills one of the netty provider's 8K reads.
+  static final int CHUNK_SIZE = 8 * 1024 - FRAMING;
+  static final int MAX_CHUNKS = 4;
+
+  // Marks the end of the entity in the chunk queue.
+  private static final byte[] END = new byte[0];
+
+  // The netty provider sends the "Transfer-Encoding: chunked" header but writes
+  // body parts as they are, so we frame each chunk ourselves.
+  private static final Charset ASCII = Charset.forName("US-ASCII");
+  private static final byte[] CRLF = { '\r', '\n' };
+  private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(ASCII);
+
+  private final Executor executor;
+  private final Transport transport;
+  private final Class<T> type;
+  private final T data;
+
+  StreamingBodyGenerator(Executor executor, Transport transport, Class<T> type, T data) {
+    this.executor = executor;
+    this.transport = transport;
+    this.type = type;
+    this.data = data;
+  }
+
+  public Body createBody() {
+    final ChunkedBody body = new ChunkedBody();
+    executor.execute(new Runnable() {
+      public void run() {
+        ChunkOutputStream out = new ChunkOutputStream(body);
+        try {
+          transport.out(out, type, data);
+          out.close();
+        } catch (Exception e) {
+          body.fail(e);
+        }
+      }
+    });
+
+    return body;
+  }
+
+  private static class ChunkedBody implements Body {
+    private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<byte[]>(MAX_CHUNKS);
+
+    private volatile boolean closed;
+    private volatile Exception failure;
+
+    // Only touched by the reading (IO) thread.
+    private byte[] chunk;
+    private int position;
+    private boolean ended;
+
+    public long getContentLength() {
+      return -1;
+    }
+
+    public long read(ByteBuffer buffer) throws IOException {
+      if (ended)
+        return -1;
+
+      // Too little room to frame any data, let alone the last chunk. Nothing is
+      // written, so the client simply reads again into its next buffer.
+      if (buffer.remaining() <= FRAMING)
+        return 0;
+
+      if (null == chunk || position == chunk.length) {
+        try {
+          chunk = chunks.take();
+        } catch (InterruptedException e) {
+          throw new InterruptedIOException("Interrupted while waiting for the request entity");
+        }
+        position = 0;
+      }
+
+      if (END == chunk) {
+        if (null != failure)
+          throw new IOException("Could not serialize the request entity", failure);
+
+        ended = true;
+        buffer.put(LAST_CHUNK);
+        return LAST_CHUNK.length;
+      }
+
+      int length = Math.min(buffer.remaining() - FRAMING, chunk.length - position);
+      byte[] size = (Integer.toHexString(length) + "\r\n").getBytes(ASCII);
+
+      buffer.put(size);
+      buffer.put(chunk, position, length);
+      buffer.put(CRLF);
+      position += length;
+      return size.length + length + CRLF.length;
+    }
+
+    public void close() {
+      closed = true;
+
+      // unblock the transport, if it is waiting for room
+      chunks.clear();
+    }
+
+    void put(byte[] chunk) throws IOException {
+      try {
+        while (!chunks.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+          if (closed)
+            throw new IOException("Request was closed before its entity was written");
+        }
+      } catch (InterruptedException e) {
+        throw new InterruptedIOException("Interrupted while writing the request entity");
+      }
+    }
+
+    void fail(Exception e) {
+      failure = e;
+
+      // Make room for the end marker if necessary; the request is lost anyway.
+      while (!chunks.offer(END))
+        chunks.poll();
+    }
+  }
+
+  private static class ChunkOutputStream extends OutputStream {
+    private final ChunkedBody body;
+    private byte[] buffer = new byte[CHUNK_SIZE];
+    private int count;
+
+    private ChunkOutputStream(ChunkedBody body) {
+      this.body = body;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (count == buffer.length)
+        emit();
+      buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      while (length > 0) {
+        if (count == buffer.length)
+          emit();
+
+        int copied = Math.min(length, buffer.length - count);
+        System.arraycopy(bytes, offset, buffer, count, copied);
+        count += copied;
+        offset += copied;
+        length -= copied;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (count > 0)
+        emit();
+      body.put(END);
+    }
+
+    private void emit() throws IOException {
+      byte[] chunk = buffer;
+      if (count < chunk.length) {
+        chunk = new byte[count];
+        System.arraycopy(buffer, 0, chunk, 0, count);
+      } else {
+        // the queue now owns the full buffer
+        buffer = new byte[CHUNK_SIZE];
+      }
+
+      body.put(chunk);
+      count = 0;
+    }
+  }
+}
@@ -21,6 +21,14 @@ public interface Web {
     <T> ReadAsBuilder<T> transports(Class<T> clazz);
 
     FormatBuilder auth(Auth auth, String username, String password);
+
+    /**
+     * Streams request entities to the server as the transport writes them,
+     * using chunked transfer encoding, rather than serializing them into
+     * memory first. Use this to send large entities; the server must accept
+     * chunked requests.
+     */
+    FormatBuilder chunked();
   }
 
   static interface ReadAsBuilder<T> {
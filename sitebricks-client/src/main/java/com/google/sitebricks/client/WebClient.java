@@ -1,5 +1,7 @@
 package com.google.sitebricks.client;
 
+import com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * @author Dhanji R. Prasanna (dhanji@gmail.com)
  */
@@ -13,7 +15,24 @@ public interface WebClient<T> {
     WebResponse delete();
 
     /**
-     * Close the underlying client.
+     * Non-blocking versions of the HTTP methods above. The returned future
+     * completes on an IO thread once the whole response has arrived, so
+     * reading it (including decoding the body with
+     * {@link WebResponse#to(Class)}) will not block. Cancelling the future
+     * aborts the request.
+     */
+    ListenableFuture<WebResponse> getAsync();
+
+    ListenableFuture<WebResponse> postAsync(T t);
+
+    ListenableFuture<WebResponse> putAsync(T t);
+
+    ListenableFuture<WebResponse> deleteAsync();
+
+    /**
+     * Release this client, aborting any of its requests still in flight.
+     * Connections are pooled and shared between web clients, so this does
+     * not close them.
      */
     void close();
 }
@@ -22,6 +22,7 @@ class WebClientBuilder implements Web.FormatBuilder {
   private Web.Auth authType;
   private String username;
   private String password;
+  private boolean chunked;
 
   @Inject
   public WebClientBuilder(Injector injector) {
@@ -57,6 +58,11 @@ class WebClientBuilder implements Web.FormatBuilder {
     return this;
   }
 
+  public Web.FormatBuilder chunked() {
+    this.chunked = true;
+    return this;
+  }
+
   private class InternalReadAsBuilder<T> implements Web.ReadAsBuilder<T> {
     private final Class<T> transporting;
 
@@ -66,7 +72,7 @@ class WebClientBuilder implements Web.FormatBuilder {
 
     public WebClient<T> over(Class<? extends Transport> transport) {
       return new AHCWebClient<T>(injector, authType, username, password, url, 
-          headers, transporting, Key.get(transport));
+          headers, transporting, Key.get(transport), chunked);
     }
   }
 }
@@ -0,0 +1,203 @@
+package com.google.sitebricks.client;
+
+import com.google.common.base.Preconditions;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.ning.http.client.AsyncHttpClient;
+import com.ning.http.client.AsyncHttpClientConfig;
+import com.ning.http.client.Realm;
+import com.ning.http.client.providers.netty.NettyAsyncHttpProviderConfig;
+import net.jcip.annotations.GuardedBy;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A shared HTTP client for all {@link WebClient}s. Every web client uses the
+ * same underlying client, its IO threads and its pool of keep-alive
+ * connections, so creating a web client is cheap and connections to a host
+ * are reused across calls. Credentials are sent with each request, rather
+ * than configured on the client, so that many users need not mean many
+ * clients.
+ * <p>
+ * Closing a {@link WebClient} does not close the shared client. Sitebricks
+ * calls {@link #shutdown()} when it shuts down; outside of sitebricks, call
+ * it when the application stops to release all connections and threads.
+ * <p>
+ * Pool limits and timeouts are taken from {@link Settings}, which may be
+ * bound to customize them:
+ * <pre>
+ *   bind(WebClientPool.Settings.class).toInstance(new WebClientPool.Settings()
+ *       .maxConnectionsPerHost(50)
+ *       .idleTimeoutMs(30000));
+ * </pre>
+ */
+@ThreadSafe @Singleton
+public class WebClientPool {
+  private final Settings settings;
+
+  @GuardedBy("this")
+  private AsyncHttpClient client;
+
+  // Sends chunked request entities, see streamingClient().
+  @GuardedBy("this")
+  private AsyncHttpClient streamingClient;
+
+  // Runs transports that stream chunked request entities, started on demand.
+  @GuardedBy("this")
+  private ExecutorService serializers;
+
+  @Inject
+  public WebClientPool(Settings settings) {
+    this.settings = settings;
+  }
+
+  /**
+   * @return The shared client, creating it on first use.
+   */
+  synchronized AsyncHttpClient client() {
+    if (null == client)
+      client = new AsyncHttpClient(configure().build());
+
+    return client;
+  }
+
+  /**
+   * A request whose entity is streamed from a transport may have to wait for
+   * the transport to write the next chunk. Waiting on a shared non-blocking
+   * IO thread would hold up every connection served by it, so these requests
+   * go through a client with blocking IO instead, where each connection has
+   * a thread of its own.
+   *
+   * @return The client for requests with chunked entities, creating it on
+   *     first use.
+   */
+  synchronized AsyncHttpClient streamingClient() {
+    if (null == streamingClient)
+      streamingClient = new AsyncHttpClient(configure()
+          .setAsyncHttpClientProviderConfig(new NettyAsyncHttpProviderConfig()
+              .addProperty(NettyAsyncHttpProviderConfig.USE_BLOCKING_IO, true))
+          .build());
+
+    return streamingClient;
+  }
+
+  /**
+   * @return Threads on which transports write chunked request entities.
+   */
+  synchronized Executor serializers() {
+    if (null == serializers)
+      serializers = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable,
+              "sitebricks-client-serializer-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+
+    return serializers;
+  }
+
+  /**
+   * Closes the shared clients, along with their connections and threads. Any
+   * web clients obtained before shutdown can no longer be used.
+   */
+  public synchronized void shutdown() {
+    if (null != serializers)
+      serializers.shutdownNow();
+    serializers = null;
+
+    if (null != client)
+      client.close();
+    client = null;
+
+    if (null != streamingClient)
+      streamingClient.close();
+    streamingClient = null;
+  }
+
+  /**
+   * @return The realm to authenticate requests with, or null if
+   *     {@code authType} is null (anonymous).
+   */
+  static Realm realmFor(Web.Auth authType, String username, String password) {
+    if (null == authType)
+      return null;
+
+    // TODO: Add support for Kerberos and SPNEGO
+    Realm.AuthScheme scheme = authType.equals(Web.Auth.BASIC)
+        ? Realm.AuthScheme.BASIC
+        : Realm.AuthScheme.DIGEST;
+    return new Realm.RealmBuilder()
+        .setPrincipal(username)
+        .setPassword(password)
+        .setScheme(scheme)
+        .build();
+  }
+
+  private AsyncHttpClientConfig.Builder configure() {
+    return new AsyncHttpClientConfig.Builder()
+        .setAllowPoolingConnection(settings.keepAlive)
+        .setMaximumConnectionsPerHost(settings.maxConnectionsPerHost)
+        .setMaximumConnectionsTotal(settings.maxConnections)
+        .setIdleConnectionInPoolTimeoutInMs(settings.idleTimeoutMs);
+  }
+
+  /**
+   * Connection pooling settings for the clients in a {@link WebClientPool}.
+   * Changes made after the pool has created a client have no effect on it.
+   */
+  public static class Settings {
+    private boolean keepAlive = true;
+    private int maxConnectionsPerHost = 20;
+    private int maxConnections = -1;
+    private int idleTimeoutMs = 60 * 1000;
+
+    /**
+     * Whether to keep connections open for reuse by later requests.
+     * Defaults to true.
+     */
+    public Settings keepAlive(boolean keepAlive) {
+      this.keepAlive = keepAlive;
+      return this;
+    }
+
+    /**
+     * Maximum open connections to any single host. Defaults to 20; -1 for
+     * no limit.
+     */
+    public Settings maxConnectionsPerHost(int maxConnectionsPerHost) {
+      Preconditions.checkArgument(maxConnectionsPerHost > 0 || -1 == maxConnectionsPerHost,
+          "Max connections per host must be positive or -1");
+      this.maxConnectionsPerHost = maxConnectionsPerHost;
+      return this;
+    }
+
+    /**
+     * Maximum open connections across all hosts. Defaults to -1, for no limit.
+     */
+    public Settings maxConnections(int maxConnections) {
+      Preconditions.checkArgument(maxConnections > 0 || -1 == maxConnections,
+          "Max connections must be positive or -1");
+      this.maxConnections = maxConnections;
+      return this;
+    }
+
+    /**
+     * How long an unused keep-alive connection stays in the pool before it
+     * is closed, in milliseconds. Defaults to one minute.
+     */
+    public Settings idleTimeoutMs(int idleTimeoutMs) {
+      Preconditions.checkArgument(idleTimeoutMs > 0, "Idle timeout must be positive");
+      this.idleTimeoutMs = idleTimeoutMs;
+      return this;
+    }
+  }
+}
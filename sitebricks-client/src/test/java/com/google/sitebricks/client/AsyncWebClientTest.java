@@ -0,0 +1,126 @@
+package com.google.sitebricks.client;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.sitebricks.client.transport.Text;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exercises the async web client against a local echo server.
+ */
+public class AsyncWebClientTest {
+  private HttpServer server;
+  private Injector injector;
+  private String url;
+
+  @BeforeMethod
+  public final void pre() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", new HttpHandler() {
+      public void handle(HttpExchange exchange) throws IOException {
+        // Echo the method, path and request body back.
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        InputStream in = exchange.getRequestBody();
+        byte[] buffer = new byte[1024];
+        for (int read; (read = in.read(buffer)) != -1; ) {
+          body.write(buffer, 0, read);
+        }
+
+        byte[] reply = (exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath()
+            + " " + body.toString("UTF-8")).getBytes("UTF-8");
+        exchange.sendResponseHeaders(200, reply.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(reply);
+        out.close();
+      }
+    });
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+
+    url = "http://localhost:" + server.getAddress().getPort();
+    injector = Guice.createInjector();
+  }
+
+  @AfterMethod
+  public final void post() {
+    injector.getInstance(WebClientPool.class).shutdown();
+    server.stop(0);
+  }
+
+  @Test
+  public final void asyncVerbs() throws Exception {
+    Web web = injector.getInstance(Web.class);
+    WebClient<String> client = web.clientOf(url + "/echo").transports(String.class).over(Text.class);
+
+    assert "GET /echo ".equals(client.getAsync().get(5, TimeUnit.SECONDS).toString());
+    assert "POST /echo hi".equals(client.postAsync("hi").get(5, TimeUnit.SECONDS)
+        .to(String.class).using(Text.class));
+    assert "PUT /echo there".equals(client.putAsync("there").get(5, TimeUnit.SECONDS).toString());
+    assert "DELETE /echo ".equals(client.deleteAsync().get(5, TimeUnit.SECONDS).toString());
+
+    // Blocking verbs are unchanged.
+    assert 200 == client.get().status();
+  }
+
+  @Test
+  public final void chunkedRequestEntity() throws Exception {
+    StringBuilder entity = new StringBuilder();
+    for (int i = 0; entity.length() < 10 * StreamingBodyGenerator.CHUNK_SIZE * StreamingBodyGenerator.MAX_CHUNKS; i++) {
+      entity.append(i).append(',');
+    }
+
+    WebClient<String> client = injector.getInstance(Web.class)
+        .clientOf(url + "/upload")
+        .chunked()
+        .transports(String.class)
+        .over(Text.class);
+
+    assert ("POST /upload " + entity).equals(client.post(entity.toString()).toString());
+    assert ("PUT /upload " + entity).equals(client.putAsync(entity.toString())
+        .get(5, TimeUnit.SECONDS).toString());
+  }
+
+  @Test
+  public final void fanOutCompletesWithListeners() throws Exception {
+    Web web = injector.getInstance(Web.class);
+
+    int requests = 20;
+    final CountDownLatch latch = new CountDownLatch(requests);
+    List<ListenableFuture<WebResponse>> futures = new ArrayList<ListenableFuture<WebResponse>>();
+    for (int i = 0; i < requests; i++) {
+      ListenableFuture<WebResponse> future = web.clientOf(url + "/service/" + i)
+          .transports(String.class)
+          .over(Text.class)
+          .getAsync();
+
+      future.addListener(new Runnable() {
+        public void run() {
+          latch.countDown();
+        }
+      }, Executors.newSingleThreadExecutor());
+      futures.add(future);
+    }
+
+    assert latch.await(5, TimeUnit.SECONDS);
+    for (int i = 0; i < requests; i++) {
+      assert ("GET /service/" + i + " ").equals(futures.get(i).get().toString());
+    }
+  }
+}
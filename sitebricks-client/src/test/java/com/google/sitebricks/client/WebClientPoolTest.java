@@ -0,0 +1,67 @@
+package com.google.sitebricks.client;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.sitebricks.client.transport.Text;
+import com.ning.http.client.AsyncHttpClient;
+import com.ning.http.client.Realm;
+import org.testng.annotations.Test;
+
+public class WebClientPoolTest {
+
+  @Test
+  public final void credentialsGoWithEachRequest() {
+    WebClientPool pool = new WebClientPool(new WebClientPool.Settings());
+    try {
+      AsyncHttpClient client = pool.client();
+      assert client == pool.client();
+      assert null == client.getConfig().getRealm();
+
+      assert null == WebClientPool.realmFor(null, "dhanji", "secret");
+
+      Realm basic = WebClientPool.realmFor(Web.Auth.BASIC, "dhanji", "secret");
+      assert Realm.AuthScheme.BASIC == basic.getAuthScheme();
+      assert "dhanji".equals(basic.getPrincipal());
+      assert "secret".equals(basic.getPassword());
+      assert Realm.AuthScheme.DIGEST
+          == WebClientPool.realmFor(Web.Auth.DIGEST, "dhanji", "secret").getAuthScheme();
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public final void closingWebClientKeepsPooledClientOpen() {
+    Injector injector = Guice.createInjector(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bind(WebClientPool.Settings.class).toInstance(new WebClientPool.Settings()
+            .maxConnectionsPerHost(2)
+            .idleTimeoutMs(1000));
+      }
+    });
+    Web web = injector.getInstance(Web.class);
+    WebClientPool pool = injector.getInstance(WebClientPool.class);
+
+    WebClient<String> closed = web.clientOf("http://localhost/a").transports(String.class)
+        .over(Text.class);
+    closed.close();
+    web.clientOf("http://localhost/b").transports(String.class).over(Text.class).close();
+
+    try {
+      closed.getAsync();
+      assert false : "a closed web client should refuse requests";
+    } catch (IllegalStateException expected) {
+    }
+
+    AsyncHttpClient client = pool.client();
+    assert !client.isClosed();
+    assert 2 == client.getConfig().getMaxConnectionPerHost();
+
+    pool.shutdown();
+    assert client.isClosed();
+    assert client != pool.client();
+    pool.shutdown();
+  }
+}
@@ -11,6 +11,9 @@
  *******************************************************************************/
 package org.sitebricks.client.easy.internal;
 
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.sitebricks.At;
 import com.google.sitebricks.client.Web;
 import com.google.sitebricks.client.WebClient;
@@ -23,9 +26,11 @@ import com.google.sitebricks.http.Put;
 import org.codehaus.jackson.map.ObjectMapper;
 import org.codehaus.jackson.map.type.TypeFactory;
 
+import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -64,6 +69,10 @@ public class DefaultRestClient implements InvocationHandler {
     final Class<? extends Object> transportType = getTransportType(method);
 
     final WebClient<? extends Object> webClient = web.clientOf(url).transports(transportType).over(Json.class);
+    if (ListenableFuture.class == method.getReturnType()) {
+      return invokeAsync(method, url, httpMethod, webClient, args);
+    }
+
     try {
       @SuppressWarnings("unchecked")
       final WebResponse restResponse = httpMethod.invoke((WebClient<Object>) webClient, args == null || args.length == 0 ? null : args[0]);
@@ -84,6 +93,36 @@ public class DefaultRestClient implements InvocationHandler {
     return null;
   }
 
+  private ListenableFuture<Object> invokeAsync(final Method method, final String url, final HttpMethod httpMethod,
+      final WebClient<? extends Object> webClient, final Object[] args) {
+    // The response type is the type argument of the declared future, if any.
+    final Type genericReturnType = method.getGenericReturnType();
+    final Type responseType = genericReturnType instanceof ParameterizedType
+        ? ((ParameterizedType) genericReturnType).getActualTypeArguments()[0]
+        : Void.class;
+
+    @SuppressWarnings("unchecked")
+    final ListenableFuture<WebResponse> future = httpMethod.invokeAsync((WebClient<Object>) webClient, args == null || args.length == 0 ? null : args[0]);
+
+    return Futures.transform(future, new Function<WebResponse, Object>() {
+      @Override
+      public Object apply(final WebResponse restResponse) {
+        try {
+          checkStatus(restResponse, url, httpMethod);
+          if (responseType == Void.class) {
+            return null;
+          }
+
+          return mapper.readValue(restResponse.toString(), typeFactory.constructType(responseType, serviceInterface));
+        } catch (final IOException e) {
+          throw new IllegalStateException(String.format("Could not read response of [%s] on [%s]", httpMethod, url), e);
+        } finally {
+          webClient.close();
+        }
+      }
+    });
+  }
+
   private String getUrl(final Method method, final Object[] args) {
     final StringBuilder rawUrl = new StringBuilder();
     final At atClass = serviceInterface.getAnnotation(At.class);
@@ -174,6 +213,8 @@ public class DefaultRestClient implements InvocationHandler {
     Class<? extends Object> getTransportType(final Method method);
 
     <T> WebResponse invoke(WebClient<T> webClient, T request);
+
+    <T> ListenableFuture<WebResponse> invokeAsync(WebClient<T> webClient, T request);
   }
 
   private static class GetHttpMethod implements HttpMethod {
@@ -188,6 +229,11 @@ public class DefaultRestClient implements InvocationHandler {
       return webClient.get();
     }
 
+    @Override
+    public <T> ListenableFuture<WebResponse> invokeAsync(final WebClient<T> webClient, final T request) {
+      return webClient.getAsync();
+    }
+
     @Override
     public Class<? extends Object> getTransportType(final Method method) {
       return Void.class;
@@ -212,6 +258,11 @@ public class DefaultRestClient implements InvocationHandler {
       return webClient.put(request);
     }
 
+    @Override
+    public <T> ListenableFuture<WebResponse> invokeAsync(final WebClient<T> webClient, final T request) {
+      return webClient.putAsync(request);
+    }
+
     @Override
     public Class<? extends Object> getTransportType(final Method method) {
       return DefaultRestClient.getTransportType(method);
@@ -236,6 +287,11 @@ public class DefaultRestClient implements InvocationHandler {
       return webClient.delete();
     }
 
+    @Override
+    public <T> ListenableFuture<WebResponse> invokeAsync(final WebClient<T> webClient, final T request) {
+      return webClient.deleteAsync();
+    }
+
     @Override
     public Class<? extends Object> getTransportType(final Method method) {
       return DefaultRestClient.getTransportType(method);
@@ -260,6 +316,11 @@ public class DefaultRestClient implements InvocationHandler {
       return webClient.post(request);
     }
 
+    @Override
+    public <T> ListenableFuture<WebResponse> invokeAsync(final WebClient<T> webClient, final T request) {
+      return webClient.postAsync(request);
+    }
+
     @Override
     public Class<? extends Object> getTransportType(final Method method) {
       return DefaultRestClient.getTransportType(method);
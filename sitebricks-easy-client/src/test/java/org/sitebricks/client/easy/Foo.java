@@ -4,6 +4,7 @@ import java.util.Collection;
 
 import javax.inject.Named;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.sitebricks.At;
 import com.google.sitebricks.http.Delete;
 import com.google.sitebricks.http.Get;
@@ -39,4 +40,11 @@ public interface Foo {
   @Post
   String echoWithPost(String message);
 
+  @Get
+  @At("/:id")
+  ListenableFuture<Bar> getAsync(@Named("id") String id);
+
+  @Post
+  ListenableFuture<String> echoWithPostAsync(String message);
+
 }
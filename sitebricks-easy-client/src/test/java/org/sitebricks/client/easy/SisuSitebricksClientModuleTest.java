@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
@@ -116,4 +117,25 @@ public class SisuSitebricksClientModuleTest extends SitebricksServiceTest {
 
     assertThat("Echo message", echo, is(equalTo("Sitebricks says hello!")));
   }  
+
+  @Test
+  public void getByIdAsync() throws Exception {
+    final Bar mockBar = new Bar();
+
+    when(mockFoo.get("1")).thenReturn(mockBar);
+
+    final Foo foo = fooFactory.create(new URL(baseUrl()));
+    final Bar bar = foo.getAsync("1").get(5, TimeUnit.SECONDS);
+
+    verify(mockFoo).get("1");
+    assertThat("Bar", bar, is(equalTo(mockBar)));
+  }
+
+  @Test
+  public void echoWithPostAsync() throws Exception {
+    final Foo foo = fooFactory.create(new URL(baseUrl()));
+    final String echo = foo.echoWithPostAsync("hello").get(5, TimeUnit.SECONDS);
+
+    assertThat("Echo message", echo, is(equalTo("Sitebricks says hello!")));
+  }
 }
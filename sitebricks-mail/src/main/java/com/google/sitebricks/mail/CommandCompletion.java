@@ -4,10 +4,13 @@ import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.SettableFuture;
 import com.google.sitebricks.mail.imap.Command;
 import com.google.sitebricks.mail.imap.ExtractionException;
+import com.google.sitebricks.mail.imap.ImapResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * A generic command completion listener that aggregates incoming messages
@@ -17,11 +20,17 @@ import java.util.List;
  */
 class CommandCompletion {
   private static final Logger log = LoggerFactory.getLogger(CommandCompletion.class);
+
+  // Both the STATUS command ("3 status "INBOX" (...)") and its response ("* STATUS INBOX (...)").
+  private static final Pattern STATUS_MAILBOX = Pattern.compile(
+      "^(?:\\*|\\d+) STATUS (\"(?:[^\"\\\\]|\\\\.)*\"|[^ ]+)", Pattern.CASE_INSENSITIVE);
+
   private final SettableFuture<Object> valueFuture;
-  private final List<String> value = Lists.newArrayList();
+  private final List<ImapResponse> value = Lists.newArrayList();
   private final Long sequence;
   private final Command command;
   private final String commandString;
+  private final String statusMailbox;
 
   @SuppressWarnings("unchecked") // Ugly gunk needed to prevent generics from spewing everywhere
   public CommandCompletion(Command command,
@@ -32,11 +41,12 @@ class CommandCompletion {
     this.valueFuture = (SettableFuture<Object>) valueFuture;
     this.sequence = sequence;
     this.command = command;
+    this.statusMailbox = command == Command.FOLDER_STATUS ? statusMailbox(commandString) : null;
   }
 
   public void error(String message, Exception e) {
     StringBuilder builder = new StringBuilder();
-    for (String piece : value) {
+    for (ImapResponse piece : value) {
       builder.append(piece).append('\n');
     }
     log.error("Exception while processing response:\n Command: {} (seq: {})\n\n--message follows--" +
@@ -44,11 +54,31 @@ class CommandCompletion {
         new Object[] { commandString, sequence, message, builder.toString(), e });
 
     // TODO Send this back to the client as an exception so it can be handled correctly.
-    valueFuture.setException(new MailHandlingException(value, message, e));
+    valueFuture.setException(new MailHandlingException(ImapResponse.lines(value), message, e));
   }
 
-  public boolean complete(String message) {
-    value.add(message);
+  /**
+   * Like {@link #error(String, Exception)}, but queued behind any responses of
+   * this connection that are still being extracted, so that the failure
+   * neither overtakes them nor runs on the I/O thread.
+   */
+  public void error(final String message, final Exception e,
+                    ResponseParser.ConnectionQueue parser) {
+    parser.submit(new Runnable() {
+      @Override
+      public void run() {
+        error(message, e);
+      }
+    });
+  }
+
+  /**
+   * Adds the given response, and if it is the last one for this command,
+   * hands them all to the given queue to be extracted off the I/O thread.
+   */
+  public boolean complete(ImapResponse response, ResponseParser.ConnectionQueue parser) {
+    value.add(response);
+    final String message = response.line();
     // Base case (empty/newline message).
     if (message.isEmpty()) {
       return false;
@@ -57,18 +87,64 @@ class CommandCompletion {
     try {
      if (Command.isEndOfSequence(sequence, message.toLowerCase())) {
        // Once we see the OK message, we should process the data and return.
-       valueFuture.set(command.extract(value));
+       parser.submit(new Runnable() {
+         @Override
+         public void run() {
+           try {
+             valueFuture.set(command.extractResponses(value));
+           } catch (ExtractionException ee) {
+             valueFuture.setException(ee);
+           } catch (RuntimeException e) {
+             error(message, e);
+           }
+         }
+       });
        return true;
       }
     }
-    catch(ExtractionException ee) {
-      valueFuture.setException(ee);
+    catch(final ExtractionException ee) {
+      // Still queued, so it can't overtake the commands before it.
+      parser.submit(new Runnable() {
+        @Override
+        public void run() {
+          valueFuture.setException(ee);
+        }
+      });
       return true;
     }
 
     return false;
   }
 
+  Long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * @return True if this command asked for the given untagged response, which
+   *    only responses that name what they are about (STATUS) can tell.
+   */
+  boolean claims(String untagged) {
+    return null != statusMailbox && statusMailbox.equals(statusMailbox(untagged));
+  }
+
+  /**
+   * @return The mailbox named by a STATUS command or response, unquoted, or
+   *    null if this is neither.
+   */
+  static String statusMailbox(String message) {
+    Matcher matcher = STATUS_MAILBOX.matcher(message);
+    if (!matcher.find()) {
+      return null;
+    }
+
+    String mailbox = matcher.group(1);
+    if (mailbox.startsWith("\"")) {
+      mailbox = mailbox.substring(1, mailbox.length() - 1).replaceAll("\\\\(.)", "$1");
+    }
+    return mailbox;
+  }
+
   @Override public String toString() {
     return commandString;
   }
@@ -20,6 +20,17 @@ public interface Mail {
 
     AuthBuilder executors(ExecutorService bossPool, ExecutorService workerPool);
 
+    /**
+     * Responses are parsed on this executor rather than on the Netty worker
+     * threads. Each connection's responses are still parsed in order. When
+     * more than {@code maxQueued} responses are waiting, connections stop
+     * reading until their backlog has been parsed. Clients prepared by this
+     * builder share the executor, which belongs to the caller to shut down.
+     * By default all clients share one pool of daemon threads, one per
+     * processor.
+     */
+    AuthBuilder parseExecutor(ExecutorService parsePool, int maxQueued);
+
     MailClient prepare(Auth authType, String username, String password);
 
 
@@ -172,6 +172,18 @@ public interface MailClient {
    */
   public ListenableFuture<List<Message>> fetch(Folder folder, int start, int end);
 
+  /**
+   * Streaming form of {@link #fetch(Folder, int, int)}, for large ranges. Each
+   * message is handed to the given listener as soon as it has been read, and
+   * is not kept by the client. Messages are fetched a window at a time, so
+   * memory use stays flat however big the range is.
+   * <p>
+   * <b>NOTE: you must call {@link #open(String)} first.</b>
+   *
+   * @return The number of messages delivered, once all have been.
+   */
+  ListenableFuture<Integer> stream(Folder folder, int start, int end, MessageListener listener);
+
   /**
    * Watches a folder for changes. This is an implementation of the IMAP IDLE command and
    * is the preferred method for push notification.
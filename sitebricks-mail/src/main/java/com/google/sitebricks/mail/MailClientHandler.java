@@ -1,13 +1,12 @@
 package com.google.sitebricks.mail;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Preconditions;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.sitebricks.mail.imap.ImapResponse;
 import com.google.sitebricks.util.BoundedDiscardingList;
 import com.google.sitebricks.util.JmxUtil;
 import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.channel.ExceptionEvent;
 import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.channel.SimpleChannelHandler;
@@ -56,6 +55,7 @@ class MailClientHandler extends SimpleChannelHandler {
 
   private final Idler idler;
   private final MailClientConfig config;
+  private final ResponseParser.ConnectionQueue parser;
 
   private final CountDownLatch loginSuccess = new CountDownLatch(1);
   private volatile List<String> capabilities;
@@ -68,21 +68,25 @@ class MailClientHandler extends SimpleChannelHandler {
   private volatile boolean halt = false;
 
   private final LinkedBlockingDeque<Error> errorStack = new LinkedBlockingDeque<Error>();
-  private final Queue<CommandCompletion> completions =
-      new ConcurrentLinkedQueue<CommandCompletion>();
+  // In-flight commands by tag (sequence number). Several may be pipelined at once.
+  private final ConcurrentNavigableMap<Long, CommandCompletion> completions =
+      new ConcurrentSkipListMap<Long, CommandCompletion>();
   private volatile PushedData pushedData;
 
   private final BoundedDiscardingList<String> commandTrace = new BoundedDiscardingList<String>(10);
   private final BoundedDiscardingList<String> wireTrace = new BoundedDiscardingList<String>(25);
   private final MBeanRegistration mBeanRegistration;
-  private final InputBuffer inputBuffer = new InputBuffer();
 
 
-  public MailClientHandler(Idler idler, MailClientConfig config) {
+  public MailClientHandler(Idler idler, MailClientConfig config, ResponseParser parser,
+                           boolean jmx) {
     this.idler = idler;
     this.config = config;
-    mBeanRegistration = JmxUtil.registerMBean(this, "com.google.sitebricks", "MailClientHandler",
-        config.getUsername());
+    this.parser = parser.newQueue();
+    mBeanRegistration = jmx
+        ? JmxUtil.registerMBean(this, "com.google.sitebricks", "MailClientHandler",
+            config.getUsername())
+        : null;
   }
 
   // For debugging, use with caution!
@@ -128,19 +132,26 @@ class MailClientHandler extends SimpleChannelHandler {
 
   // DO NOT synchronize!
   public void enqueue(CommandCompletion completion) {
-    completions.add(completion);
+    completions.put(completion.getSequence(), completion);
     commandTrace.add(new Date().toString() + " " + completion.toString());
   }
 
+  @Override
+  public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+    // So that a backed up parser can stop us reading.
+    parser.bind(e.getChannel());
+    super.channelConnected(ctx, e);
+  }
+
   @Override
   public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
-    String message = e.getMessage().toString();
-    for (String input : inputBuffer.processMessage(message)) {
-      processMessage(input);
-    }
+    processMessage((ImapResponse) e.getMessage());
   }
 
-  private void processMessage(String message) throws Exception {
+  @VisibleForTesting
+  void processMessage(ImapResponse response) throws Exception {
+    // Status and push notifications never carry literals, so their line is all there is.
+    String message = response.line();
     Boolean toStdOut = logAllMessagesForUsers.get(config.getUsername());
     if (toStdOut != null) {
       if (toStdOut)
@@ -149,8 +160,8 @@ class MailClientHandler extends SimpleChannelHandler {
         log.info("IMAPrcv[{}]: {}", config.getUsername(), message);
     }
 
-    wireTrace.add(message);
-    log.trace(message);
+    wireTrace.add(response.toString());
+    log.trace("{}", response);
     if (SYSTEM_ERROR_REGEX.matcher(message).matches()
         || ". NO [ALERT] Account exceeded command or bandwidth limits. (Failure)".equalsIgnoreCase(
         message.trim())) {
@@ -235,11 +246,11 @@ class MailClientHandler extends SimpleChannelHandler {
         }
       }
 
-      complete(message);
+      complete(response);
     } catch (Exception ex) {
-      CommandCompletion completion = completions.poll();
+      CommandCompletion completion = remove(ownerOf(message));
       if (completion != null)
-        completion.error(message, ex);
+        completion.error(message, ex, parser);
       else {
         log.error("Strange exception during mail processing (no completions available!): {}",
             message, ex);
@@ -253,7 +264,7 @@ class MailClientHandler extends SimpleChannelHandler {
     try {
       halt();
       // Disconnect abnormally. The user code should reconnect using the mail client.
-      errorStack.push(new Error(completions.poll(), message, wireTrace.list()));
+      errorStack.push(new Error(remove(oldest()), message, wireTrace.list()));
 
       idler.disconnectAsync();
     } finally {
@@ -266,9 +277,10 @@ class MailClientHandler extends SimpleChannelHandler {
   }
 
   /**
-   * This is synchronized to ensure that we process the queue serially.
+   * This is synchronized to ensure that we process responses serially.
    */
-  private synchronized void complete(String message) {
+  private synchronized void complete(ImapResponse response) {
+    String message = response.line();
     // This is a weird problem with writing stuff while idling. Need to investigate it more, but
     // for now just ignore it.
     if (MESSAGE_COULDNT_BE_FETCHED_REGEX.matcher(message).matches()) {
@@ -278,19 +290,22 @@ class MailClientHandler extends SimpleChannelHandler {
           getCommandTrace(),
           getWireTrace()
       });
-      errorStack.push(new Error(completions.peek(), message, wireTrace.list()));
-      final CommandCompletion completion = completions.peek();
+      final CommandCompletion completion = ownerOf(message);
+      errorStack.push(new Error(completion, message, wireTrace.list()));
       String errorMsg = "Some messages in the batch could not be fetched for user " + config.getUsername();
       RuntimeException ex = new RuntimeException(errorMsg);
       if (completion != null) {
-        completion.error(errorMsg, new MailHandlingException(getWireTrace(), errorMsg, ex));
-        completions.poll();
+        completion.error(errorMsg, new MailHandlingException(getWireTrace(), errorMsg, ex),
+            parser);
+        remove(completion);
+        // The tagged NO completes the command, so it is nobody else's.
+        return;
       } else {
         throw ex;
       }
     }
 
-    CommandCompletion completion = completions.peek();
+    CommandCompletion completion = ownerOf(message);
     if (completion == null) {
       if ("+ idling".equalsIgnoreCase(message)) {
         synchronized (idleMutex) {
@@ -305,9 +320,62 @@ class MailClientHandler extends SimpleChannelHandler {
       return;
     }
 
-    if (completion.complete(message)) {
-      completions.poll();
+    if (completion.complete(response, parser)) {
+      remove(completion);
+    }
+  }
+
+  /**
+   * Tagged responses belong to the command with that tag. Untagged ones that
+   * say what they are about (STATUS) go to the command that asked; the rest to
+   * the oldest command still in flight. Servers only process pipelined commands
+   * concurrently when their untagged data can't be confused (RFC 3501, section
+   * 5.5), so anything else untagged arriving now is the oldest's.
+   */
+  private CommandCompletion ownerOf(String message) {
+    Long tag = tagOf(message);
+    if (null != tag) {
+      return completions.get(tag);
+    }
+
+    if (completions.size() > 1 && null != CommandCompletion.statusMailbox(message)) {
+      for (CommandCompletion completion : completions.values()) {
+        if (completion.claims(message)) {
+          return completion;
+        }
+      }
     }
+    return oldest();
+  }
+
+  private CommandCompletion oldest() {
+    Map.Entry<Long, CommandCompletion> oldest = completions.firstEntry();
+    return null == oldest ? null : oldest.getValue();
+  }
+
+  private CommandCompletion remove(CommandCompletion completion) {
+    if (completion != null)
+      completions.remove(completion.getSequence());
+    return completion;
+  }
+
+  /**
+   * @return The numeric tag that starts a tagged response, or null if the
+   *    response is untagged ({@code *}), a continuation ({@code +}) or has
+   *    some other tag (such as the {@code .} used for login).
+   */
+  static Long tagOf(String message) {
+    int space = message.indexOf(' ');
+    // Longer than any sequence we will ever issue.
+    if (space <= 0 || space > 18) {
+      return null;
+    }
+    for (int i = 0; i < space; i++) {
+      if (!Character.isDigit(message.charAt(i))) {
+        return null;
+      }
+    }
+    return Long.valueOf(message.substring(0, space));
   }
 
   @Override
@@ -364,7 +432,8 @@ class MailClientHandler extends SimpleChannelHandler {
   }
 
   public void disconnected() {
-    JmxUtil.unregister(mBeanRegistration);
+    if (null != mBeanRegistration)
+      JmxUtil.unregister(mBeanRegistration);
   }
 
   static class Error implements MailClient.WireError {
@@ -406,27 +475,4 @@ class MailClientHandler extends SimpleChannelHandler {
       return sout.toString();
     }
   }
-
-  @VisibleForTesting
-  static class InputBuffer {
-    volatile private StringBuilder buffer = new StringBuilder();
-
-    @VisibleForTesting
-    List<String> processMessage(String message) {
-      // Nuke all CR characters, and we'll only count LF.
-      message = message.replaceAll("\r", "");
-      // Split leaves a trailing empty line if there's a terminating newline.
-      ArrayList<String> split = Lists.newArrayList(message.split("\n", -1));
-      Preconditions.checkArgument(split.size() > 0);
-
-      synchronized (this) {
-        buffer.append(split.get(0));
-        if (split.size() == 1) // no newlines.
-          return ImmutableList.of();
-        split.set(0, buffer.toString());
-        buffer = new StringBuilder().append(split.remove(split.size() - 1));
-      }
-      return split;
-    }
-  }
 }
@@ -1,10 +1,10 @@
 package com.google.sitebricks.mail;
 
 import com.google.sitebricks.mail.Mail.Auth;
+import com.google.sitebricks.mail.imap.ImapFrameDecoder;
 import org.jboss.netty.channel.ChannelPipeline;
 import org.jboss.netty.channel.ChannelPipelineFactory;
 import org.jboss.netty.channel.Channels;
-import org.jboss.netty.handler.codec.string.StringDecoder;
 import org.jboss.netty.handler.codec.string.StringEncoder;
 import org.jboss.netty.handler.ssl.SslHandler;
 
@@ -35,7 +35,8 @@ class MailClientPipelineFactory implements ChannelPipelineFactory {
       pipeline.addLast("ssl", sslHandler);
     }
 
-    pipeline.addLast("decoder", new StringDecoder());
+    // Frames whole responses, reading literals by length (not line by line).
+    pipeline.addLast("decoder", new ImapFrameDecoder());
     pipeline.addLast("encoder", new StringEncoder());
 
     // and then business logic.
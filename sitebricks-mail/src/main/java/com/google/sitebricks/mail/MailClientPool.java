@@ -0,0 +1,398 @@
+package com.google.sitebricks.mail;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.sitebricks.mail.Mail.Auth;
+import com.google.sitebricks.mail.imap.Folder;
+import com.google.sitebricks.mail.oauth.OAuthConfig;
+import com.google.sitebricks.util.JmxUtil;
+import org.jboss.netty.channel.socket.ClientSocketChannelFactory;
+import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.softee.management.annotation.MBean;
+import org.softee.management.annotation.ManagedAttribute;
+import org.softee.management.helper.MBeanRegistration;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the IMAP connections of many accounts on one set of Netty threads and
+ * one response parser, rather than each client bringing its own.
+ * <ul>
+ *   <li>No more than a fixed number of connections are open to any one host.</li>
+ *   <li>Connections that drop are reconnected after an exponential backoff
+ *   with random jitter (so that thousands of accounts dropped by the same
+ *   outage don't all come back at once). A folder that was being watched is
+ *   opened and watched again.</li>
+ *   <li>Idle (watching) connections cost only their socket: they are served
+ *   by the shared Netty threads and share a single reconnect scheduler.</li>
+ *   <li>Clients in the pool register no MBeans of their own; the pool reports
+ *   on all of them together.</li>
+ * </ul>
+ * For example:
+ * <pre>
+ *   MailClientPool pool = new MailClientPool(10);
+ *   MailClientPool.Account account = pool.account("imap.gmail.com", 993, Auth.SSL, user, pass);
+ *   if (account.connect(null))
+ *     account.watch("INBOX", observer);
+ * </pre>
+ */
+@MBean
+public class MailClientPool {
+  private static final Logger log = LoggerFactory.getLogger(MailClientPool.class);
+
+  static final long INITIAL_BACKOFF_MILLIS = 1000L;
+  static final long MAX_BACKOFF_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+  // Most threads the default scheduler gives to reconnects that are under way.
+  static final int MAX_DEFAULT_RECONNECT_THREADS = 32;
+
+  // How long an account waits for its watched folder to open.
+  static final long OPEN_TIMEOUT_SECONDS = 30L;
+
+  private final ClientSocketChannelFactory channelFactory;
+  private final ExecutorService workerPool;
+  private final ResponseParser parser;
+  private final ScheduledExecutorService scheduler;
+  private final int maxConnectionsPerHost;
+
+  private final ConcurrentMap<String, Semaphore> hosts = new ConcurrentHashMap<String, Semaphore>();
+  private final Set<Account> accounts =
+      Collections.newSetFromMap(new ConcurrentHashMap<Account, Boolean>());
+  private final Random random = new Random();
+
+  private final AtomicLong reconnects = new AtomicLong();
+  private final AtomicLong failedConnects = new AtomicLong();
+  private final AtomicLong rejectedConnects = new AtomicLong();
+  private final MBeanRegistration mBeanRegistration;
+
+  /**
+   * Reconnects run on as many threads as may reconnect to one host at once
+   * (at most 32), so a host that is slow to log in again doesn't hold up
+   * accounts elsewhere.
+   */
+  public MailClientPool(int maxConnectionsPerHost) {
+    this(Executors.newCachedThreadPool(), Executors.newCachedThreadPool(),
+        ResponseParser.newDefaultExecutor(),
+        Executors.newScheduledThreadPool(
+            Math.max(1, Math.min(maxConnectionsPerHost, MAX_DEFAULT_RECONNECT_THREADS))),
+        maxConnectionsPerHost);
+  }
+
+  /**
+   * All of the given executors belong to the pool from now on, and are shut
+   * down with it.
+   *
+   * @param scheduler Runs reconnects, which block until the client has logged
+   *    in and reopened its watched folder, so size it by how many accounts
+   *    may reconnect at once.
+   */
+  public MailClientPool(ExecutorService bossPool,
+                        ExecutorService workerPool,
+                        ExecutorService parsePool,
+                        ScheduledExecutorService scheduler,
+                        int maxConnectionsPerHost) {
+    Preconditions.checkArgument(maxConnectionsPerHost > 0,
+        "Must allow at least one connection per host");
+    this.channelFactory = new NioClientSocketChannelFactory(bossPool, workerPool);
+    this.workerPool = workerPool;
+    this.scheduler = scheduler;
+    this.maxConnectionsPerHost = maxConnectionsPerHost;
+    this.parser = new ResponseParser(parsePool, ResponseParser.DEFAULT_MAX_QUEUED, "pool");
+    mBeanRegistration = JmxUtil.registerMBean(this, "com.google.sitebricks.mail", "MailClientPool",
+        "pool");
+  }
+
+  public Account account(String host, int port, Auth authType, String username, String password) {
+    Preconditions.checkArgument(authType != Auth.OAUTH, "Please use oauthAccount() instead.");
+    return account(new MailClientConfig(host, port, authType, username, password, 0L));
+  }
+
+  public Account oauthAccount(String host, int port, String username, OAuthConfig config) {
+    return account(new MailClientConfig(host, port, username, config, 0L));
+  }
+
+  private Account account(MailClientConfig config) {
+    Account account = new Account(config,
+        new NettyImapClient(config, channelFactory, workerPool, parser, false));
+    accounts.add(account);
+    return account;
+  }
+
+  /**
+   * Closes every account and releases all threads, including the executors
+   * the pool was given.
+   */
+  public void shutdown() {
+    for (Account account : accounts) {
+      account.close();
+    }
+    scheduler.shutdownNow();
+    parser.shutdown();
+    channelFactory.releaseExternalResources();
+    if (null != mBeanRegistration)
+      JmxUtil.unregister(mBeanRegistration);
+  }
+
+  @ManagedAttribute
+  public int getAccounts() {
+    return accounts.size();
+  }
+
+  @ManagedAttribute
+  public int getConnections() {
+    int connections = 0;
+    for (Account account : accounts) {
+      if (account.connected.get())
+        connections++;
+    }
+    return connections;
+  }
+
+  @ManagedAttribute
+  public int getIdling() {
+    int idling = 0;
+    for (Account account : accounts) {
+      if (account.client.isIdling())
+        idling++;
+    }
+    return idling;
+  }
+
+  @ManagedAttribute
+  public List<String> getConnectionsByHost() {
+    List<String> byHost = Lists.newArrayList();
+    for (Map.Entry<String, Semaphore> host : new TreeMap<String, Semaphore>(hosts).entrySet()) {
+      byHost.add(host.getKey() + ": "
+          + (maxConnectionsPerHost - host.getValue().availablePermits()));
+    }
+    return byHost;
+  }
+
+  @ManagedAttribute
+  public int getMaxConnectionsPerHost() {
+    return maxConnectionsPerHost;
+  }
+
+  @ManagedAttribute
+  public long getReconnects() {
+    return reconnects.get();
+  }
+
+  @ManagedAttribute
+  public long getFailedConnects() {
+    return failedConnects.get();
+  }
+
+  /**
+   * @return Connects that were refused because the host was at its limit.
+   */
+  @ManagedAttribute
+  public long getRejectedConnects() {
+    return rejectedConnects.get();
+  }
+
+  Semaphore permitsFor(String host) {
+    Semaphore permits = hosts.get(host);
+    if (null == permits) {
+      Semaphore created = new Semaphore(maxConnectionsPerHost);
+      permits = hosts.putIfAbsent(host, created);
+      if (null == permits)
+        permits = created;
+    }
+    return permits;
+  }
+
+  /**
+   * "Full jitter": anywhere from nothing up to an exponentially growing cap.
+   */
+  static long backoff(int attempt, Random random) {
+    long cap = INITIAL_BACKOFF_MILLIS << Math.min(attempt, 20);
+    return (long) (random.nextDouble() * Math.min(MAX_BACKOFF_MILLIS, cap));
+  }
+
+  /**
+   * One account's connection in the pool. Use {@link #client()} for mail
+   * operations, but connect, watch and close through here so the pool can
+   * restore the connection if it drops.
+   */
+  public class Account implements MailClient.DisconnectListener {
+    private final MailClientConfig config;
+    private final NettyImapClient client;
+    private final AtomicBoolean connected = new AtomicBoolean();
+    private final AtomicInteger attempts = new AtomicInteger();
+    private volatile MailClient.DisconnectListener listener;
+    private volatile boolean connecting;
+    private volatile boolean closed;
+
+    // What to watch again after reconnecting.
+    private volatile String watchedFolder;
+    private volatile FolderObserver observer;
+
+    private Account(MailClientConfig config, NettyImapClient client) {
+      this.config = config;
+      this.client = client;
+    }
+
+    public MailClient client() {
+      return client;
+    }
+
+    /**
+     * Connects and logs in, like {@link MailClient#connect(MailClient.DisconnectListener)}.
+     * From now on, until {@link #close()}, the connection is restored if it drops.
+     *
+     * @return False if the host is at its connection limit or login failed.
+     */
+    public boolean connect(MailClient.DisconnectListener listener) {
+      Preconditions.checkState(!closed, "Account has been closed");
+      this.listener = listener;
+      return tryConnect();
+    }
+
+    /**
+     * Opens and watches the given folder, and does so again after any
+     * reconnect. Gives up with a {@link java.util.concurrent.TimeoutException}
+     * if the folder takes longer than 30 seconds to open.
+     */
+    public void watch(String folder, FolderObserver observer) throws Exception {
+      this.watchedFolder = folder;
+      this.observer = observer;
+      resumeWatching();
+    }
+
+    public void unwatch() {
+      watchedFolder = null;
+      observer = null;
+      client.unwatch();
+    }
+
+    public synchronized void close() {
+      closed = true;
+      accounts.remove(this);
+      if (connected.get())
+        client.disconnect();
+    }
+
+    private synchronized boolean tryConnect() {
+      if (closed || connected.get())
+        return connected.get();
+
+      Semaphore permits = permitsFor(config.getHost());
+      if (!permits.tryAcquire()) {
+        rejectedConnects.incrementAndGet();
+        log.warn("Not connecting {}, {} already has {} connections", new Object[] {
+            config.getUsername(), config.getHost(), maxConnectionsPerHost });
+        return false;
+      }
+
+      boolean success = false;
+      connecting = true;
+      connected.set(true);
+      try {
+        success = client.connect(this);
+      } catch (RuntimeException e) {
+        log.warn("Could not connect {} to {}", new Object[] { config.getUsername(),
+            config.getHost(), e });
+      } finally {
+        if (!success) {
+          failedConnects.incrementAndGet();
+          // Login may have failed on an open channel, so close it.
+          if (client.isConnected() || connected.get())
+            client.disconnect();
+          if (connected.compareAndSet(true, false))
+            permits.release();
+        }
+        connecting = false;
+      }
+
+      if (success)
+        attempts.set(0);
+      return success;
+    }
+
+    private void resumeWatching() throws Exception {
+      String folderName = watchedFolder;
+      FolderObserver observer = this.observer;
+      if (null != folderName && null != observer) {
+        Folder folder = client.open(folderName).get(OPEN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        client.watch(folder, observer);
+      }
+    }
+
+    private void scheduleReconnect() {
+      long delay = backoff(attempts.getAndIncrement(), random);
+      log.info("Reconnecting {} in {}ms", config.getUsername(), delay);
+      scheduler.schedule(new Runnable() {
+        @Override
+        public void run() {
+          if (closed)
+            return;
+
+          reconnects.incrementAndGet();
+          if (!tryConnect()) {
+            scheduleReconnect();
+            return;
+          }
+
+          try {
+            resumeWatching();
+          } catch (Exception e) {
+            log.warn("Reconnected {} but could not watch {} again", new Object[] {
+                config.getUsername(), watchedFolder, e });
+          }
+        }
+      }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void disconnected() {
+      // Netty's close listener and disconnect() may both tell us.
+      if (!connected.compareAndSet(true, false))
+        return;
+      permitsFor(config.getHost()).release();
+
+      MailClient.DisconnectListener listener = this.listener;
+      if (null != listener)
+        listener.disconnected();
+
+      if (!closed && !connecting)
+        scheduleReconnect();
+    }
+
+    @Override
+    public void idled() {
+      MailClient.DisconnectListener listener = this.listener;
+      if (null != listener)
+        listener.idled();
+    }
+
+    @Override
+    public void unidled() {
+      MailClient.DisconnectListener listener = this.listener;
+      if (null != listener)
+        listener.unidled();
+    }
+
+    @Override
+    public String toString() {
+      return config.getUsername() + "@" + config.getHost();
+    }
+  }
+}
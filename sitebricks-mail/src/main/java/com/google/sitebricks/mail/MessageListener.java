@@ -0,0 +1,18 @@
+package com.google.sitebricks.mail;
+
+import com.google.sitebricks.mail.imap.Message;
+
+/**
+ * Receives messages one at a time as they are streamed from the server. See
+ * {@link MailClient#stream(com.google.sitebricks.mail.imap.Folder, int, int, MessageListener)}.
+ */
+public interface MessageListener {
+  /**
+   * Called with each message as soon as it has been read, in the order the
+   * server sent them. This is {@link Message#ERROR} for a message that could
+   * not be parsed.
+   * <p>
+   * Called on the client's parse executor, so do not block here for long.
+   */
+  void message(Message message);
+}
@@ -3,6 +3,7 @@ package com.google.sitebricks.mail;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
 import com.google.sitebricks.mail.imap.*;
 import com.google.sitebricks.mail.oauth.OAuthConfig;
@@ -13,6 +14,7 @@ import org.jboss.netty.bootstrap.ClientBootstrap;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.channel.socket.ClientSocketChannelFactory;
 import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,6 +29,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -37,11 +40,16 @@ public class NettyImapClient implements MailClient, Idler {
   private static final Logger log = LoggerFactory.getLogger(NettyImapClient.class);
   private static final SimpleDateFormat SINCE_FORMAT = new SimpleDateFormat("dd-MMM-yyyy");
 
+  // How many messages stream() fetches at a time.
+  static final int STREAM_WINDOW = 50;
+
   // For debugging, use with caution!
   private static final Map<String, Boolean> logAllMessagesForUsers = new ConcurrentHashMap<String, Boolean>();
 
   private final ExecutorService workerPool;
-  private final ExecutorService bossPool;
+  private final ClientSocketChannelFactory channelFactory;
+  private final boolean jmx;
+  private final ResponseParser parser;
 
   private final MailClientConfig config;
 
@@ -51,25 +59,56 @@ public class NettyImapClient implements MailClient, Idler {
 
   // State variables:
   private final AtomicLong sequence = new AtomicLong();
+
+  // Held while a tag is allocated and its command written, so tags go out in order.
+  private final Object writeLock = new Object();
   private volatile Channel channel;
   private volatile Folder currentFolder = null;
   private volatile DisconnectListener disconnectListener;
   private final MBeanRegistration mBeanRegistration;
 
+  /**
+   * A client on Netty threads of its own. Prefer {@link Mail} or
+   * {@link MailClientPool}, which share threads among their clients.
+   */
   public NettyImapClient(MailClientConfig config,
                          ExecutorService bossPool,
                          ExecutorService workerPool) {
+    this(config, new NioClientSocketChannelFactory(bossPool, workerPool), workerPool,
+        DefaultParser.INSTANCE, true);
+  }
+
+  /**
+   * @param channelFactory Shared by all clients, so they share Netty's threads.
+   * @param jmx If false, this client and its connections register no MBeans of
+   *    their own (pools report on all their connections together instead).
+   */
+  NettyImapClient(MailClientConfig config,
+                         ClientSocketChannelFactory channelFactory,
+                         ExecutorService workerPool,
+                         ResponseParser parser,
+                         boolean jmx) {
     this.workerPool = workerPool;
-    this.bossPool = bossPool;
+    this.channelFactory = channelFactory;
+    this.parser = parser;
     this.config = config;
-    mBeanRegistration = JmxUtil.registerMBean(this, "com.google.sitebricks.mail", "NettyImapClient",
-        config.getUsername());
+    this.jmx = jmx;
+    mBeanRegistration = jmx
+        ? JmxUtil.registerMBean(this, "com.google.sitebricks.mail", "NettyImapClient",
+            config.getUsername())
+        : null;
   }
 
   static {
     System.setProperty("mail.mime.decodetext.strict", "false");
   }
 
+  // Parses for clients that were not given an executor to parse on, created on first use.
+  static class DefaultParser {
+    static final ResponseParser INSTANCE = new ResponseParser(
+        ResponseParser.newDefaultExecutor(), ResponseParser.DEFAULT_MAX_QUEUED, "default");
+  }
+
   // For debugging, use with caution!
   public static void addUserForVerboseOutput(String username, boolean toStdOut) {
     logAllMessagesForUsers.put(username, toStdOut);
@@ -101,11 +140,11 @@ public class NettyImapClient implements MailClient, Idler {
       mailClientHandler.disconnected();
     }
 
-    this.mailClientHandler = new MailClientHandler(this, config);
+    this.mailClientHandler = new MailClientHandler(this, config, parser, jmx);
     MailClientPipelineFactory pipelineFactory =
         new MailClientPipelineFactory(mailClientHandler, config);
 
-    this.bootstrap = new ClientBootstrap(new NioClientSocketChannelFactory(bossPool, workerPool));
+    this.bootstrap = new ClientBootstrap(channelFactory);
     this.bootstrap.setPipelineFactory(pipelineFactory);
 
     // Reset state (helps if this is a reconnect).
@@ -218,7 +257,8 @@ public class NettyImapClient implements MailClient, Idler {
   @Override
   public synchronized void disconnect() {
     try {
-      JmxUtil.unregister(mBeanRegistration);
+      if (null != mBeanRegistration)
+        JmxUtil.unregister(mBeanRegistration);
       // If there is an error with the handler, dont bother logging out.
       if (!mailClientHandler.isHalted()) {
         if (mailClientHandler.idleRequested.get()) {
@@ -250,13 +290,30 @@ public class NettyImapClient implements MailClient, Idler {
     }
   }
 
+  /**
+   * Sends a command without waiting for those before it to complete. Responses
+   * are matched to their commands by tag, so any number of independent commands
+   * (say, STATUS of several folders) can be pipelined on one connection.
+   */
   <D> ChannelFuture send(Command command, String args, SettableFuture<D> valueFuture) {
-    Long seq = sequence.incrementAndGet();
+    synchronized (writeLock) {
+      Long seq = sequence.incrementAndGet();
+      String commandString = toCommandString(seq, command, args);
+      return write(commandString, new CommandCompletion(command, seq, valueFuture, commandString));
+    }
+  }
 
-    String commandString = seq + " " + command.toString()
+  private static String toCommandString(Long seq, Command command, String args) {
+    return seq + " " + command.toString()
         + (null == args ? "" : " " + args)
         + "\r\n";
+  }
 
+  /**
+   * Must be called holding {@link #writeLock}, with the tag just allocated,
+   * or a later tag could reach the server first.
+   */
+  private ChannelFuture write(String commandString, CommandCompletion completion) {
     // Log the command but clip the \r\n
     log.debug("Sending {} to server...", commandString.substring(0, commandString.length() - 2));
     Boolean toStdOut = logAllMessagesForUsers.get(config.getUsername());
@@ -267,8 +324,8 @@ public class NettyImapClient implements MailClient, Idler {
         log.info("IMAPsnd[{}]: {}", config.getUsername(), commandString.substring(0, commandString.length() - 2));
     }
 
-    // Enqueue command.
-    mailClientHandler.enqueue(new CommandCompletion(command, seq, valueFuture, commandString));
+    // Enqueue command, before it is written so its response can't arrive first.
+    mailClientHandler.enqueue(completion);
 
 
     return channel.write(commandString);
@@ -565,6 +622,71 @@ public class NettyImapClient implements MailClient, Idler {
     return valueFuture;
   }
 
+  @Override
+  public ListenableFuture<Integer> stream(Folder folder, int start, int end,
+                                         MessageListener listener) {
+    Preconditions.checkState(mailClientHandler.isLoggedIn(),
+        "Can't execute command because client is not logged in");
+    Preconditions.checkState(!mailClientHandler.idleRequested.get(),
+        "Can't execute command while idling (are you watching a folder?)");
+
+    checkCurrentFolder(folder);
+    checkRange(start, end);
+    Preconditions.checkArgument(start > 0, "Start must be greater than zero (IMAP uses 1-based " +
+        "indexing)");
+    Preconditions.checkArgument(listener != null, "Must specify a message listener");
+    SettableFuture<Integer> valueFuture = SettableFuture.create();
+
+    streamWindow(folder, start, end, listener, new AtomicInteger(), valueFuture);
+
+    return valueFuture;
+  }
+
+  // Fetches the next STREAM_WINDOW messages, and only when they are done, the
+  // window after that. So memory use doesn't grow with the size of the range.
+  private void streamWindow(final Folder folder,
+                            final int start,
+                            final int end,
+                            final MessageListener listener,
+                            final AtomicInteger delivered,
+                            final SettableFuture<Integer> valueFuture) {
+    final int windowEnd = start + STREAM_WINDOW - 1;
+    final boolean lastWindow = windowEnd >= (end > 0 ? end : folder.getCount());
+
+    final SettableFuture<List<Message>> windowFuture = SettableFuture.create();
+    windowFuture.addListener(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          // Every message in the window has been delivered by now.
+          windowFuture.get();
+          if (lastWindow)
+            valueFuture.set(delivered.get());
+          else if (mailClientHandler.idleRequested.get())
+            valueFuture.setException(new IllegalStateException(
+                "Stopped streaming messages at " + (windowEnd + 1) + " as the client is idling"));
+          else
+            streamWindow(folder, windowEnd + 1, end, listener, delivered, valueFuture);
+        } catch (InterruptedException e) {
+          log.error("Interrupted while streaming messages", e);
+          valueFuture.setException(e);
+        } catch (ExecutionException e) {
+          log.error("Execution exception while streaming messages", e);
+          valueFuture.setException(e.getCause());
+        }
+      }
+    }, MoreExecutors.sameThreadExecutor());
+
+    String args = start + ":" + (lastWindow ? toUpperBound(end) : Integer.toString(windowEnd))
+        + " (uid body[])";
+    synchronized (writeLock) {
+      Long seq = sequence.incrementAndGet();
+      String commandString = toCommandString(seq, Command.FETCH_BODY, args);
+      write(commandString, new StreamingCompletion(Command.FETCH_BODY, seq, windowFuture,
+          commandString, listener, delivered));
+    }
+  }
+
   @Override
   public ListenableFuture<Message> fetchUid(Folder folder, int uid) {
     Preconditions.checkState(mailClientHandler.isLoggedIn(), "Can't execute command because client is not logged in");
@@ -590,7 +712,9 @@ public class NettyImapClient implements MailClient, Idler {
     // This MUST happen in the following order, otherwise send() may trigger a new mail event
     // before we've registered the folder observer.
     mailClientHandler.observe(observer);
-    channel.write(sequence.incrementAndGet() + " idle\r\n");
+    synchronized (writeLock) {
+      channel.write(sequence.incrementAndGet() + " idle\r\n");
+    }
   }
 
   @Override
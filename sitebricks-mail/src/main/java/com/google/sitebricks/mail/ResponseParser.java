@@ -0,0 +1,256 @@
+package com.google.sitebricks.mail;
+
+import com.google.sitebricks.util.JmxUtil;
+import org.jboss.netty.channel.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.softee.management.annotation.MBean;
+import org.softee.management.annotation.ManagedAttribute;
+import org.softee.management.helper.MBeanRegistration;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs the extraction of completed responses (MIME parsing and the like) on
+ * its own executor, so that a large fetch does not hold up the Netty worker
+ * thread and with it every other connection that shares the worker.
+ * <p>
+ * Each connection gets a {@link ConnectionQueue} of its own, whose work runs strictly
+ * in order, one piece at a time, so commands still complete in the order
+ * that their responses arrived. When more responses are waiting than the
+ * configured bound, the connection that is adding to the backlog stops
+ * reading from its socket until its own queue has drained.
+ */
+@MBean
+class ResponseParser {
+  private static final Logger log = LoggerFactory.getLogger(ResponseParser.class);
+
+  static final int DEFAULT_MAX_QUEUED = 100;
+
+  private final ExecutorService executor;
+  private final int maxQueued;
+
+  private final AtomicInteger depth = new AtomicInteger();
+  private final AtomicInteger maxDepth = new AtomicInteger();
+  private final AtomicLong parsed = new AtomicLong();
+  private final AtomicLong parseNanos = new AtomicLong();
+  private final AtomicLong maxParseNanos = new AtomicLong();
+  private final AtomicLong waitNanos = new AtomicLong();
+  private final AtomicLong pausedReads = new AtomicLong();
+  private final MBeanRegistration mBeanRegistration;
+
+  ResponseParser(ExecutorService executor, int maxQueued, String name) {
+    this.executor = executor;
+    this.maxQueued = maxQueued;
+    mBeanRegistration = JmxUtil.registerMBean(this, "com.google.sitebricks.mail", "ResponseParser",
+        name);
+  }
+
+  /**
+   * @return A pool with a thread per processor. Its threads are daemons, so an
+   *    application that never shuts the parser down can still exit.
+   */
+  static ExecutorService newDefaultExecutor() {
+    return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+        new ThreadFactory() {
+          private final AtomicInteger count = new AtomicInteger();
+
+          @Override
+          public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable,
+                "sitebricks-mail-parser-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+  }
+
+  ConnectionQueue newQueue() {
+    return new ConnectionQueue();
+  }
+
+  /**
+   * @return The number of responses waiting to be, or being, parsed across
+   *    all connections.
+   */
+  @ManagedAttribute
+  public int getQueueDepth() {
+    return depth.get();
+  }
+
+  @ManagedAttribute
+  public int getMaxQueueDepth() {
+    return maxDepth.get();
+  }
+
+  @ManagedAttribute
+  public int getMaxQueued() {
+    return maxQueued;
+  }
+
+  @ManagedAttribute
+  public long getParsedCount() {
+    return parsed.get();
+  }
+
+  @ManagedAttribute
+  public double getMeanParseMillis() {
+    return meanMillis(parseNanos.get());
+  }
+
+  @ManagedAttribute
+  public double getMaxParseMillis() {
+    return maxParseNanos.get() / 1000000.0;
+  }
+
+  /**
+   * @return Average time a response waited in its queue before it was parsed.
+   */
+  @ManagedAttribute
+  public double getMeanWaitMillis() {
+    return meanMillis(waitNanos.get());
+  }
+
+  /**
+   * @return How many times a connection stopped reading because the parser
+   *    was backed up.
+   */
+  @ManagedAttribute
+  public long getPausedReads() {
+    return pausedReads.get();
+  }
+
+  private double meanMillis(long totalNanos) {
+    long count = parsed.get();
+    return count == 0 ? 0.0 : totalNanos / (count * 1000000.0);
+  }
+
+  void shutdown() {
+    JmxUtil.unregister(mBeanRegistration);
+    executor.shutdown();
+  }
+
+  private void record(long queuedAt, long startedAt, long finishedAt) {
+    depth.decrementAndGet();
+    parsed.incrementAndGet();
+    waitNanos.addAndGet(startedAt - queuedAt);
+
+    long took = finishedAt - startedAt;
+    parseNanos.addAndGet(took);
+    for (long max = maxParseNanos.get(); took > max; max = maxParseNanos.get()) {
+      if (maxParseNanos.compareAndSet(max, took))
+        break;
+    }
+  }
+
+  private void enqueued() {
+    int current = depth.incrementAndGet();
+    for (int max = maxDepth.get(); current > max; max = maxDepth.get()) {
+      if (maxDepth.compareAndSet(max, current))
+        break;
+    }
+  }
+
+  /**
+   * The work of a single connection, run in order.
+   */
+  class ConnectionQueue implements Runnable {
+    private final Queue<Job> jobs = new ConcurrentLinkedQueue<Job>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicReference<Channel> paused = new AtomicReference<Channel>();
+    private volatile Channel channel;
+
+    void bind(Channel channel) {
+      this.channel = channel;
+    }
+
+    void submit(Runnable work) {
+      pending.incrementAndGet();
+      enqueued();
+
+      // Pause before the job becomes visible, so it can't finish and miss the resume.
+      Channel channel = this.channel;
+      if (depth.get() > maxQueued && null != channel && channel.isReadable()
+          && paused.compareAndSet(null, channel)) {
+        pausedReads.incrementAndGet();
+        log.debug("Response parser is backed up ({} queued), pausing reads on {}", depth.get(),
+            channel);
+        channel.setReadable(false);
+      }
+
+      jobs.add(new Job(work));
+      schedule();
+    }
+
+    private void schedule() {
+      while (!jobs.isEmpty() && scheduled.compareAndSet(false, true)) {
+        try {
+          executor.execute(this);
+          return;
+        } catch (RejectedExecutionException e) {
+          // Shut down under us. Better to parse here than leave a command hanging.
+          log.warn("Response parser rejected work, parsing on the calling thread instead.");
+          Job job;
+          while (null != (job = jobs.poll()))
+            job.run();
+          scheduled.set(false);
+        }
+      }
+    }
+
+    @Override
+    public void run() {
+      // One job per turn, so a connection with a big backlog can't hog a thread.
+      try {
+        Job job = jobs.poll();
+        if (null != job)
+          job.run();
+      } finally {
+        scheduled.set(false);
+        schedule();
+      }
+    }
+
+    private void done() {
+      if (pending.decrementAndGet() == 0) {
+        Channel channel = paused.getAndSet(null);
+        if (null != channel) {
+          log.debug("Response parser caught up, resuming reads on {}", channel);
+          channel.setReadable(true);
+        }
+      }
+    }
+
+    private class Job implements Runnable {
+      private final Runnable work;
+      private final long queuedAt = System.nanoTime();
+
+      private Job(Runnable work) {
+        this.work = work;
+      }
+
+      @Override
+      public void run() {
+        long startedAt = System.nanoTime();
+        try {
+          work.run();
+        } catch (RuntimeException e) {
+          log.error("Unexpected error while parsing response", e);
+        } finally {
+          record(queuedAt, startedAt, System.nanoTime());
+          done();
+        }
+      }
+    }
+  }
+}
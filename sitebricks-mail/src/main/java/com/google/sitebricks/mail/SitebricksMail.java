@@ -3,6 +3,8 @@ package com.google.sitebricks.mail;
 import com.google.common.base.Preconditions;
 import com.google.sitebricks.mail.Mail.AuthBuilder;
 import com.google.sitebricks.mail.oauth.OAuthConfig;
+import org.jboss.netty.channel.socket.ClientSocketChannelFactory;
+import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -19,6 +21,11 @@ class SitebricksMail implements Mail, AuthBuilder {
 
   private ExecutorService bossPool;
   private ExecutorService workerPool;
+  private ClientSocketChannelFactory channelFactory;
+
+  private ExecutorService parsePool;
+  private int maxQueued = ResponseParser.DEFAULT_MAX_QUEUED;
+  private ResponseParser parser;
 
   @Override
   public AuthBuilder clientOf(String host, int port) {
@@ -41,33 +48,61 @@ class SitebricksMail implements Mail, AuthBuilder {
   public AuthBuilder executors(ExecutorService bossPool, ExecutorService workerPool) {
     Preconditions.checkArgument(bossPool != null, "Boss executor cannot be null!");
     Preconditions.checkArgument(workerPool != null, "Worker executor cannot be null!");
+    // Clients prepared with other pools keep the factory they were given.
+    if (bossPool != this.bossPool || workerPool != this.workerPool)
+      channelFactory = null;
     this.bossPool = bossPool;
     this.workerPool = workerPool;
     return this;
   }
 
+  @Override
+  public AuthBuilder parseExecutor(ExecutorService parsePool, int maxQueued) {
+    Preconditions.checkArgument(parsePool != null, "Parse executor cannot be null!");
+    Preconditions.checkArgument(maxQueued > 0, "Must allow at least one queued response");
+    // Clients prepared with another executor keep the parser they were given.
+    if (parsePool != this.parsePool || maxQueued != this.maxQueued)
+      parser = null;
+    this.parsePool = parsePool;
+    this.maxQueued = maxQueued;
+    return this;
+  }
+
+  // One for all the clients prepared here, so they share Netty's threads.
+  ClientSocketChannelFactory channelFactory() {
+    if (null == channelFactory) {
+      if (null == bossPool) {
+        bossPool = Executors.newCachedThreadPool();
+        workerPool = Executors.newCachedThreadPool();
+      }
+      channelFactory = new NioClientSocketChannelFactory(bossPool, workerPool);
+    }
+    return channelFactory;
+  }
+
+  // The shared default, unless the caller brought an executor (which they shut down).
+  ResponseParser parser() {
+    if (null == parsePool)
+      return NettyImapClient.DefaultParser.INSTANCE;
+
+    if (null == parser)
+      parser = new ResponseParser(parsePool, maxQueued, host + ":" + port);
+    return parser;
+  }
+
   @Override
   public MailClient prepare(Auth authType, String username, String password) {
     Preconditions.checkArgument(authType != Auth.OAUTH, "Pleause use prepareOAuth() instead.");
-    if (null == bossPool) {
-      bossPool = Executors.newCachedThreadPool();
-      workerPool = Executors.newCachedThreadPool();
-    }
 
     MailClientConfig config = new MailClientConfig(host, port, authType, username, password,
         timeout);
 
-    return new NettyImapClient(config, bossPool, workerPool);
+    return new NettyImapClient(config, channelFactory(), workerPool, parser(), true);
   }
 
   @Override
   public MailClient prepareOAuth(String username, OAuthConfig config) {
-    if (null == bossPool) {
-      bossPool = Executors.newCachedThreadPool();
-      workerPool = Executors.newCachedThreadPool();
-    }
-
     return new NettyImapClient(new MailClientConfig(host, port, username, config, timeout),
-        bossPool, workerPool);
+        channelFactory(), workerPool, parser(), true);
   }
 }
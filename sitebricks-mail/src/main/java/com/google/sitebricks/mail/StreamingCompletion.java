@@ -0,0 +1,70 @@
+package com.google.sitebricks.mail;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.sitebricks.mail.imap.Command;
+import com.google.sitebricks.mail.imap.ExtractionException;
+import com.google.sitebricks.mail.imap.ImapResponse;
+import com.google.sitebricks.mail.imap.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A command completion that hands each message to a listener as soon as it
+ * arrives, instead of holding on to all of them until the command completes.
+ * The value of the command itself is then whatever is left over (usually
+ * nothing).
+ */
+class StreamingCompletion extends CommandCompletion {
+  private static final Logger log = LoggerFactory.getLogger(StreamingCompletion.class);
+  private final Command command;
+  private final MessageListener listener;
+  private final AtomicInteger delivered;
+
+  public StreamingCompletion(Command command,
+                             Long sequence,
+                             SettableFuture<?> valueFuture,
+                             String commandString,
+                             MessageListener listener,
+                             AtomicInteger delivered) {
+    super(command, sequence, valueFuture, commandString);
+    this.command = command;
+    this.listener = listener;
+    this.delivered = delivered;
+  }
+
+  @Override
+  public boolean complete(final ImapResponse response, ResponseParser.ConnectionQueue parser) {
+    if (!command.isStreamable(response)) {
+      return super.complete(response, parser);
+    }
+
+    // Queued like any other extraction, so messages arrive in order and
+    // before the command itself completes.
+    parser.submit(new Runnable() {
+      @Override
+      public void run() {
+        List<Message> messages;
+        try {
+          messages = command.extractResponses(ImmutableList.of(response));
+        } catch (ExtractionException e) {
+          log.error("Could not extract streamed message: {}", response, e);
+          messages = ImmutableList.of(Message.ERROR);
+        }
+
+        for (Message message : messages) {
+          delivered.incrementAndGet();
+          try {
+            listener.message(message);
+          } catch (RuntimeException e) {
+            log.error("Message listener threw an exception, continuing with the next message", e);
+          }
+        }
+      }
+    });
+    return false;
+  }
+}
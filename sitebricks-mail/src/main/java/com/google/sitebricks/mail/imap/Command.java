@@ -94,6 +94,27 @@ public enum Command {
     return (D) dataExtractors.get(this).extract(message);
   }
 
+  /**
+   * Like {@link #extract(List)}, but from framed responses. Extractors that
+   * understand literals read them directly, the rest see the responses as lines.
+   */
+  @SuppressWarnings("unchecked")
+  public <D> D extractResponses(List<ImapResponse> responses) throws ExtractionException {
+    Extractor<?> extractor = dataExtractors.get(this);
+    if (extractor instanceof ResponseExtractor) {
+      return (D) ((ResponseExtractor<?>) extractor).extractResponses(responses);
+    }
+    return (D) extractor.extract(ImapResponse.lines(responses));
+  }
+
+  /**
+   * @return True if the given response to this command can be extracted on its
+   *    own, as soon as it arrives. Only message bodies from a fetch can be.
+   */
+  public boolean isStreamable(ImapResponse response) {
+    return this == FETCH_BODY && MessageBodyExtractor.isMessage(response);
+  }
+
   @Override
   public String toString() {
     return commandString;
@@ -0,0 +1,117 @@
+package com.google.sitebricks.mail.imap;
+
+import com.google.common.collect.ImmutableList;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.handler.codec.frame.FrameDecoder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Frames the byte stream from an IMAP server into {@link ImapResponse}s. A
+ * response is a line ending in CRLF (or a bare LF); if the line ends with a
+ * literal marker {@code {n}}, then exactly n bytes follow as the literal,
+ * after which the response continues with another such line. See RFC 3501,
+ * section 4.3.
+ * <p>
+ * Literals are taken by their byte count, never by looking for line breaks,
+ * so message bodies in any charset come through intact and are never turned
+ * into text here.
+ */
+public class ImapFrameDecoder extends FrameDecoder {
+  private static final int NO_LITERAL = -1;
+
+  @Override
+  protected Object decode(ChannelHandlerContext ctx, Channel channel, ChannelBuffer buffer) {
+    // Find the extent of a whole response before consuming any of it, so an
+    // incomplete one is left in the buffer for next time.
+    int index = buffer.readerIndex();
+    List<int[]> pieces = new ArrayList<int[]>(1);
+    while (true) {
+      int end = buffer.indexOf(index, buffer.writerIndex(), (byte) '\n');
+      if (end < 0) {
+        return null;
+      }
+
+      int literal = literalLength(buffer, index, end);
+      pieces.add(new int[] { index, end, literal });
+
+      if (NO_LITERAL == literal) {
+        break;
+      }
+      index = end + 1 + literal;
+      if (index > buffer.writerIndex()) {
+        return null;
+      }
+    }
+
+    String line = null;
+    List<ChannelBuffer> literals = ImmutableList.of();
+    List<String> continuations = ImmutableList.of();
+    if (pieces.size() > 1) {
+      literals = new ArrayList<ChannelBuffer>(pieces.size() - 1);
+      continuations = new ArrayList<String>(pieces.size() - 1);
+    }
+
+    for (int[] piece : pieces) {
+      String text = text(buffer, piece[0], piece[1]);
+      if (null == line) {
+        line = text;
+      } else {
+        continuations.add(text);
+      }
+      buffer.readerIndex(piece[1] + 1);
+
+      if (NO_LITERAL != piece[2]) {
+        // Copied, as the decoder reuses its buffer once these bytes are read.
+        literals.add(buffer.readBytes(piece[2]));
+      }
+    }
+
+    return new ImapResponse(line, literals, continuations);
+  }
+
+  // The line is [start, end), where end is the LF. Returns the size of the
+  // literal announced at the end of the line, if any.
+  private static int literalLength(ChannelBuffer buffer, int start, int end) {
+    int close = end - 1;
+    if (close >= start && buffer.getByte(close) == '\r') {
+      close--;
+    }
+    if (close <= start || buffer.getByte(close) != '}') {
+      return NO_LITERAL;
+    }
+
+    int last = close - 1;
+    // LITERAL+ (RFC 2088) servers never send these, but allow them anyway.
+    if (last > start && buffer.getByte(last) == '+') {
+      last--;
+    }
+
+    int open = last;
+    while (open >= start && Character.isDigit(buffer.getByte(open))) {
+      open--;
+    }
+    if (open == last || open < start || buffer.getByte(open) != '{') {
+      return NO_LITERAL;
+    }
+
+    long length = 0;
+    for (int i = open + 1; i <= last; i++) {
+      length = length * 10 + (buffer.getByte(i) - '0');
+      if (length > Integer.MAX_VALUE) {
+        return NO_LITERAL;
+      }
+    }
+    return (int) length;
+  }
+
+  private static String text(ChannelBuffer buffer, int start, int end) {
+    if (end > start && buffer.getByte(end - 1) == '\r') {
+      end--;
+    }
+    return buffer.toString(start, end - start, ImapResponse.CHARSET);
+  }
+}
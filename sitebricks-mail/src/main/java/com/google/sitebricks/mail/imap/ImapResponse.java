@@ -0,0 +1,146 @@
+package com.google.sitebricks.mail.imap;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.jboss.netty.buffer.ChannelBuffer;
+
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * One complete response from an IMAP server, as framed by {@link ImapFrameDecoder}:
+ * a line of text, and any {@code {n}} literals that it announces, each followed
+ * by the text that continues the response after it. For example,
+ * <pre>
+ *   * 12 FETCH (UID 42 BODY[] {1520}
+ *   ...exactly 1520 bytes...)
+ * </pre>
+ * is one response with line {@code "* 12 FETCH (UID 42 BODY[] {1520}"}, one
+ * literal of 1520 bytes and the continuation {@code ")"}.
+ * <p>
+ * Literals are kept as raw bytes; nothing decodes them until an extractor
+ * asks for them.
+ */
+public final class ImapResponse {
+  // Same charset that the String decoder used to use for the whole stream.
+  static final Charset CHARSET = Charset.defaultCharset();
+
+  private final String line;
+  private final List<ChannelBuffer> literals;
+  private final List<String> continuations;
+
+  ImapResponse(String line, List<ChannelBuffer> literals, List<String> continuations) {
+    this.line = line;
+    this.literals = literals;
+    this.continuations = continuations;
+  }
+
+  static ImapResponse of(String line) {
+    return new ImapResponse(line, ImmutableList.<ChannelBuffer>of(), ImmutableList.<String>of());
+  }
+
+  /**
+   * @return The first line of this response, without its line terminator. If
+   *    the response carries literals, this ends with the first {@code {n}}.
+   */
+  public String line() {
+    return line;
+  }
+
+  public boolean hasLiterals() {
+    return !literals.isEmpty();
+  }
+
+  /**
+   * @return The raw bytes of each literal, in order.
+   */
+  public List<ChannelBuffer> literals() {
+    return literals;
+  }
+
+  /**
+   * @return The text following each literal, up to the next literal or the
+   *    end of the response. One per literal.
+   */
+  public List<String> continuations() {
+    return continuations;
+  }
+
+  /**
+   * @return The whole response as lines of text, exactly as the old string
+   *    decoder would have split it: CRs dropped, split at each LF, literals
+   *    included.
+   */
+  public List<String> lines() {
+    if (literals.isEmpty()) {
+      return ImmutableList.of(stripCarriageReturns(line));
+    }
+
+    StringBuilder text = new StringBuilder(line).append('\n');
+    for (int i = 0; i < literals.size(); i++) {
+      text.append(literals.get(i).toString(CHARSET)).append(continuations.get(i)).append('\n');
+    }
+    List<String> lines = split(text);
+
+    // Drop the empty piece after the final terminator.
+    return lines.subList(0, lines.size() - 1);
+  }
+
+  /**
+   * @return The lines of all the given responses, in order.
+   */
+  public static List<String> lines(List<ImapResponse> responses) {
+    List<String> lines = Lists.newArrayList();
+    for (ImapResponse response : responses) {
+      lines.addAll(response.lines());
+    }
+    return lines;
+  }
+
+  /**
+   * @return The given literal as lines of text, split as in {@link #lines()}.
+   *    A trailing line terminator does not produce a trailing empty line.
+   */
+  static List<String> lines(ChannelBuffer literal) {
+    List<String> lines = split(literal.toString(CHARSET));
+    if (lines.get(lines.size() - 1).isEmpty()) {
+      return lines.subList(0, lines.size() - 1);
+    }
+    return lines;
+  }
+
+  // Equivalent to text.replaceAll("\r", "").split("\n", -1), without the regexes.
+  private static List<String> split(CharSequence text) {
+    List<String> lines = Lists.newArrayList();
+    StringBuilder current = new StringBuilder();
+    for (int i = 0, length = text.length(); i < length; i++) {
+      char c = text.charAt(i);
+      if (c == '\n') {
+        lines.add(current.toString());
+        current.setLength(0);
+      } else if (c != '\r') {
+        current.append(c);
+      }
+    }
+    lines.add(current.toString());
+    return lines;
+  }
+
+  private static String stripCarriageReturns(String line) {
+    return line.indexOf('\r') < 0 ? line : line.replace("\r", "");
+  }
+
+  @Override
+  public String toString() {
+    if (literals.isEmpty()) {
+      return line;
+    }
+
+    StringBuilder out = new StringBuilder(line);
+    for (int i = 0; i < literals.size(); i++) {
+      out.append(" <").append(literals.get(i).readableBytes()).append(" bytes>")
+          .append(continuations.get(i));
+    }
+    return out.toString();
+  }
+}
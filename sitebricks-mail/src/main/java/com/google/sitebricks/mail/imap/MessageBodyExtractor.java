@@ -32,7 +32,7 @@ import java.util.regex.Pattern;
  *
  * @author dhanji@gmail.com (Dhanji R. Prasanna)
  */
-class MessageBodyExtractor implements Extractor<List<Message>> {
+class MessageBodyExtractor implements ResponseExtractor<List<Message>> {
   private static final Logger log = LoggerFactory.getLogger(MessageBodyExtractor.class);
 
   static final Pattern BOUNDARY_REGEX = Pattern.compile(
@@ -100,8 +100,6 @@ class MessageBodyExtractor implements Extractor<List<Message>> {
 
   @Override
   public List<Message> extract(List<String> messages) {
-    List<Message> emails = Lists.newArrayList();
-
     // Partition the incoming message set into individual message blocks.
     // We do this to prevent errors in one individual message causing the entire
     // batch to be corrupted.
@@ -130,6 +128,43 @@ class MessageBodyExtractor implements Extractor<List<Message>> {
     if (start < messages.size() - 1)
       partitionedMessagesSet.add(messages.subList(start, messages.size()));
 
+    return parse(partitionedMessagesSet, false);
+  }
+
+  /**
+   * Extracts messages from framed responses. Each FETCH carries its message as
+   * an exact-length literal, so no guessing is needed about where a message
+   * ends, however its body is encoded.
+   */
+  @Override
+  public List<Message> extractResponses(List<ImapResponse> responses) {
+    List<List<String>> partitionedMessagesSet = Lists.newArrayList();
+    for (ImapResponse response : responses) {
+      if (isMessage(response)) {
+        List<String> lines = Lists.newArrayList();
+        lines.add(response.line());
+        lines.addAll(ImapResponse.lines(response.literals().get(0)));
+
+        // Whatever followed the literal, this closes the message for the parser.
+        lines.add(")");
+        partitionedMessagesSet.add(lines);
+      } else if (!EOS_REGEX.matcher(response.line()).matches()) {
+        log.warn("Ignoring unexpected response in message fetch: {}", response);
+      }
+    }
+
+    return parse(partitionedMessagesSet, true);
+  }
+
+  /**
+   * @return True if the response carries exactly one whole message body.
+   */
+  static boolean isMessage(ImapResponse response) {
+    return response.hasLiterals() && MESSAGE_START_REGEX.matcher(response.line()).matches();
+  }
+
+  private List<Message> parse(List<List<String>> partitionedMessagesSet, boolean exactLength) {
+    List<Message> emails = Lists.newArrayList();
     for (List<String> partitionedMessages : partitionedMessagesSet) {
       ListIterator<String> iterator = partitionedMessages.listIterator();
       try {
@@ -137,7 +172,7 @@ class MessageBodyExtractor implements Extractor<List<Message>> {
         // yet give error report at high level.
         AtomicInteger errorCount = new AtomicInteger();
         errorCount.set(0);
-        Message message = parseMessage(iterator, errorCount);
+        Message message = parseMessage(iterator, errorCount, exactLength);
         // Messages may be null if there are gaps in the returned body. These should be safe.
         if (null != message)
           emails.add(message);
@@ -217,7 +252,8 @@ class MessageBodyExtractor implements Extractor<List<Message>> {
     }
   }
 
-  private Message parseMessage(ListIterator<String> iterator, AtomicInteger errorCount) {
+  private Message parseMessage(ListIterator<String> iterator, AtomicInteger errorCount,
+                               boolean exactLength) {
     Message email = new Message();
     // Read the leading message (command response).
     String firstLine = iterator.next();
@@ -245,9 +281,11 @@ class MessageBodyExtractor implements Extractor<List<Message>> {
       }
     }
 
-    gropeForTruncator = forceTruncatorGroping || size == 0 || size == ignoreMessageBodyLengthForTesting;
+    // Framed messages end exactly where their literal does.
+    gropeForTruncator = !exactLength
+        && (forceTruncatorGroping || size == 0 || size == ignoreMessageBodyLengthForTesting);
 
-    if (!gropeForTruncator) {
+    if (!gropeForTruncator && !exactLength) {
       try {
         iterator = selectLengthBasedSection(iterator, size);
       } catch (ParseException e) {
@@ -0,0 +1,11 @@
+package com.google.sitebricks.mail.imap;
+
+import java.util.List;
+
+/**
+ * An extractor that can work from framed responses directly, for example to
+ * read literals by their exact length rather than as lines of text.
+ */
+interface ResponseExtractor<D> extends Extractor<D> {
+  D extractResponses(List<ImapResponse> responses) throws ExtractionException;
+}
@@ -5,12 +5,18 @@ import java.util.List;
 /**
  * @author dhanji@gmail.com (Dhanji R. Prasanna)
  */
-class SingleMessageBodyExtractor implements Extractor<Message> {
+class SingleMessageBodyExtractor implements ResponseExtractor<Message> {
   private final MessageBodyExtractor extractor = new MessageBodyExtractor();
 
   @Override public Message extract(List<String> messages) throws ExtractionException {
-    List<Message> extract = extractor.extract(messages);
+    return first(extractor.extract(messages));
+  }
+
+  @Override public Message extractResponses(List<ImapResponse> responses) {
+    return first(extractor.extractResponses(responses));
+  }
 
+  private static Message first(List<Message> extract) {
     return extract.isEmpty() ? null : extract.iterator().next();
   }
 }
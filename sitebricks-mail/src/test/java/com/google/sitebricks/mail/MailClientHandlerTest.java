@@ -1,15 +1,22 @@
 package com.google.sitebricks.mail;
 
-import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import com.google.sitebricks.mail.imap.Command;
 import com.google.sitebricks.mail.imap.ExtractionException;
+import com.google.sitebricks.mail.imap.FolderStatus;
+import com.google.sitebricks.mail.imap.ImapFrameDecoder;
+import com.google.sitebricks.mail.imap.ImapResponse;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder;
 import org.testng.annotations.Test;
 
-import java.util.List;
+import java.util.Arrays;
 import java.util.regex.Matcher;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
@@ -17,22 +24,6 @@ import static org.testng.Assert.fail;
  * @author dhanji@gmail.com (Dhanji R. Prasanna)
  */
 public class MailClientHandlerTest {
-  private void assertProcess(MailClientHandler.InputBuffer ib, String s, List<String> l) {
-    assertEquals(ib.processMessage(s), l);
-  }
-
-  @Test
-  public final void testProcessMessage() {
-    // ib is stateful.
-    MailClientHandler.InputBuffer ib = new MailClientHandler.InputBuffer();
-    assertProcess(ib, "hi ", ImmutableList.<String>of());
-    assertProcess(ib, "bob\r\nhow\n\r", ImmutableList.of("hi bob", "how"));
-    assertProcess(ib, "\nis\n\r\n", ImmutableList.of("", "is", ""));
-    assertProcess(ib, "your snake\nfeeling ", ImmutableList.of("your snake"));
-    assertProcess(ib, "after\neating\nthat", ImmutableList.of("feeling after", "eating"));
-    assertProcess(ib, " mushroom?\r\n", ImmutableList.of("that mushroom?"));
-  }
-
   @Test
   public final void testAuthenticationSuccessRegex() {
     assertTrue(". OK cameron@themaninblue.com Cameron Adams authenticated (Success)"
@@ -89,4 +80,71 @@ public class MailClientHandlerTest {
         .matcher("3 NO Some messages could not be FETCHed (Failure)")
         .matches());
   }
+
+  @Test
+  public final void testTagOf() {
+    assertEquals(MailClientHandler.tagOf("12 OK Success"), Long.valueOf(12L));
+    assertNull(MailClientHandler.tagOf("* 3 EXISTS"));
+    assertNull(MailClientHandler.tagOf("+ idling"));
+    assertNull(MailClientHandler.tagOf(". OK user@gmail.com authenticated (Success)"));
+    assertNull(MailClientHandler.tagOf("OK"));
+  }
+
+  @Test
+  public final void testStatusMailbox() {
+    assertEquals(CommandCompletion.statusMailbox("* STATUS INBOX (MESSAGES 3)"), "INBOX");
+    assertEquals(CommandCompletion.statusMailbox("* STATUS \"[Gmail]/Sent Mail\" (MESSAGES 3)"),
+        "[Gmail]/Sent Mail");
+    assertEquals(CommandCompletion.statusMailbox("4 status \"a \\\"b\\\"\" (UNSEEN)"), "a \"b\"");
+    assertNull(CommandCompletion.statusMailbox("* 3 EXISTS"));
+  }
+
+  @Test
+  public final void testPipelinedCommandsCompleteByTag() throws Exception {
+    ResponseParser parser = new ResponseParser(MoreExecutors.sameThreadExecutor(), 10,
+        "test-pipelining");
+    MailClientHandler handler = new MailClientHandler(new NoopIdler(),
+        new MailClientConfig("localhost", 143, Mail.Auth.PLAIN, "pipelining", "secret", 1000L),
+        parser, true);
+    try {
+      SettableFuture<FolderStatus> inbox = SettableFuture.create();
+      SettableFuture<FolderStatus> sent = SettableFuture.create();
+      handler.enqueue(new CommandCompletion(Command.FOLDER_STATUS, 1L, inbox,
+          "1 status \"INBOX\" (UIDNEXT RECENT MESSAGES UNSEEN)\r\n"));
+      handler.enqueue(new CommandCompletion(Command.FOLDER_STATUS, 2L, sent,
+          "2 status \"Sent\" (UIDNEXT RECENT MESSAGES UNSEEN)\r\n"));
+
+      // The server answers the second command before the first.
+      for (ImapResponse response : decode(". OK pipelining@localhost Tester (Success)\r\n"
+          + "* STATUS \"Sent\" (MESSAGES 7 UNSEEN 1)\r\n"
+          + "2 OK Success\r\n"
+          + "* STATUS \"INBOX\" (MESSAGES 42 UNSEEN 3)\r\n"
+          + "1 OK Success\r\n")) {
+        handler.processMessage(response);
+      }
+
+      assertEquals(sent.get().getMessages(), 7);
+      assertEquals(inbox.get().getMessages(), 42);
+      assertEquals(inbox.get().getUnseen(), 3);
+      assertNull(handler.lastError());
+    } finally {
+      handler.disconnected();
+      parser.shutdown();
+    }
+  }
+
+  private static Iterable<ImapResponse> decode(String wire) {
+    DecoderEmbedder<ImapResponse> decoder =
+        new DecoderEmbedder<ImapResponse>(new ImapFrameDecoder());
+    decoder.offer(ChannelBuffers.wrappedBuffer(wire.getBytes()));
+    decoder.finish();
+    return Arrays.asList(decoder.pollAll(new ImapResponse[0]));
+  }
+
+  private static class NoopIdler implements Idler {
+    @Override public void done() { }
+    @Override public void disconnectAsync() { }
+    @Override public void idleEnd() { }
+    @Override public void idleStart() { }
+  }
 }
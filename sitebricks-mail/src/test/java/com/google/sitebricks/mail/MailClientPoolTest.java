@@ -0,0 +1,63 @@
+package com.google.sitebricks.mail;
+
+import com.google.sitebricks.mail.Mail.Auth;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+import java.util.concurrent.Semaphore;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class MailClientPoolTest {
+
+  @Test
+  public final void testBackoffIsJitteredAndCapped() {
+    Random random = new Random(42);
+    for (int attempt = 0; attempt < 40; attempt++) {
+      long cap = Math.min(MailClientPool.MAX_BACKOFF_MILLIS,
+          MailClientPool.INITIAL_BACKOFF_MILLIS << Math.min(attempt, 20));
+      boolean varied = false;
+      long first = MailClientPool.backoff(attempt, random);
+      for (int i = 0; i < 100; i++) {
+        long delay = MailClientPool.backoff(attempt, random);
+        assertTrue(delay >= 0 && delay < cap, attempt + ": " + delay);
+        varied |= delay != first;
+      }
+      assertTrue(varied);
+    }
+  }
+
+  @Test
+  public final void testConnectionsPerHostAreCapped() throws InterruptedException {
+    MailClientPool pool = new MailClientPool(1);
+    try {
+      Semaphore permits = pool.permitsFor("localhost");
+      permits.acquire();
+
+      MailClientPool.Account account = pool.account("localhost", 1, Auth.PLAIN, "capped", "secret");
+      assertFalse(account.connect(null));
+      assertEquals(pool.getRejectedConnects(), 1L);
+      assertEquals(pool.getFailedConnects(), 0L);
+      assertEquals(pool.getConnectionsByHost().get(0), "localhost: 1");
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public final void testFailedConnectReleasesItsPermit() {
+    MailClientPool pool = new MailClientPool(1);
+    try {
+      // Nothing listens on port 1, so this is refused straight away.
+      MailClientPool.Account account = pool.account("localhost", 1, Auth.PLAIN, "refused", "secret");
+      assertFalse(account.connect(null));
+      assertEquals(pool.getFailedConnects(), 1L);
+      assertEquals(pool.getConnections(), 0);
+      assertEquals(pool.permitsFor("localhost").availablePermits(), 1);
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
@@ -0,0 +1,83 @@
+package com.google.sitebricks.mail;
+
+import com.google.common.collect.Lists;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class ResponseParserTest {
+  private static final int JOBS = 500;
+
+  @Test
+  public final void testEachConnectionIsParsedInOrder() throws InterruptedException {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    ResponseParser parser = new ResponseParser(executor, 10, "test-ordering");
+    try {
+      CountDownLatch done = new CountDownLatch(2 * JOBS);
+      List<Integer> first = submitAll(parser.newQueue(), done);
+      List<Integer> second = submitAll(parser.newQueue(), done);
+
+      assertTrue(done.await(10, TimeUnit.SECONDS));
+      assertInOrder(first);
+      assertInOrder(second);
+
+      // Metrics are recorded just after each job runs.
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+      assertEquals(parser.getParsedCount(), 2 * JOBS);
+      assertEquals(parser.getQueueDepth(), 0);
+      assertTrue(parser.getMaxQueueDepth() > 0);
+    } finally {
+      parser.shutdown();
+    }
+  }
+
+  @Test
+  public final void testParsesOnCallerOnceShutDown() {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    ResponseParser parser = new ResponseParser(executor, 10, "test-shutdown");
+    parser.shutdown();
+
+    final List<Thread> ranOn = Lists.newArrayList();
+    parser.newQueue().submit(new Runnable() {
+      @Override
+      public void run() {
+        ranOn.add(Thread.currentThread());
+      }
+    });
+
+    assertEquals(ranOn, Lists.newArrayList(Thread.currentThread()));
+    assertEquals(parser.getQueueDepth(), 0);
+  }
+
+  private static List<Integer> submitAll(ResponseParser.ConnectionQueue queue,
+                                         final CountDownLatch done) {
+    final List<Integer> order = Collections.synchronizedList(Lists.<Integer>newArrayList());
+    for (int i = 0; i < JOBS; i++) {
+      final int index = i;
+      queue.submit(new Runnable() {
+        @Override
+        public void run() {
+          order.add(index);
+          done.countDown();
+        }
+      });
+    }
+    return order;
+  }
+
+  private static void assertInOrder(List<Integer> order) {
+    assertEquals(order.size(), JOBS);
+    for (int i = 0; i < JOBS; i++) {
+      assertEquals(order.get(i).intValue(), i);
+    }
+  }
+}
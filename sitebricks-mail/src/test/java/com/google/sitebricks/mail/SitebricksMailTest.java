@@ -0,0 +1,66 @@
+package com.google.sitebricks.mail;
+
+import com.google.sitebricks.mail.Mail.Auth;
+import com.google.sitebricks.mail.Mail.AuthBuilder;
+import org.jboss.netty.channel.socket.ClientSocketChannelFactory;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+public class SitebricksMailTest {
+
+  @Test
+  public final void testClientsPreparedThroughOneBuilderShareItsPools() {
+    ExecutorService boss = Executors.newCachedThreadPool();
+    ExecutorService worker = Executors.newCachedThreadPool();
+    ExecutorService otherBoss = Executors.newCachedThreadPool();
+    ExecutorService otherWorker = Executors.newCachedThreadPool();
+    try {
+      SitebricksMail mail = new SitebricksMail();
+
+      // As callers that reuse one Mail do, passing the same pools for each account.
+      AuthBuilder builder = mail.clientOf("localhost", 1).executors(boss, worker);
+      assertNotNull(builder.prepare(Auth.PLAIN, "first", "secret"));
+      ClientSocketChannelFactory factory = mail.channelFactory();
+
+      builder = mail.clientOf("localhost", 1).executors(boss, worker);
+      assertNotNull(builder.prepare(Auth.PLAIN, "second", "secret"));
+      assertSame(mail.channelFactory(), factory);
+
+      // Other pools get a factory of their own.
+      mail.clientOf("localhost", 1).executors(otherBoss, otherWorker)
+          .prepare(Auth.PLAIN, "third", "secret");
+      assertNotSame(mail.channelFactory(), factory);
+    } finally {
+      boss.shutdown();
+      worker.shutdown();
+      otherBoss.shutdown();
+      otherWorker.shutdown();
+    }
+  }
+
+  @Test
+  public final void testParserIsSharedUnlessGivenAnExecutor() {
+    // Each Mail would otherwise start (and never stop) a parse pool of its own.
+    assertSame(new SitebricksMail().parser(), NettyImapClient.DefaultParser.INSTANCE);
+    assertSame(new SitebricksMail().parser(), NettyImapClient.DefaultParser.INSTANCE);
+
+    ExecutorService parsePool = Executors.newSingleThreadExecutor();
+    try {
+      SitebricksMail mail = new SitebricksMail();
+      mail.clientOf("localhost", 1).parseExecutor(parsePool, 10);
+      ResponseParser parser = mail.parser();
+      assertNotSame(parser, NettyImapClient.DefaultParser.INSTANCE);
+
+      mail.clientOf("localhost", 1).parseExecutor(parsePool, 10);
+      assertSame(mail.parser(), parser);
+    } finally {
+      parsePool.shutdown();
+    }
+  }
+}
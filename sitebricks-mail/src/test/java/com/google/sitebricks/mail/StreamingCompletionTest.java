@@ -0,0 +1,78 @@
+package com.google.sitebricks.mail;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.sitebricks.mail.imap.Command;
+import com.google.sitebricks.mail.imap.ImapFrameDecoder;
+import com.google.sitebricks.mail.imap.ImapResponse;
+import com.google.sitebricks.mail.imap.Message;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class StreamingCompletionTest {
+
+  @Test
+  public final void testMessagesAreDeliveredAsTheyArrive() throws Exception {
+    ResponseParser parser = new ResponseParser(MoreExecutors.sameThreadExecutor(), 10,
+        "test-streaming");
+    try {
+      final List<Message> received = Lists.newArrayList();
+      SettableFuture<List<Message>> future = SettableFuture.create();
+      AtomicInteger delivered = new AtomicInteger();
+      StreamingCompletion completion = new StreamingCompletion(Command.FETCH_BODY, 4L, future,
+          "4 fetch 1:2 (uid body[])", new MessageListener() {
+            @Override
+            public void message(Message message) {
+              received.add(message);
+            }
+          }, delivered);
+
+      ResponseParser.ConnectionQueue queue = parser.newQueue();
+      List<ImapResponse> responses = decode(
+          message(1, 101, "first") + message(2, 102, "second") + "4 OK Success\r\n");
+
+      assertFalse(completion.complete(responses.get(0), queue));
+      assertEquals(received.size(), 1);
+      assertEquals(received.get(0).getImapUid(), 101);
+
+      assertFalse(completion.complete(responses.get(1), queue));
+      assertEquals(received.size(), 2);
+      assertEquals(received.get(1).getImapUid(), 102);
+      assertFalse(future.isDone());
+
+      assertTrue(completion.complete(responses.get(2), queue));
+      assertTrue(future.get().isEmpty());
+      assertEquals(delivered.get(), 2);
+    } finally {
+      parser.shutdown();
+    }
+  }
+
+  private static List<ImapResponse> decode(String wire) {
+    DecoderEmbedder<ImapResponse> decoder =
+        new DecoderEmbedder<ImapResponse>(new ImapFrameDecoder());
+    decoder.offer(ChannelBuffers.wrappedBuffer(wire.getBytes()));
+
+    List<ImapResponse> responses = Lists.newArrayList();
+    ImapResponse response;
+    while (null != (response = decoder.poll())) {
+      responses.add(response);
+    }
+    return responses;
+  }
+
+  private static String message(int number, int uid, String body) {
+    String literal = "Subject: " + body + "\r\n\r\n" + body + "\r\n";
+    return "* " + number + " FETCH (UID " + uid + " BODY[] {" + literal.length() + "}\r\n"
+        + literal + ")\r\n";
+  }
+}
@@ -0,0 +1,86 @@
+package com.google.sitebricks.mail.imap;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class ImapFrameDecoderTest {
+  private final ImapFrameDecoder decoder = new ImapFrameDecoder();
+  private final ChannelBuffer cumulation = ChannelBuffers.dynamicBuffer();
+
+  private List<String> feed(byte[] bytes) {
+    cumulation.writeBytes(bytes);
+    List<String> lines = Lists.newArrayList();
+    ImapResponse response;
+    while (null != (response = (ImapResponse) decoder.decode(null, null, cumulation))) {
+      lines.addAll(response.lines());
+    }
+    return lines;
+  }
+
+  private List<String> feed(String s) {
+    return feed(s.getBytes(ImapResponse.CHARSET));
+  }
+
+  @Test
+  public final void testLinesAcrossChunks() {
+    // Same behavior as the old line splitting: responses may be split anywhere.
+    assertEquals(feed("hi "), ImmutableList.<String>of());
+    assertEquals(feed("bob\r\nhow\n\r"), ImmutableList.of("hi bob", "how"));
+    assertEquals(feed("\nis\n\r\n"), ImmutableList.of("", "is", ""));
+    assertEquals(feed("your snake\nfeeling "), ImmutableList.of("your snake"));
+    assertEquals(feed("after\neating\nthat"), ImmutableList.of("feeling after", "eating"));
+    assertEquals(feed(" mushroom?\r\n"), ImmutableList.of("that mushroom?"));
+  }
+
+  @Test
+  public final void testLiteralIsReadByByteCount() throws Exception {
+    // Multibyte text, and a line that looks like the end of the response.
+    byte[] body = "Subject: caf\u00e9\r\n\r\nna\u00efve (really)\r\n".getBytes("UTF-8");
+    byte[] wire = concat(("* 1 FETCH (UID 7 BODY[] {" + body.length + "}\r\n").getBytes("UTF-8"),
+        body, ")\r\n1 OK Success\r\n".getBytes("UTF-8"));
+
+    List<ImapResponse> responses = Lists.newArrayList();
+    for (byte b : wire) {
+      cumulation.writeByte(b);
+      ImapResponse response;
+      while (null != (response = (ImapResponse) decoder.decode(null, null, cumulation))) {
+        responses.add(response);
+      }
+    }
+
+    assertEquals(responses.size(), 2);
+    ImapResponse fetch = responses.get(0);
+    assertEquals(fetch.line(), "* 1 FETCH (UID 7 BODY[] {" + body.length + "}");
+    assertTrue(fetch.hasLiterals());
+    assertEquals(fetch.literals().get(0), ChannelBuffers.wrappedBuffer(body));
+    assertEquals(fetch.continuations(), ImmutableList.of(")"));
+
+    assertFalse(responses.get(1).hasLiterals());
+    assertEquals(responses.get(1).line(), "1 OK Success");
+  }
+
+  @Test
+  public final void testBracesThatAreNotLiterals() {
+    assertEquals(feed("* OK {not a literal}\r\n* 3 EXISTS\r\n"),
+        ImmutableList.of("* OK {not a literal}", "* 3 EXISTS"));
+  }
+
+  private static byte[] concat(byte[]... arrays) {
+    ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+    for (byte[] array : arrays) {
+      buffer.writeBytes(array);
+    }
+    byte[] bytes = new byte[buffer.readableBytes()];
+    buffer.readBytes(bytes);
+    return bytes;
+  }
+}
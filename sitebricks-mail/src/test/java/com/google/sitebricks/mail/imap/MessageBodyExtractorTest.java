@@ -1,10 +1,13 @@
 package com.google.sitebricks.mail.imap;
 
 import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Multimap;
 import com.google.common.io.Resources;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.builder.ToStringBuilder;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
 import org.testng.annotations.Test;
 
 import javax.mail.MessagingException;
@@ -619,6 +622,33 @@ public class MessageBodyExtractorTest {
     }
   }
 
+  @Test
+  public final void testFramedMessageIsReadByLiteralLength() {
+    // The body has a line that looks like the end of the FETCH response.
+    String body = "Subject: Framed\r\nContent-Type: text/plain; charset=UTF-8\r\n\r\n"
+        + "first\r\n)\r\nlast\r\n";
+    ChannelBuffer wire = ChannelBuffers.dynamicBuffer();
+    wire.writeBytes(("* 1 FETCH (UID 9 BODY[] {" + body.length() + "}\r\n" + body
+        + ")\r\n5 OK Success\r\n").getBytes(ImapResponse.CHARSET));
+
+    List<ImapResponse> responses = Lists.newArrayList();
+    ImapFrameDecoder decoder = new ImapFrameDecoder();
+    ImapResponse response;
+    while (null != (response = (ImapResponse) decoder.decode(null, null, wire))) {
+      responses.add(response);
+    }
+    assertEquals(responses.size(), 2);
+
+    List<Message> messages = new MessageBodyExtractor().extractResponses(responses);
+    assertEquals(messages.size(), 1);
+
+    Message message = messages.get(0);
+    assertEquals(message.getImapUid(), 9);
+    assertEquals(message.getHeaders().get("Subject").iterator().next(), "Framed");
+    assertEquals(message.getBodyParts().size(), 1);
+    assertEquals(message.getBodyParts().get(0).getBody(), "first\r\n)\r\nlast\r\n");
+  }
+
   @Test
   public final void testReadUnfoldedHeaders() throws IOException {
     URL assertions = MessageBodyExtractorTest.class.getResource("split_headers_assertion_1.txt");
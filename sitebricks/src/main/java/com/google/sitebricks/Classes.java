@@ -5,9 +5,13 @@ import com.google.inject.matcher.Matcher;
 import net.jcip.annotations.Immutable;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileFilter;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.JarURLConnection;
 import java.net.URL;
 import java.util.Enumeration;
@@ -22,6 +26,11 @@ import java.util.logging.Logger;
  * Utility class that finds all the classes in a given package.
  * (based on a similar utility in TestNG)
  * <p/>
+ * Directories and jars that carry a page index (see {@link PageIndexProcessor})
+ * are not walked; only the classes named in their index are considered. A
+ * scanner from {@link #scanIndexedRoots()} walks them as well, and logs any
+ * classes missing from the index (incremental compiles may leave it behind).
+ * <p/>
  * Created on Feb 24, 2006
  *
  * @author <a href="mailto:cedric@beust.com">Cedric Beust</a>
@@ -32,10 +41,12 @@ import java.util.logging.Logger;
 class Classes {
 
   private final Matcher<? super Class<?>> matcher;
+  private final boolean scanIndexed;
   private final Logger log = Logger.getLogger(Classes.class.getName());
 
-  private Classes(Matcher<? super Class<?>> matcher) {
+  private Classes(Matcher<? super Class<?>> matcher, boolean scanIndexed) {
     this.matcher = matcher;
+    this.scanIndexed = scanIndexed;
   }
 
   /**
@@ -47,7 +58,6 @@ class Classes {
    */
   @NotNull
   public Set<Class<?>> in(Package pack) {
-    String packageName = pack.getName();
     String packageOnly = pack.getName();
 
     final boolean recursive = true;
@@ -69,6 +79,26 @@ class Classes {
       String protocol = url.getProtocol();
 
       if ("file".equals(protocol)) {
+        File index = new File(rootOf(new File(toPath(url)), packageDirName),
+            PageIndexProcessor.INDEX);
+        if (index.isFile()) {
+          Set<Class<?>> indexed = new LinkedHashSet<Class<?>>();
+          try {
+            addIndexed(packageOnly, new FileInputStream(index), indexed);
+          } catch (IOException e) {
+            throw new PackageScanFailedException("Could not read page index: " + index, e);
+          }
+          classes.addAll(indexed);
+          if (!scanIndexed)
+            continue;
+
+          Set<Class<?>> scanned = new LinkedHashSet<Class<?>>();
+          findClassesInDirPackage(packageOnly, toPath(url), recursive, scanned);
+          checkIndex(index.toString(), indexed, scanned);
+          classes.addAll(scanned);
+          continue;
+        }
+
         findClassesInDirPackage(packageOnly, toPath(url), recursive, classes);
       } else if ("jar".equals(protocol)) {
         JarFile jar;
@@ -79,40 +109,89 @@ class Classes {
           throw new PackageScanFailedException("Could not read from jar url: " + url, e);
         }
 
-        Enumeration<JarEntry> entries = jar.entries();
-        while (entries.hasMoreElements()) {
-          JarEntry entry = entries.nextElement();
-          String name = entry.getName();
-          if (name.charAt(0) == '/') {
-            name = name.substring(1);
+        JarEntry index = jar.getJarEntry(PageIndexProcessor.INDEX);
+        if (null != index) {
+          Set<Class<?>> indexed = new LinkedHashSet<Class<?>>();
+          try {
+            addIndexed(packageOnly, jar.getInputStream(index), indexed);
+          } catch (IOException e) {
+            throw new PackageScanFailedException("Could not read page index from jar: " + url, e);
           }
-          if (name.startsWith(packageDirName)) {
-            int idx = name.lastIndexOf('/');
-            if (idx != -1) {
-              packageName = name.substring(0, idx).replace('/', '.');
-            }
+          classes.addAll(indexed);
+          if (!scanIndexed)
+            continue;
 
-            if ((idx != -1) || recursive) {
-              //it's not inside a deeper dir
-              if (name.endsWith(".class") && !entry.isDirectory()) {
-                String className = name.substring(packageName.length() + 1, name.length() - 6);
-                //include this class in our results
-
-                /* Issue #26 - package-info causes ISE during package scan. This ia a bit of a hack for just
-                 * package-info. TODO Determine better handling of unexpected classloader issues.
-                 */
-                if (!"package-info".equalsIgnoreCase(className)) {
-                  add(packageName, classes, className);
-                }
-//                  vResult.add();
-              }
+          Set<Class<?>> scanned = new LinkedHashSet<Class<?>>();
+          findClassesInJarPackage(packageOnly, jar, recursive, scanned);
+          checkIndex(url.toString(), indexed, scanned);
+          classes.addAll(scanned);
+          continue;
+        }
+
+        findClassesInJarPackage(packageOnly, jar, recursive, classes);
+      }
+    }
+
+    return classes;
+  }
+
+  private void findClassesInJarPackage(String packageName,
+                                       JarFile jar,
+                                       boolean recursive,
+                                       Set<Class<?>> classes) {
+    String packageDirName = packageName.replace('.', '/');
+    Enumeration<JarEntry> entries = jar.entries();
+    while (entries.hasMoreElements()) {
+      JarEntry entry = entries.nextElement();
+      String name = entry.getName();
+      if (name.charAt(0) == '/') {
+        name = name.substring(1);
+      }
+      if (name.startsWith(packageDirName)) {
+        int idx = name.lastIndexOf('/');
+        if (idx != -1) {
+          packageName = name.substring(0, idx).replace('/', '.');
+        }
+
+        if ((idx != -1) || recursive) {
+          //it's not inside a deeper dir
+          if (name.endsWith(".class") && !entry.isDirectory()) {
+            String className = name.substring(packageName.length() + 1, name.length() - 6);
+            //include this class in our results
+
+            /* Issue #26 - package-info causes ISE during package scan. This ia a bit of a hack for just
+             * package-info. TODO Determine better handling of unexpected classloader issues.
+             */
+            if (!"package-info".equalsIgnoreCase(className)) {
+              add(packageName, classes, className);
             }
+//                  vResult.add();
           }
         }
       }
     }
+  }
 
-    return classes;
+  //logs loudly when a walk finds matching classes that the page index left out
+  private void checkIndex(String index, Set<Class<?>> indexed, Set<Class<?>> scanned) {
+    Set<String> missing = new LinkedHashSet<String>();
+    for (Class<?> clazz : scanned) {
+      if (!indexed.contains(clazz))
+        missing.add(clazz.getName());
+    }
+
+    if (!missing.isEmpty())
+      log.warning("The page index at " + index + " is out of date, it does not list: " + missing
+          + ". These classes are found in development only; rebuild the project before"
+          + " deploying, as in production the index is used without scanning.");
+  }
+
+  /**
+   * @return A copy of this scanner that walks directories and jars even when they
+   *    carry a page index, merging what it finds with the index.
+   */
+  public Classes scanIndexedRoots() {
+    return new Classes(matcher, true);
   }
 
   private void add(String packageName, Set<Class<?>> classes, String className) {
@@ -133,6 +212,46 @@ class Classes {
       classes.add(clazz);
   }
 
+  //adds the indexed classes that are in the given package (or below it)
+  private void addIndexed(String packageName, InputStream index, Set<Class<?>> classes)
+      throws IOException {
+    String prefix = packageName + '.';
+    BufferedReader reader = new BufferedReader(new InputStreamReader(index, "UTF-8"));
+    try {
+      String name;
+      while (null != (name = reader.readLine())) {
+        name = name.trim();
+        if (!name.startsWith(prefix))
+          continue;
+
+        Class<?> clazz;
+        try {
+          clazz = Class.forName(name);
+        } catch (ClassNotFoundException e) {
+          // The index may outlive a deleted class when compiles are incremental.
+          log.fine("Skipping stale entry in page index: " + name);
+          continue;
+        }
+
+        if (matcher.matches(clazz))
+          classes.add(clazz);
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
+  //walks up from a package directory to the classpath root it lives in
+  private static File rootOf(File packageDir, String packageDirName) {
+    File root = packageDir;
+    for (String ignored : packageDirName.split("/")) {
+      root = root.getParentFile();
+      if (null == root)
+        return packageDir;
+    }
+    return root;
+  }
+
   private void findClassesInDirPackage(String packageName,
                                        String packagePath,
                                        final boolean recursive,
@@ -164,7 +283,7 @@ class Classes {
   }
 
   public static Classes matching(Matcher<? super Class<?>> matcher) {
-    return new Classes(matcher);
+    return new Classes(matcher, false);
   }
 
   private static String toPath(final URL url) {
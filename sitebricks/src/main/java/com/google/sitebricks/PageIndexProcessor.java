@@ -0,0 +1,116 @@
+package com.google.sitebricks;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.sitebricks.rendering.EmbedAs;
+import com.google.sitebricks.rendering.With;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Annotation processor that writes the names of all classes annotated with
+ * {@code @At}, {@code @Show}, {@code @EmbedAs} or {@code @With} into
+ * {@link #INDEX}, next to the compiled classes. At boot, {@link Classes} reads
+ * this index instead of walking every class in a directory or jar that has
+ * one.
+ * <p>
+ * The processor is registered as a service, so it runs for any compile with
+ * Sitebricks on the classpath. Names are merged into an existing index, so
+ * that incremental compiles don't lose pages; stale names are skipped at boot.
+ */
+public class PageIndexProcessor extends AbstractProcessor {
+  public static final String INDEX = "META-INF/sitebricks/pages";
+
+  private final Set<String> classes = new TreeSet<String>();
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    return ImmutableSet.of(At.class.getName(), Show.class.getName(), EmbedAs.class.getName(),
+        With.class.getName());
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+    if (round.processingOver()) {
+      if (!classes.isEmpty())
+        write();
+      return false;
+    }
+
+    for (TypeElement annotation : annotations) {
+      for (Element element : round.getElementsAnnotatedWith(annotation)) {
+        if (element.getKind().isClass() || element.getKind().isInterface()) {
+          classes.add(processingEnv.getElementUtils()
+              .getBinaryName((TypeElement) element)
+              .toString());
+        }
+      }
+    }
+
+    // Never claim these annotations, other processors may want them too.
+    return false;
+  }
+
+  private void write() {
+    readExisting();
+
+    try {
+      FileObject index = processingEnv.getFiler()
+          .createResource(StandardLocation.CLASS_OUTPUT, "", INDEX);
+      Writer writer = new OutputStreamWriter(index.openOutputStream(), "UTF-8");
+      try {
+        for (String name : classes) {
+          writer.write(name);
+          writer.write('\n');
+        }
+      } finally {
+        writer.close();
+      }
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+          "Could not write Sitebricks page index, pages will be found by scanning instead: " + e);
+    }
+  }
+
+  //merges in the index left by a previous (possibly partial) compile, if any
+  private void readExisting() {
+    try {
+      FileObject existing = processingEnv.getFiler()
+          .getResource(StandardLocation.CLASS_OUTPUT, "", INDEX);
+      BufferedReader reader =
+          new BufferedReader(new InputStreamReader(existing.openInputStream(), "UTF-8"));
+      try {
+        String line;
+        while (null != (line = reader.readLine())) {
+          line = line.trim();
+          if (line.length() > 0)
+            classes.add(line);
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (IOException e) {
+      // No previous index.
+    } catch (IllegalArgumentException e) {
+      // Some filers refuse to read output locations; start afresh.
+    }
+  }
+}
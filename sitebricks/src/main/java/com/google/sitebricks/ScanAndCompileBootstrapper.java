@@ -3,6 +3,7 @@ package com.google.sitebricks;
 import com.google.common.collect.HashBiMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Binding;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
@@ -23,7 +24,14 @@ import com.google.sitebricks.routing.SystemMetrics;
 import java.lang.annotation.Annotation;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -80,20 +88,25 @@ class ScanAndCompileBootstrapper implements Bootstrapper {
   }
 
   public void start() {
+    //look for any classes annotated with @At, @EmbedAs and @With
+    Classes scanner = Classes.matching(
+        annotatedWith(At.class).or(
+        annotatedWith(EmbedAs.class)).or(
+        annotatedWith(With.class)).or(
+        annotatedWith(Show.class)));
+
+    // The page index can fall behind incremental compiles during development.
+    if (Stage.DEVELOPMENT == currentStage)
+      scanner = scanner.scanIndexedRoots();
+
     Set<Class<?>> set = Sets.newHashSet();
     for (Package pkg : packages) {
-
-      //look for any classes annotated with @At, @EmbedAs and @With
-      set.addAll(Classes.matching(
-    		  annotatedWith(At.class).or(
-    		  annotatedWith(EmbedAs.class)).or(
-    		  annotatedWith(With.class)).or(
-          annotatedWith(Show.class))
-      ).in(pkg));
+      set.addAll(scanner.in(pkg));
     }
 
     //we need to scan all the pages first (do not collapse into the next loop)
-    Set<PageBook.Page> pagesToCompile = scanPagesToCompile(set);
+    Set<Templates.Descriptor> templatesToLoad = Sets.newHashSet();
+    Set<PageBook.Page> pagesToCompile = scanPagesToCompile(set, templatesToLoad);
     collectBindings(bindings, pagesToCompile);
     extendedPages(pagesToCompile);
 
@@ -101,7 +114,10 @@ class ScanAndCompileBootstrapper implements Bootstrapper {
     // time is more important and compiles are amortized across visits to each page).
     // TODO make this configurable separately to stage for GAE
     if (Stage.DEVELOPMENT != currentStage) {
-      compilePages(pagesToCompile);
+      compilePages(pagesToCompile, templatesToLoad);
+
+      // Eagerly load all detected templates in production mode (already compiled above).
+      this.templates.loadAll(templatesToLoad);
     }
 
     // Start all services.
@@ -160,8 +176,8 @@ class ScanAndCompileBootstrapper implements Bootstrapper {
   }
 
   //goes through the set of scanned classes and builds pages out of them.
-  private Set<PageBook.Page> scanPagesToCompile(Set<Class<?>> set) {
-    Set<Templates.Descriptor> templates = Sets.newHashSet();
+  private Set<PageBook.Page> scanPagesToCompile(Set<Class<?>> set,
+                                                Set<Templates.Descriptor> templates) {
     Set<PageBook.Page> pagesToCompile = Sets.newHashSet();
     for (Class<?> pageClass : set) {
       EmbedAs embedAs = pageClass.getAnnotation(EmbedAs.class);
@@ -198,11 +214,6 @@ class ScanAndCompileBootstrapper implements Bootstrapper {
       }
     }
 
-    // Eagerly load all detected templates in production mode.
-    if (Stage.DEVELOPMENT != currentStage) {
-      this.templates.loadAll(templates);
-    }
-
     return pagesToCompile;
   }
 
@@ -224,35 +235,94 @@ class ScanAndCompileBootstrapper implements Bootstrapper {
     throw new IllegalStateException("Could not find super class annotated with @Show");
   }
 
-  private void compilePages(Set<PageBook.Page> pagesToCompile) {
-    final List<TemplateCompileException> failures = Lists.newArrayList();
-
-    //perform a compilation pass over all the pages and their templates
-    for (PageBook.Page page : pagesToCompile) {
-      Class<?> pageClass = page.pageClass();
+  /**
+   * Compiles all pages and standalone templates on a pool bounded by the number of
+   * processors. Each template class is compiled once (see {@link Compilers#compile}),
+   * so pages that share a template, and {@link Templates}, share its renderable too.
+   */
+  private void compilePages(Set<PageBook.Page> pagesToCompile,
+                            Set<Templates.Descriptor> templatesToLoad) {
+    final Queue<TemplateCompileException> failures =
+        new ConcurrentLinkedQueue<TemplateCompileException>();
+
+    List<Callable<Void>> tasks = Lists.newArrayList();
+    for (final PageBook.Page page : pagesToCompile) {
+      tasks.add(new Callable<Void>() {
+        public Void call() {
+          compilePage(page, failures);
+          return null;
+        }
+      });
+    }
 
-      // Headless web services need to be analyzed but not page-compiled.
-      if (page.isHeadless()) {
-        // TODO(dhanji): Feedback errors as return rather than throwing.
-        compilers.analyze(pageClass);
-        continue;
-      }
+    // Standalone templates are compiled here too, so Templates.loadAll() finds them ready.
+    for (final Templates.Descriptor descriptor : templatesToLoad) {
+      tasks.add(new Callable<Void>() {
+        public Void call() {
+          try {
+            compilers.compile(descriptor.getClazz());
+          } catch (TemplateCompileException e) {
+            // Rethrown by Templates.loadAll(), which aborts startup as it always has.
+          }
+          return null;
+        }
+      });
+    }
 
-      if (log.isLoggable(Level.FINEST)) {
-        log.finest("Compiling template for page " + pageClass.getName());
-      }
+    int threads = Math.max(1, Math.min(tasks.size(), Runtime.getRuntime().availableProcessors()));
+    ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+        .setNameFormat("sitebricks-compiler-%d")
+        .setDaemon(true)
+        .build());
 
-      try {
-        compilers.compilePage(page);
-        compilers.analyze(pageClass);
-      } catch (TemplateCompileException e) {
-        failures.add(e);
+    long start = System.currentTimeMillis();
+    try {
+      for (Future<Void> result : pool.invokeAll(tasks)) {
+        result.get();
       }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while compiling pages", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      if (cause instanceof Error)
+        throw (Error) cause;
+      throw new IllegalStateException("Could not compile pages", cause);
+    } finally {
+      pool.shutdownNow();
     }
 
-    //log failures if any (we don't abort the app startup)
+    log.info("Compiled " + pagesToCompile.size() + " pages and " + templatesToLoad.size()
+        + " templates in " + (System.currentTimeMillis() - start) + "ms on " + threads
+        + " threads");
+
+    //log failures if any (we don't abort the app startup), once per template
     if (!failures.isEmpty()) {
-      logFailures(failures);
+      logFailures(Lists.newArrayList(Sets.newLinkedHashSet(failures)));
+    }
+  }
+
+  private void compilePage(PageBook.Page page, Queue<TemplateCompileException> failures) {
+    Class<?> pageClass = page.pageClass();
+
+    // Headless web services need to be analyzed but not page-compiled.
+    if (page.isHeadless()) {
+      // TODO(dhanji): Feedback errors as return rather than throwing.
+      compilers.analyze(pageClass);
+      return;
+    }
+
+    if (log.isLoggable(Level.FINEST)) {
+      log.finest("Compiling template for page " + pageClass.getName());
+    }
+
+    try {
+      compilers.compilePage(page);
+      compilers.analyze(pageClass);
+    } catch (TemplateCompileException e) {
+      failures.add(e);
     }
   }
 
@@ -0,0 +1,128 @@
+package com.google.sitebricks;
+
+import com.google.common.collect.ForwardingMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+import net.jcip.annotations.NotThreadSafe;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A read-only multimap over the headers or parameters of a servlet request.
+ * Values are read straight from the servlet API, one key at a time, as they
+ * are asked for. The whole map is only copied if something sizes, compares
+ * or iterates it.
+ */
+@NotThreadSafe
+abstract class ServletMultimap extends ForwardingMultimap<String, String> {
+  private final Map<String, Collection<String>> read = new HashMap<String, Collection<String>>();
+  private Multimap<String, String> all;
+
+  /**
+   * @return The values of the given key as read from the servlet request, never null.
+   */
+  abstract Collection<String> read(String key);
+
+  abstract Multimap<String, String> readAll();
+
+  @Override
+  protected Multimap<String, String> delegate() {
+    if (null == all) {
+      all = readAll();
+    }
+    return all;
+  }
+
+  @Override
+  public Collection<String> get(String key) {
+    if (null == key) {
+      return ImmutableList.of();
+    }
+
+    Collection<String> values = read.get(key);
+    if (null == values) {
+      values = read(key);
+      read.put(key, values);
+    }
+    return values;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return key instanceof String && !get((String) key).isEmpty();
+  }
+
+  @Override
+  public boolean containsEntry(Object key, Object value) {
+    return key instanceof String && get((String) key).contains(value);
+  }
+
+  static Multimap<String, String> headersOf(final HttpServletRequest request) {
+    return new ServletMultimap() {
+      @Override
+      Collection<String> read(String key) {
+        @SuppressWarnings("unchecked") // Guaranteed by servlet spec
+        Enumeration<String> values = request.getHeaders(key);
+
+        // Containers may refuse to reveal some headers.
+        if (null == values) {
+          return ImmutableList.of();
+        }
+
+        ImmutableList.Builder<String> builder = ImmutableList.builder();
+        while (values.hasMoreElements()) {
+          builder.add(values.nextElement());
+        }
+        return builder.build();
+      }
+
+      @Override
+      Multimap<String, String> readAll() {
+        ImmutableMultimap.Builder<String, String> builder = ImmutableMultimap.builder();
+
+        @SuppressWarnings("unchecked") // Guaranteed by servlet spec
+        Enumeration<String> headerNames = request.getHeaderNames();
+        while (headerNames.hasMoreElements()) {
+          String header = headerNames.nextElement();
+          builder.putAll(header, get(header));
+        }
+        return builder.build();
+      }
+    };
+  }
+
+  static Multimap<String, String> paramsOf(final HttpServletRequest request) {
+    return new ServletMultimap() {
+      Map<String, String[]> parameterMap;
+
+      @Override
+      Collection<String> read(String key) {
+        String[] values = parameterMap().get(key);
+        return null == values ? ImmutableList.<String>of() : ImmutableList.copyOf(values);
+      }
+
+      @Override
+      Multimap<String, String> readAll() {
+        ImmutableMultimap.Builder<String, String> builder = ImmutableMultimap.builder();
+        for (Map.Entry<String, String[]> entry : parameterMap().entrySet()) {
+          builder.putAll(entry.getKey(), entry.getValue());
+        }
+        return builder.build();
+      }
+
+      // The container keeps this map anyway, so read through it rather than copy it.
+      @SuppressWarnings("unchecked") // Guaranteed by servlet spec
+      private Map<String, String[]> parameterMap() {
+        if (null == parameterMap) {
+          parameterMap = request.getParameterMap();
+        }
+        return parameterMap;
+      }
+    };
+  }
+}
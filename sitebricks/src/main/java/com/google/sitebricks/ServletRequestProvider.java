@@ -1,6 +1,5 @@
 package com.google.sitebricks;
 
-import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
@@ -11,13 +10,16 @@ import com.google.inject.Singleton;
 import com.google.sitebricks.client.Transport;
 import com.google.sitebricks.headless.Request;
 import com.google.sitebricks.http.Parameters;
+import com.google.sitebricks.http.negotiate.AcceptHeaders;
+import com.google.sitebricks.http.negotiate.MediaRange;
 import org.apache.commons.io.IOUtils;
 
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.lang.annotation.Annotation;
-import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -36,162 +38,152 @@ class ServletRequestProvider implements Provider<Request> {
 
   @Override
   public Request get() {
-    return new Request() {
-      HttpServletRequest servletRequest = ServletRequestProvider.this.servletRequest.get();
-      Multimap<String, String> matrix;
-      Multimap<String, String> headers;
-      Multimap<String, String> params;
-      String method;
-
-      @Override
-      public <E> RequestRead<E> read(final Class<E> type) {
-        return new RequestRead<E>() {
-          E memo;
-
-          @Override
-          public E as(Class<? extends Transport> transport) {
-            try {
-              // Only read from the stream once.
-              if (null == memo) {
-                memo = injector.getInstance(transport).in(servletRequest.getInputStream(),
-                    type);
-              }
-            } catch (IOException e) {
-              throw new RuntimeException("Unable to obtain input stream from servlet request" +
-                  " (was it already used or closed elsewhere?). Error:\n" + e.getMessage(), e);
-            }
-
-            return memo;
-          }
-        };
-      }
-
-      @Override
-      public void readTo(OutputStream out) throws IOException {
-        IOUtils.copy(servletRequest.getInputStream(), out);
-      }
+    return new ServletRequest(servletRequest.get());
+  }
 
-      @Override
-      public <E> AsyncRequestRead<E> readAsync(final Class<E> type) {
-        return new AsyncRequestRead<E>() {
-          @Override
-          public AsyncCompletion<E> as(final Class<? extends Transport> transport) {
-            return new AsyncCompletion<E>() {
-              @Override
-              public ListenableFuture<E> future() {
-                SettableFuture<E> future = SettableFuture.create();
-                future.set(read(type).as(transport));
-                return future;
-              }
-
-              @Override
-              public void callback(Object target, String methodName) {
-              }
-
-              @Override
-              public void callback(Object target, Class<? extends Annotation> methodAnnotatedWith) {
-              }
-            };
+  /**
+   * Bound in request scope, so each servlet request has exactly one of these.
+   * Its headers, params and parsed Accept-style headers are read lazily, and
+   * kept for the rest of the request.
+   */
+  private class ServletRequest implements Request, AcceptHeaders {
+    private final HttpServletRequest servletRequest;
+    private final Map<String, List<MediaRange>> mediaRanges =
+        new HashMap<String, List<MediaRange>>();
+    Multimap<String, String> matrix;
+    Multimap<String, String> headers;
+    Multimap<String, String> params;
+    String method;
+
+    private ServletRequest(HttpServletRequest servletRequest) {
+      this.servletRequest = servletRequest;
+    }
+
+    @Override
+    public <E> RequestRead<E> read(final Class<E> type) {
+      return new RequestRead<E>() {
+        E memo;
+
+        @Override
+        public E as(Class<? extends Transport> transport) {
+          try {
+            // Only read from the stream once.
+            if (null == memo) {
+              memo = injector.getInstance(transport).in(servletRequest.getInputStream(),
+                  type);
+            }
+          } catch (IOException e) {
+            throw new RuntimeException("Unable to obtain input stream from servlet request" +
+                " (was it already used or closed elsewhere?). Error:\n" + e.getMessage(), e);
           }
-        };
-      }
 
-      @Override
-      public Multimap<String, String> headers() {
-        if (null == headers) {
-          readHeaders();
+          return memo;
         }
-        return headers;
-      }
-
-      @Override
-      public Multimap<String, String> params() {
-        if (null == params) {
-          readParams();
-        }
-        return params;
-      }
+      };
+    }
+
+    @Override
+    public void readTo(OutputStream out) throws IOException {
+      IOUtils.copy(servletRequest.getInputStream(), out);
+    }
+
+    @Override
+    public <E> AsyncRequestRead<E> readAsync(final Class<E> type) {
+      return new AsyncRequestRead<E>() {
+        @Override
+        public AsyncCompletion<E> as(final Class<? extends Transport> transport) {
+          return new AsyncCompletion<E>() {
+            @Override
+            public ListenableFuture<E> future() {
+              SettableFuture<E> future = SettableFuture.create();
+              future.set(read(type).as(transport));
+              return future;
+            }
 
-      @Override
-      public Multimap<String, String> matrix() {
-        if (null == matrix) {
-          this.matrix = Parameters.readMatrix(servletRequest.getRequestURI());
-        }
-        return matrix;
-      }
+            @Override
+            public void callback(Object target, String methodName) {
+            }
 
-      @Override
-      public String matrixParam(String name) {
-        if (null == matrix) {
-          this.matrix = Parameters.readMatrix(servletRequest.getRequestURI());
+            @Override
+            public void callback(Object target, Class<? extends Annotation> methodAnnotatedWith) {
+            }
+          };
         }
-        return Parameters.singleMatrixParam(name, matrix.get(name));
-      }
+      };
+    }
 
-      @Override
-      public String param(String name) {
-        return servletRequest.getParameter(name);
+    @Override
+    public Multimap<String, String> headers() {
+      if (null == headers) {
+        headers = ServletMultimap.headersOf(servletRequest);
       }
+      return headers;
+    }
 
-      @Override
-      public String header(String name) {
-        return servletRequest.getHeader(name);
+    @Override
+    public Multimap<String, String> params() {
+      if (null == params) {
+        params = ServletMultimap.paramsOf(servletRequest);
       }
-
-      @Override public String uri() {
-        return servletRequest.getRequestURI();
+      return params;
+    }
+
+    @Override
+    public List<MediaRange> mediaRanges(String header) {
+      List<MediaRange> ranges = mediaRanges.get(header);
+      if (null == ranges) {
+        ranges = MediaRange.parse(headers().get(header));
+        mediaRanges.put(header, ranges);
       }
+      return ranges;
+    }
 
-      @Override public String path() {
-        return servletRequest.getRequestURI().substring(servletRequest.getContextPath().length());
+    @Override
+    public Multimap<String, String> matrix() {
+      if (null == matrix) {
+        this.matrix = Parameters.readMatrix(servletRequest.getRequestURI());
       }
+      return matrix;
+    }
 
-      @Override public String context() {
-        return servletRequest.getContextPath();
-      }
-
-      @Override public String method() {
-        // This ugly hack is required because Sitebricks supports simulating PUT/DELETE requests
-        // via browser POST and special form fields.
-        if (method == null) {
-          String ghostMethod = servletRequest.getParameter(HiddenMethodFilter.hiddenFieldName);
-          method = (ghostMethod != null) ? ghostMethod : servletRequest.getMethod();
-        }
-        return method;
-      }
-
-      private void readParams() {
-        ImmutableMultimap.Builder<String, String> builder = ImmutableMultimap.builder();
-
-        @SuppressWarnings("unchecked") // Guaranteed by servlet spec
-            Map<String, String[]> parameterMap = servletRequest.getParameterMap();
-        for (Map.Entry<String, String[]> entry : parameterMap.entrySet()) {
-          builder.putAll(entry.getKey(), entry.getValue());
-        }
-
-        this.params = builder.build();
+    @Override
+    public String matrixParam(String name) {
+      if (null == matrix) {
+        this.matrix = Parameters.readMatrix(servletRequest.getRequestURI());
       }
-
-      private void readHeaders() {
-        // Build once per request only (so do it here).
-        ImmutableMultimap.Builder<String, String> builder = ImmutableMultimap.builder();
-
-        @SuppressWarnings("unchecked") // Guaranteed by servlet spec
-            Enumeration<String> headerNames = servletRequest.getHeaderNames();
-        while (headerNames.hasMoreElements()) {
-          String header = headerNames.nextElement();
-
-          @SuppressWarnings("unchecked") // Guaranteed by servlet spec
-          Enumeration<String> values = servletRequest.getHeaders(header);
-          while (values.hasMoreElements()) {
-            builder.put(header, values.nextElement());
-          }
-        }
-
-        this.headers = builder.build();
+      return Parameters.singleMatrixParam(name, matrix.get(name));
+    }
+
+    @Override
+    public String param(String name) {
+      return servletRequest.getParameter(name);
+    }
+
+    @Override
+    public String header(String name) {
+      return servletRequest.getHeader(name);
+    }
+
+    @Override public String uri() {
+      return servletRequest.getRequestURI();
+    }
+
+    @Override public String path() {
+      return servletRequest.getRequestURI().substring(servletRequest.getContextPath().length());
+    }
+
+    @Override public String context() {
+      return servletRequest.getContextPath();
+    }
+
+    @Override public String method() {
+      // This ugly hack is required because Sitebricks supports simulating PUT/DELETE requests
+      // via browser POST and special form fields.
+      if (method == null) {
+        String ghostMethod = servletRequest.getParameter(HiddenMethodFilter.hiddenFieldName);
+        method = (ghostMethod != null) ? ghostMethod : servletRequest.getMethod();
       }
-
-    };
-
+      return method;
+    }
   }
 }
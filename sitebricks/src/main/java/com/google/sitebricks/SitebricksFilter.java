@@ -6,6 +6,7 @@ import com.google.inject.Singleton;
 import com.google.sitebricks.headless.Reply;
 import com.google.sitebricks.headless.ReplyBasedHeadlessRenderer;
 import com.google.sitebricks.headless.Request;
+import com.google.sitebricks.rendering.resource.ResourceRespond;
 import com.google.sitebricks.routing.RoutingDispatcher;
 import com.google.sitebricks.routing.RoutingDispatcher.Events;
 import net.jcip.annotations.Immutable;
@@ -68,7 +69,10 @@ class SitebricksFilter implements Filter {
       
         //do we need to redirect or was this a successful render?
         final String redirect = respond.getRedirect();
-        if (null != redirect) {
+        if (respond instanceof ResourceRespond) {
+          // Static resources are written as bytes, with their own caching headers.
+          ((ResourceRespond) respond).writeTo(request, response);
+        } else if (null != redirect) {
           response.sendRedirect(redirect);
         } else { //successful render
 
@@ -78,7 +82,11 @@ class SitebricksFilter implements Filter {
             response.setContentType(respond.getContentType());
           }
 
-          response.getWriter().write(respond.toString());
+          // Streamed pages have already written most of their output.
+          if (respond instanceof StreamingRespond)
+            ((StreamingRespond) respond).finish();
+          else
+            response.getWriter().write(respond.toString());
         }
       } else { // It must be a headless Reply. Render the headless response.
         headlessRenderer.render(response, respondObject);
@@ -2,6 +2,7 @@ package com.google.sitebricks;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Stage;
+import com.google.inject.name.Names;
 import com.google.sitebricks.conversion.MvelConversionHandlers;
 import com.google.sitebricks.routing.PageBook;
 import com.google.sitebricks.routing.RoutingDispatcher;
@@ -32,6 +33,10 @@ class SitebricksInternalModule extends AbstractModule {
 
     // use sitebricks converters in mvel
     requestInjection(new MvelConversionHandlers());
+
+    // release the web client's connections and threads at shutdown
+    bind(Aware.class).annotatedWith(Names.named(WebClientShutdown.class.getName()))
+        .to(WebClientShutdown.class);
   }
 
   @Override
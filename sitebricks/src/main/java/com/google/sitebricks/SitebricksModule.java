@@ -15,6 +15,7 @@ import com.google.sitebricks.compiler.FlatTemplateCompiler;
 import com.google.sitebricks.compiler.HtmlTemplateCompiler;
 import com.google.sitebricks.compiler.Parsing;
 import com.google.sitebricks.compiler.TemplateCompiler;
+import com.google.sitebricks.compiler.TemplateParseCache;
 import com.google.sitebricks.compiler.XmlTemplateCompiler;
 import com.google.sitebricks.compiler.template.MvelTemplateCompiler;
 import com.google.sitebricks.compiler.template.freemarker.FreemarkerTemplateCompiler;
@@ -31,8 +32,10 @@ import com.google.sitebricks.http.Trace;
 import com.google.sitebricks.http.negotiate.Accept;
 import com.google.sitebricks.http.negotiate.Negotiation;
 import com.google.sitebricks.rendering.Strings;
+import com.google.sitebricks.rendering.resource.MimeType;
 import com.google.sitebricks.routing.Action;
 
+import java.io.File;
 import java.lang.annotation.Annotation;
 import java.util.Enumeration;
 import java.util.List;
@@ -79,6 +82,7 @@ public class SitebricksModule extends AbstractModule implements PageBinder {
 
     //TODO: yes this is not so nice, but will keep on trying to localize the converter code. jvz.
     converters = Multibinder.newSetBinder(binder(), Converter.class);
+    mimeTypes = Multibinder.newSetBinder(binder(), MimeType.class);
 
     // TODO remove when more of sitebricks internals is guiced
     requestStaticInjection(Parsing.class);
@@ -347,4 +351,33 @@ public class SitebricksModule extends AbstractModule implements PageBinder {
   public final void converter(Class<? extends Converter<?, ?>> clazz) {
     converters.addBinding().to(clazz);
   }  
+
+  //
+  // Mime types of static resources
+  //
+
+  private Multibinder<MimeType> mimeTypes;
+
+  /**
+   * Registers a mime type for static resources, e.g.
+   * {@code mimeType(MimeType.forExtension("svg", "image/svg+xml"))}.
+   * These take precedence over the built-in mime types.
+   */
+  public final void mimeType(MimeType mimeType) {
+    Preconditions.checkArgument(null != mimeType, "Mime types cannot be null");
+    mimeTypes.addBinding().toInstance(mimeType);
+  }
+
+  //
+  // Template parse cache
+  //
+
+  /**
+   * Keeps parsed html templates in the given directory, so that restarts only
+   * re-parse templates (or page classes) that have changed since.
+   */
+  public final void cacheParsedTemplatesIn(File directory) {
+    Preconditions.checkArgument(null != directory, "Template cache directory cannot be null");
+    bind(TemplateParseCache.class).toInstance(new TemplateParseCache(directory));
+  }
 }
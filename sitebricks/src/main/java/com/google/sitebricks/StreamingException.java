@@ -0,0 +1,10 @@
+package com.google.sitebricks;
+
+/**
+ * Thrown when a streamed page cannot be written out to the client mid-render.
+ */
+class StreamingException extends RuntimeException {
+    public StreamingException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,155 @@
+package com.google.sitebricks;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A respond that writes straight through to the servlet response instead of
+ * buffering the entire page. Everything up to the end of the {@code <head>}
+ * section is held back (so that head content and {@code @Require}s can still be
+ * inserted there); after that the body is flushed in chunks of roughly
+ * {@link #CHUNK_SIZE} characters as it renders.
+ * <p>
+ * No more than {@link #MAX_HELD_BACK} characters are held back, whether of
+ * the page or of head content, so a page without a {@code <head>} (or with a
+ * very large one) still streams. Past that, the page is flushed as if its head
+ * had been, and head content is written inline.
+ * <p>
+ * Head content or requires that arrive once the head has been flushed are
+ * written inline at the current position instead. Requires are still de-duplicated.
+ * <p>
+ * Used for pages annotated with {@link com.google.sitebricks.rendering.Streamed}.
+ */
+@NotThreadSafe
+public class StreamingRespond extends StringBuilderRespond {
+  static final int CHUNK_SIZE = 8 * 1024;
+  static final int MAX_HELD_BACK = 8 * CHUNK_SIZE;
+
+  private final HttpServletResponse response;
+  private final StringBuilder buffer = new StringBuilder(CHUNK_SIZE);
+  private final StringBuilder head = new StringBuilder();
+  private final Set<String> requires = new LinkedHashSet<String>();
+
+  // Reusable scratch space for copying the buffer out to the writer.
+  private char[] chunk;
+  private Writer writer;
+  private boolean headFlushed;
+
+  public StreamingRespond(Object context, HttpServletResponse response) {
+    super(context);
+    this.response = response;
+  }
+
+  @Override
+  public void write(String text) {
+    flushIfFull();
+    buffer.append(text);
+  }
+
+  @Override
+  public void write(char c) {
+    flushIfFull();
+    buffer.append(c);
+  }
+
+  // NOTE: we only ever flush *before* a write, so the last character
+  // written is always still in the buffer and can be chewed.
+  @Override
+  public void chew() {
+    buffer.deleteCharAt(buffer.length() - 1);
+  }
+
+  @Override
+  public void require(String require) {
+    if (requires.add(require) && headFlushed)
+      buffer.append(require);
+  }
+
+  @Override
+  public void writeToHead(String text) {
+    if (headFlushed || head.length() + text.length() > MAX_HELD_BACK)
+      buffer.append(text);
+    else
+      head.append(text);
+  }
+
+  @Override
+  public String getHead() {
+    return head.toString();
+  }
+
+  @Override
+  public void clear() {
+    buffer.setLength(0);
+    head.setLength(0);
+  }
+
+  @Override
+  protected void writeHeaderPlaceholder() {
+    buffer.append(head);
+    for (String require : requires) {
+      buffer.append(require);
+    }
+
+    head.setLength(0);
+    headFlushed = true;
+    flush();
+  }
+
+  /**
+   * Writes out whatever is left in the buffer. Called once the page has
+   * finished rendering.
+   */
+  public void finish() throws IOException {
+    flush();
+  }
+
+  /**
+   * @return Only the content that has been rendered but not yet flushed to the
+   *     client.
+   */
+  @Override
+  public String toString() {
+    return buffer.toString();
+  }
+
+  private void flushIfFull() {
+    if (buffer.length() >= (headFlushed ? CHUNK_SIZE : MAX_HELD_BACK))
+      flush();
+  }
+
+  private void flush() {
+    int length = buffer.length();
+    if (0 == length)
+      return;
+
+    if (null == chunk || chunk.length < length)
+      chunk = new char[Math.max(length, CHUNK_SIZE)];
+    buffer.getChars(0, length, chunk, 0);
+
+    try {
+      writer().write(chunk, 0, length);
+    } catch (IOException e) {
+      throw new StreamingException("Unable to stream page to client", e);
+    }
+
+    buffer.setLength(0);
+  }
+
+  private Writer writer() throws IOException {
+    if (null == writer) {
+      // by checking if a content type was set, we allow users to override content-type
+      if (null == response.getContentType())
+        response.setContentType(getContentType());
+
+      writer = response.getWriter();
+    }
+
+    return writer;
+  }
+}
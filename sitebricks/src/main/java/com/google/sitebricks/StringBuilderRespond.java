@@ -18,9 +18,6 @@ public class StringBuilderRespond implements Respond {
   private static final String TEXT_TAG_TEMPLATE = "sitebricks.template.textfield";
   private static final String TEXTAREA_TAG_TEMPLATE = "sitebricks.template.textarea";
 
-  //TODO Improve performance by using an insertion index rather than a placeholder string
-  private static final String HEADER_PLACEHOLDER = "__sb:PLACEhOlDeR:__";
-
   private static final AtomicReference<Map<String, String>> templates =
       new AtomicReference<Map<String, String>>();
 
@@ -46,6 +43,9 @@ public class StringBuilderRespond implements Respond {
   private final StringBuilder out = new StringBuilder();
   private final StringBuilder head = new StringBuilder();
 
+  // Offset in out at which head content is inserted, -1 if there is no <head>.
+  private int headIndex = -1;
+
   //TODO use SortedSet for clustering certain tag types together.
   private final Set<String> requires = new LinkedHashSet<String>();
   private String redirect;
@@ -80,6 +80,10 @@ public class StringBuilderRespond implements Respond {
 
   public void chew() {
     out.deleteCharAt(out.length() - 1);
+
+    // Never leave the insertion point dangling past the end of the page.
+    if (headIndex > out.length())
+      headIndex = out.length();
   }
 
   public String getRedirect() {
@@ -101,6 +105,7 @@ public class StringBuilderRespond implements Respond {
     if (null != head) {
       head.delete(0, head.length());
     }
+    headIndex = -1;
   }
 
   @Override public Object pageObject() {
@@ -113,18 +118,30 @@ public class StringBuilderRespond implements Respond {
     for (String require : requires) {
       writeToHead(require);
     }
+    requires.clear();
 
-    //write header to placeholder...
-    //TODO optimize by scanning upto <body> only (if no head)
-    int index = out.indexOf(HEADER_PLACEHOLDER);
+    if (headIndex < 0) {
+      return out.toString();
+    }
 
-    String output = out.toString();
+    //assemble page around the insertion point in a single copy
+    StringBuilder output = new StringBuilder(out.length() + head.length());
+    output.append(out, 0, headIndex);
+    output.append(head);
+    output.append(out, headIndex, out.length());
 
-    if (index > 0) {
-      output = output.replaceFirst(HEADER_PLACEHOLDER, head.toString());
-    }
+    return output.toString();
+  }
 
-    return output;
+  /**
+   * Marks the point at which head content and requires are to be inserted.
+   * Called at the end of the {@code <head>} section. Only the first such
+   * point in a page is used.
+   */
+  protected void writeHeaderPlaceholder() {
+    if (headIndex < 0) {
+      headIndex = out.length();
+    }
   }
 
   //do NOT make this a static inner class!
@@ -135,7 +152,7 @@ public class StringBuilderRespond implements Respond {
     }
 
     public void headerPlaceholder() {
-      write(HEADER_PLACEHOLDER);
+      writeHeaderPlaceholder();
     }
 
     public void textArea(String bind, String value) {
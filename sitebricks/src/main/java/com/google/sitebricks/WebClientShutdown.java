@@ -0,0 +1,26 @@
+package com.google.sitebricks;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.sitebricks.client.WebClientPool;
+
+/**
+ * Closes the shared HTTP client of {@link com.google.sitebricks.client.Web}
+ * when sitebricks shuts down, so its connections and threads don't outlive
+ * the application.
+ */
+class WebClientShutdown implements Aware {
+  private final Provider<WebClientPool> pool;
+
+  @Inject
+  WebClientShutdown(Provider<WebClientPool> pool) {
+    this.pool = pool;
+  }
+
+  public void startup() {
+  }
+
+  public void shutdown() {
+    pool.get().shutdown();
+  }
+}
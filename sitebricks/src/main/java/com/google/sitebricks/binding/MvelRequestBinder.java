@@ -28,7 +28,8 @@ class MvelRequestBinder implements RequestBinder {
   private final Provider<FlashCache> cacheProvider;
   private final Logger log = Logger.getLogger(MvelRequestBinder.class.getName());
 
-  private static final String VALID_BINDING_REGEX = "[\\w\\.$]*";
+  // Compiled setters for simple properties, so we only go to MVEL for nested paths.
+  private final PropertySetters setters = new PropertySetters();
 
   @Inject
   public MvelRequestBinder(Evaluator evaluator, Provider<FlashCache> cacheProvider) {
@@ -74,7 +75,17 @@ class MvelRequestBinder implements RequestBinder {
 
       //apply the bound value to the page object property
       try {
-        evaluator.write(key, o, value);
+        PropertySetters.Lookup lookup = setters.get(o.getClass(), key);
+        PropertySetters.Setter setter = lookup.setter();
+
+        if (lookup.isAbsent()) {
+          logMissing(key);
+        } else if (null == setter) {
+          evaluator.write(key, o, value);
+        } else if (!setter.set(o, value)) {
+          // Leave unusual conversions to MVEL.
+          evaluator.write(key, o, value);
+        }
       } catch (PropertyAccessException e) {
 
     		// Do some better error reporting if this is a real exception.
@@ -82,10 +93,7 @@ class MvelRequestBinder implements RequestBinder {
     			  addContextAndThrow(o, key, value, e.getCause());
     		  }
         // Log missing property.
-        if (log.isLoggable(Level.FINE)) {
-          log.fine(String.format("A property [%s] could not be bound,"
-              + " but not necessarily an error.", key));
-        }
+        logMissing(key);
       }
       catch (Exception e) {
           addContextAndThrow(o, key, value, e);
@@ -93,6 +101,13 @@ class MvelRequestBinder implements RequestBinder {
     }
   }
 
+  private void logMissing(String key) {
+    if (log.isLoggable(Level.FINE)) {
+      log.fine(String.format("A property [%s] could not be bound,"
+          + " but not necessarily an error.", key));
+    }
+  }
+
 	private void addContextAndThrow(Object bound, String key, Object value, Throwable cause)
 	{
 	  throw new RuntimeException(String.format(
@@ -116,9 +131,25 @@ class MvelRequestBinder implements RequestBinder {
 
   private void validate(String binding) {
     //guard against expression-injection attacks
-    // TODO use an optimized algorithm, rather than a regex?
-    if (Strings.empty(binding) || !binding.matches(VALID_BINDING_REGEX))
+    if (Strings.empty(binding) || !isValidBinding(binding))
       throw new InvalidBindingException(
           "Binding expression (request/form parameter) contained invalid characters: " + binding);
   }
+
+  // Equivalent to matching the regex [\w\.$]* (i.e. ASCII word chars, dots and dollars).
+  static boolean isValidBinding(String binding) {
+    for (int i = 0; i < binding.length(); i++) {
+      char c = binding.charAt(i);
+
+      boolean valid = (c >= 'a' && c <= 'z')
+          || (c >= 'A' && c <= 'Z')
+          || (c >= '0' && c <= '9')
+          || '_' == c || '.' == c || '$' == c;
+
+      if (!valid)
+        return false;
+    }
+
+    return true;
+  }
 }
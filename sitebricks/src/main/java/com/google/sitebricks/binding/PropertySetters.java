@@ -0,0 +1,175 @@
+package com.google.sitebricks.binding;
+
+import com.google.common.collect.MapMaker;
+import com.google.common.primitives.Primitives;
+import net.jcip.annotations.ThreadSafe;
+import org.jetbrains.annotations.Nullable;
+import org.mvel2.DataConversion;
+import org.mvel2.util.PropertyTools;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A concurrent cache of compiled property setters, keyed by bean class and
+ * property name. Setters are resolved exactly as MVEL would resolve them (a
+ * public setter or field), but only once per class and property, rather
+ * than re-interpreting the property expression on every write.
+ * <p>
+ * Only simple (non-nested) properties of non-map beans are compiled; anything
+ * else is left to MVEL.
+ */
+@ThreadSafe
+class PropertySetters {
+  // Setters hold their Method or Field, and with it the bean class that keys
+  // them, so a weak key alone would never be cleared. Holding each class's
+  // setters softly lets an unloaded class (and its class loader) go.
+  private final ConcurrentMap<Class<?>, ConcurrentMap<String, Lookup>> cache =
+      new MapMaker().weakKeys().softValues().makeMap();
+
+  /**
+   * @return How to write the given property of the given class, never null.
+   */
+  public Lookup get(Class<?> clazz, String property) {
+    ConcurrentMap<String, Lookup> lookups = cache.get(clazz);
+    if (null == lookups) {
+      lookups = new MapMaker().makeMap();
+      ConcurrentMap<String, Lookup> existing = cache.putIfAbsent(clazz, lookups);
+      if (null != existing)
+        lookups = existing;
+    }
+
+    Lookup lookup = lookups.get(property);
+    if (null == lookup) {
+      lookup = compile(clazz, property);
+      lookups.putIfAbsent(property, lookup);
+    }
+
+    return lookup;
+  }
+
+  private static Lookup compile(Class<?> clazz, String property) {
+    if (property.indexOf('.') >= 0 || Map.class.isAssignableFrom(clazz))
+      return Lookup.MVEL;
+
+    Member member = PropertyTools.getFieldOrWriteAccessor(clazz, property);
+    if (member instanceof Method) {
+      Method method = (Method) member;
+      if (1 == method.getParameterTypes().length)
+        return new Lookup(new MethodSetter(method));
+    } else if (member instanceof Field) {
+      Field field = (Field) member;
+      if (!Modifier.isFinal(field.getModifiers()))
+        return new Lookup(new FieldSetter(field));
+    } else if (null == member) {
+      return Lookup.ABSENT;
+    }
+
+    // Some kind of accessor we don't understand.
+    return Lookup.MVEL;
+  }
+
+  /**
+   * The result of looking up a property: a compiled setter, or none because
+   * the property must be written by MVEL or because the bean has no such
+   * writable property.
+   */
+  static final class Lookup {
+    // e.g. nested property paths, which are left to MVEL
+    static final Lookup MVEL = new Lookup(null);
+    static final Lookup ABSENT = new Lookup(null);
+
+    private final Setter setter;
+
+    private Lookup(Setter setter) {
+      this.setter = setter;
+    }
+
+    /**
+     * @return The compiled setter, or null if there is none and the property
+     *    must be written by MVEL (or not at all, if {@link #isAbsent()}).
+     */
+    @Nullable
+    public Setter setter() {
+      return setter;
+    }
+
+    public boolean isAbsent() {
+      return ABSENT == this;
+    }
+  }
+
+  /**
+   * Writes a single property of a bean, converting the value as needed.
+   */
+  abstract static class Setter {
+    private final Class<?> type;
+    private final boolean primitive;
+
+    protected Setter(Class<?> type) {
+      this.type = Primitives.wrap(type);
+      this.primitive = type.isPrimitive();
+    }
+
+    /**
+     * @return false if the value could not be converted to the type of this
+     *    property, true if it was written.
+     */
+    public boolean set(Object bean, Object value)
+        throws InvocationTargetException, IllegalAccessException {
+      if (null == value) {
+        if (primitive)
+          return false;
+      } else if (!type.isInstance(value)) {
+        if (!DataConversion.canConvert(type, value.getClass()))
+          return false;
+
+        value = DataConversion.convert(value, type);
+      }
+
+      write(bean, value);
+      return true;
+    }
+
+    protected abstract void write(Object bean, Object value)
+        throws InvocationTargetException, IllegalAccessException;
+  }
+
+  private static class MethodSetter extends Setter {
+    private final Method method;
+
+    private MethodSetter(Method method) {
+      super(method.getParameterTypes()[0]);
+      this.method = method;
+
+      // Public members of non-public classes are otherwise inaccessible.
+      method.setAccessible(true);
+    }
+
+    @Override
+    protected void write(Object bean, Object value)
+        throws InvocationTargetException, IllegalAccessException {
+      method.invoke(bean, value);
+    }
+  }
+
+  private static class FieldSetter extends Setter {
+    private final Field field;
+
+    private FieldSetter(Field field) {
+      super(field.getType());
+      this.field = field;
+      field.setAccessible(true);
+    }
+
+    @Override
+    protected void write(Object bean, Object value) throws IllegalAccessException {
+      field.set(bean, value);
+    }
+  }
+}
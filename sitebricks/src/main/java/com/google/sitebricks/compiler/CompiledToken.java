@@ -1,8 +1,12 @@
 package com.google.sitebricks.compiler;
 
+import java.lang.reflect.Type;
+
 import net.jcip.annotations.Immutable;
 
+import com.google.common.primitives.Primitives;
 import com.google.sitebricks.Evaluator;
+import com.google.sitebricks.Respond;
 
 /**
  * Created with IntelliJ IDEA.
@@ -20,16 +24,21 @@ class CompiledToken implements Token {
     private final boolean isExpression;
     private final Evaluator evaluator;
 
+    // True if the expression's values print as themselves (primitives and their wrappers).
+    private final boolean printsAsIs;
+
     private CompiledToken(String token, boolean expression) {
         this.token = token;
         this.evaluator = null;
         isExpression = expression;
+        printsAsIs = false;
     }
 
-    private CompiledToken(Evaluator evaluator, boolean expression) {
+    private CompiledToken(Evaluator evaluator, boolean expression, boolean printsAsIs) {
         this.evaluator = evaluator;
         isExpression = expression;
         this.token = null;
+        this.printsAsIs = printsAsIs;
     }
 
     public boolean isExpression() {
@@ -42,6 +51,10 @@ class CompiledToken implements Token {
         	if (object instanceof String) {
         		return (String) object;
         	}
+        	else if (printsAsIs && null != object) {
+        		// Same as the default converters, but without looking them up every time.
+        		return object.toString();
+        	}
         	else {
         		return Parsing.getTypeConverter().convert(object, String.class);
         	}
@@ -51,10 +64,24 @@ class CompiledToken implements Token {
         }
     }
 
+    public void render(Object bound, Respond respond) {
+        // String.valueOf() writes null exactly as appending it to a builder used to.
+        respond.write(String.valueOf(render(bound)));
+    }
+
     //local factories
     static CompiledToken expression(String token, EvaluatorCompiler compiler) throws ExpressionCompileException {
         //strip leading ${ and trailing }
-        return new CompiledToken(compiler.compile(token.substring(2, token.length() - 1)), true);
+        String expression = token.substring(2, token.length() - 1);
+        Evaluator evaluator = compiler.compile(expression);
+
+        return new CompiledToken(evaluator, true, printsAsIs(compiler.resolveEgressType(expression)));
+    }
+
+    private static boolean printsAsIs(Type egressType) {
+        return egressType instanceof Class
+            && Primitives.isWrapperType(Primitives.wrap((Class<?>) egressType))
+            && Void.class != Primitives.wrap((Class<?>) egressType);
     }
 
     static CompiledToken text(String token) {
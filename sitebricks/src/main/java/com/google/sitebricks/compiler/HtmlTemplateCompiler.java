@@ -7,8 +7,8 @@ import static com.google.sitebricks.compiler.HtmlParser.LINE_NUMBER_ATTRIBUTE;
 import static com.google.sitebricks.compiler.HtmlParser.SKIP_ATTR;
 
 import java.lang.reflect.Type;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -48,6 +48,7 @@ public class HtmlTemplateCompiler implements TemplateCompiler {
   private final WidgetRegistry registry;
     private final PageBook pageBook;
     private final SystemMetrics metrics;
+    private volatile TemplateParseCache parseCache;
 
     //special widget types (built-in symbol table)
     private static final String REQUIRE_WIDGET = "@require";
@@ -60,6 +61,11 @@ public class HtmlTemplateCompiler implements TemplateCompiler {
         this.pageBook = pageBook;
         this.metrics = metrics;
     }
+
+    @Inject(optional = true)
+    public void setParseCache(TemplateParseCache parseCache) {
+        this.parseCache = parseCache;
+    }
     
     //
     // compiler state
@@ -71,6 +77,7 @@ public class HtmlTemplateCompiler implements TemplateCompiler {
       List<CompileError> warnings = Lists.newArrayList();
       Element form;
       Stack<EvaluatorCompiler> lexicalScopes = new Stack<EvaluatorCompiler>();      
+      int coalescedWidgets;
     }
     
     public Renderable compile(Class<?> page, Template template) {
@@ -81,7 +88,10 @@ public class HtmlTemplateCompiler implements TemplateCompiler {
         pc.lexicalScopes.push(new MvelEvaluatorCompiler(page));
       
         WidgetChain widgetChain;
-        widgetChain = walk(pc, HtmlParser.parse(template.getText()));
+        TemplateParseCache cache = parseCache;
+        widgetChain = walk(pc, (null == cache)
+            ? HtmlParser.parse(template.getText())
+            : cache.parse(page, template.getText()));
 
         // TODO - get the errors when !(isValid)
         if (!pc.errors.isEmpty() || !pc.warnings.isEmpty()) {
@@ -93,6 +103,7 @@ public class HtmlTemplateCompiler implements TemplateCompiler {
                 throw new TemplateCompileException(page, template.getText(), pc.errors, pc.warnings);
         }
 
+      metrics.logCoalescedWidgets(page, pc.coalescedWidgets);
       return widgetChain;
     }
 
@@ -102,6 +113,7 @@ public class HtmlTemplateCompiler implements TemplateCompiler {
         for (Node n: nodes)
             chain.addWidget(widgetize(pc, n, walk(pc, n)));
 
+        pc.coalescedWidgets += Chains.coalesce(chain);
         return chain;
     }
 
@@ -198,6 +210,9 @@ public class HtmlTemplateCompiler implements TemplateCompiler {
             }
         }
 
+        //collapse static markup (children are already collapsed, as this is post-order)
+        pc.coalescedWidgets += Chains.coalesce(widgetChain);
+
         //return computed chain, or a terminal
         return widgetChain;
     }
@@ -385,8 +400,11 @@ public class HtmlTemplateCompiler implements TemplateCompiler {
 			if (egressClass.isArray()) {
 				elementType = Generics.getArrayComponentType(egressType);
             }
-            else if (Collection.class.isAssignableFrom(egressClass)) {
-            	elementType = Generics.getTypeParameter(egressType, Collection.class.getTypeParameters()[0]);
+            else if (Iterable.class.isAssignableFrom(egressClass)) {
+            	elementType = Generics.getTypeParameter(egressType, Iterable.class.getTypeParameters()[0]);
+            }
+            else if (Iterator.class.isAssignableFrom(egressClass)) {
+            	elementType = Generics.getTypeParameter(egressType, Iterator.class.getTypeParameters()[0]);
             }
             else {
             	pc.errors.add(
@@ -94,7 +94,7 @@ public class MvelEvaluatorCompiler implements EvaluatorCompiler {
     //do *not* inline
     final CompiledExpression compiled = compileExpression(expression);
 
-    return new Evaluator() {
+    final Evaluator evaluator = new Evaluator() {
       @Nullable
       public Object evaluate(String expr, Object bean) {
         return MVEL.executeExpression(compiled, bean);
@@ -109,6 +109,10 @@ public class MvelEvaluatorCompiler implements EvaluatorCompiler {
         return MVEL.getProperty(property, contextObject);
       }
     };
+
+    // Plain property chains are read directly, without the interpreter.
+    Evaluator chain = PropertyChainEvaluator.compile(expression, backingType, backingTypes, evaluator);
+    return (null != chain) ? chain : evaluator;
   }
 
   private CompiledExpression compileExpression(String expression)
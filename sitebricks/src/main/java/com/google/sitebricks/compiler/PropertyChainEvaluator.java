@@ -0,0 +1,249 @@
+package com.google.sitebricks.compiler;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.sitebricks.Evaluator;
+import com.google.sitebricks.Visible;
+import com.google.sitebricks.conversion.generics.Generics;
+import net.jcip.annotations.Immutable;
+import org.jetbrains.annotations.Nullable;
+
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates plain bean property chains (like {@code user.address.city})
+ * through getters resolved once, at compile time, rather than through the
+ * MVEL interpreter. Anything other than a chain of javabean properties and
+ * public fields is left to MVEL, as are writes.
+ * <p>
+ * If a property along the chain turns out to be null, the whole expression
+ * is handed to MVEL, so that nulls are treated exactly as they always were.
+ */
+@Immutable
+class PropertyChainEvaluator implements Evaluator {
+  // Words that mean something to MVEL, even though they look like properties.
+  private static final ImmutableSet<String> KEYWORDS = ImmutableSet.of(
+      "this", "null", "nil", "true", "false", "empty", "new", "in", "is", "isdef",
+      "instanceof", "contains", "soundslike", "strsim", "convertable_to", "def",
+      "function", "var", "if", "else", "foreach", "while", "until", "do", "for",
+      "return", "with", "assert", "import", "import_static");
+
+  // Returned by an accessor that cannot resolve its property on a given bean.
+  private static final Object UNRESOLVED = new Object();
+
+  private final Accessor[] chain;
+  private final Evaluator mvel;
+
+  private PropertyChainEvaluator(List<Accessor> chain, Evaluator mvel) {
+    this.chain = chain.toArray(new Accessor[chain.size()]);
+    this.mvel = mvel;
+  }
+
+  /**
+   * @return An evaluator for the given expression if it is a simple property
+   *    chain whose every link can be resolved from the backing type(s), or
+   *    null if the expression must be left to MVEL.
+   */
+  @Nullable
+  static Evaluator compile(String expression, @Nullable Class<?> backingType,
+                           @Nullable Map<String, Type> backingTypes, Evaluator mvel) {
+    String[] properties = properties(expression);
+    if (null == properties)
+      return null;
+
+    List<Accessor> chain = new ArrayList<Accessor>(properties.length);
+    Class<?> type;
+    if (null != backingType) {
+      type = backingType;
+    } else {
+      // The first property is a variable of the evaluation context.
+      Type variable = (null == backingTypes) ? null : backingTypes.get(properties[0]);
+      if (null == variable)
+        return null;
+
+      chain.add(new MapAccessor(properties[0]));
+      type = Generics.erase(variable);
+    }
+
+    for (int i = chain.size(); i < properties.length; i++) {
+      Accessor accessor = resolve(type, properties[i], i == 0);
+      if (null == accessor)
+        return null;
+
+      chain.add(accessor);
+      type = accessor.type();
+    }
+
+    return new PropertyChainEvaluator(chain, mvel);
+  }
+
+  // Splits a chain of java identifiers, or returns null if it is anything else.
+  @Nullable
+  private static String[] properties(String expression) {
+    String[] properties = expression.split("\\.", -1);
+    for (String property : properties) {
+      if (property.length() == 0 || KEYWORDS.contains(property)
+          || !Character.isJavaIdentifierStart(property.charAt(0)))
+        return null;
+
+      for (int i = 1; i < property.length(); i++) {
+        if (!Character.isJavaIdentifierPart(property.charAt(i)))
+          return null;
+      }
+    }
+
+    return properties;
+  }
+
+  @Nullable
+  private static Accessor resolve(Class<?> type, String property, boolean page) {
+    // MVEL treats properties of maps as keys, and we know nothing about Object.
+    if (Object.class == type || Map.class.isAssignableFrom(type) || type.isArray())
+      return null;
+
+    try {
+      for (PropertyDescriptor descriptor : Introspector.getBeanInfo(type).getPropertyDescriptors()) {
+        if (property.equals(descriptor.getName()) && null != descriptor.getReadMethod())
+          return new MethodAccessor(descriptor.getReadMethod());
+      }
+    } catch (IntrospectionException e) {
+      return null;
+    }
+
+    for (Class<?> declaring = type; null != declaring; declaring = declaring.getSuperclass()) {
+      for (Field field : declaring.getDeclaredFields()) {
+        if (!property.equals(field.getName()) || Modifier.isStatic(field.getModifiers()))
+          continue;
+
+        // Non-public page fields are visible to templates when annotated as such.
+        boolean visible = Modifier.isPublic(field.getModifiers())
+            || (page && field.isAnnotationPresent(Visible.class));
+        return visible ? new FieldAccessor(field) : null;
+      }
+    }
+
+    return null;
+  }
+
+  @Nullable
+  public Object evaluate(String expr, Object bean) {
+    Object value = bean;
+    for (Accessor accessor : chain) {
+      if (null == value)
+        return mvel.evaluate(expr, bean);
+
+      value = accessor.get(value);
+      if (UNRESOLVED == value)
+        return mvel.evaluate(expr, bean);
+    }
+
+    return value;
+  }
+
+  public void write(String expr, Object bean, Object value) {
+    mvel.write(expr, bean, value);
+  }
+
+  public Object read(String property, Object contextObject) {
+    return mvel.read(property, contextObject);
+  }
+
+  private abstract static class Accessor {
+    abstract Object get(Object bean);
+
+    abstract Class<?> type();
+  }
+
+  private static class MapAccessor extends Accessor {
+    private final String key;
+
+    private MapAccessor(String key) {
+      this.key = key;
+    }
+
+    @Override
+    Object get(Object bean) {
+      if (!(bean instanceof Map))
+        return UNRESOLVED;
+
+      Map<?, ?> context = (Map<?, ?>) bean;
+      Object value = context.get(key);
+      return (null != value || context.containsKey(key)) ? value : UNRESOLVED;
+    }
+
+    @Override
+    Class<?> type() {
+      return Object.class;
+    }
+  }
+
+  private static class MethodAccessor extends Accessor {
+    private final Method getter;
+
+    private MethodAccessor(Method getter) {
+      this.getter = getter;
+
+      // Public members of non-public classes are otherwise inaccessible.
+      getter.setAccessible(true);
+    }
+
+    @Override
+    Object get(Object bean) {
+      if (!getter.getDeclaringClass().isInstance(bean))
+        return UNRESOLVED;
+
+      try {
+        return getter.invoke(bean);
+      } catch (IllegalAccessException e) {
+        return UNRESOLVED;
+      } catch (InvocationTargetException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException)
+          throw (RuntimeException) cause;
+        if (cause instanceof Error)
+          throw (Error) cause;
+        throw new IllegalStateException("Could not read property via " + getter, cause);
+      }
+    }
+
+    @Override
+    Class<?> type() {
+      return Generics.erase(getter.getGenericReturnType());
+    }
+  }
+
+  private static class FieldAccessor extends Accessor {
+    private final Field field;
+
+    private FieldAccessor(Field field) {
+      this.field = field;
+      field.setAccessible(true);
+    }
+
+    @Override
+    Object get(Object bean) {
+      if (!field.getDeclaringClass().isInstance(bean))
+        return UNRESOLVED;
+
+      try {
+        return field.get(bean);
+      } catch (IllegalAccessException e) {
+        return UNRESOLVED;
+      }
+    }
+
+    @Override
+    Class<?> type() {
+      return Generics.erase(field.getGenericType());
+    }
+  }
+}
@@ -3,9 +3,17 @@ package com.google.sitebricks.compiler;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import com.google.common.collect.MapMaker;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.google.inject.Stage;
 import com.google.sitebricks.Bricks;
 import com.google.sitebricks.MissingTemplateException;
 import com.google.sitebricks.Renderable;
@@ -17,6 +25,10 @@ import com.google.sitebricks.routing.PageBook;
 
 /**
  * A factory for internal template compilers.
+ * <p>
+ * Outside development mode each template class is compiled only once, even
+ * when it is asked for concurrently (or by both a page and {@code Templates}),
+ * and every caller shares the resulting renderable.
  *
  * @author Dhanji R. Prasanna (dhanji@gmail com)
  */
@@ -25,12 +37,18 @@ class StandardCompilers implements Compilers {
   private final PageBook pageBook;
   private final Map<String, Class<? extends Annotation>> httpMethods;
   private final TemplateLoader loader;
+  private final boolean reloadTemplates;
+
+  private final ConcurrentMap<Class<?>, FutureTask<Renderable>> compiled = new MapMaker().makeMap();
+
+  private final Logger log = Logger.getLogger(StandardCompilers.class.getName());
 
   @Inject
-  public StandardCompilers(PageBook pageBook, @Bricks Map<String, Class<? extends Annotation>> httpMethods, TemplateLoader loader) {
+  public StandardCompilers(PageBook pageBook, @Bricks Map<String, Class<? extends Annotation>> httpMethods, TemplateLoader loader, Stage stage) {
     this.pageBook = pageBook;
     this.httpMethods = httpMethods;
     this.loader = loader;
+    this.reloadTemplates = Stage.DEVELOPMENT == stage;
   }
   
   // TODO(dhanji): Feedback errors as return rather than throwing.
@@ -108,7 +126,49 @@ class StandardCompilers implements Compilers {
   }
     
   @Override
-  public Renderable compile(Class<?> templateClass) {    
-    return loader.compile(templateClass);
-  }  
+  public Renderable compile(final Class<?> templateClass) {
+    if (reloadTemplates)
+      return load(templateClass);
+
+    FutureTask<Renderable> task = compiled.get(templateClass);
+    if (null == task) {
+      FutureTask<Renderable> newTask = new FutureTask<Renderable>(new Callable<Renderable>() {
+        public Renderable call() {
+          return load(templateClass);
+        }
+      });
+
+      // Whoever wins the put compiles, everyone else waits on the winner.
+      task = compiled.putIfAbsent(templateClass, newTask);
+      if (null == task) {
+        task = newTask;
+        task.run();
+      }
+    }
+
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while compiling template for " + templateClass, e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException)
+        throw (RuntimeException) cause;
+      if (cause instanceof Error)
+        throw (Error) cause;
+      throw new IllegalStateException("Could not compile template for " + templateClass, cause);
+    }
+  }
+
+  private Renderable load(Class<?> templateClass) {
+    long start = System.currentTimeMillis();
+    Renderable renderable = loader.compile(templateClass);
+
+    if (log.isLoggable(Level.FINE)) {
+      log.fine("Compiled template for " + templateClass.getName() + " in "
+          + (System.currentTimeMillis() - start) + "ms");
+    }
+    return renderable;
+  }
 }
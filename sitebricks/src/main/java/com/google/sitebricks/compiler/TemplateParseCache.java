@@ -0,0 +1,347 @@
+package com.google.sitebricks.compiler;
+
+import com.google.common.base.Preconditions;
+import net.jcip.annotations.ThreadSafe;
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Comment;
+import org.jsoup.nodes.DataNode;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.nodes.XmlDeclaration;
+import org.jsoup.parser.Tag;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps parsed html templates on disk, so that warm restarts compile unchanged
+ * templates without parsing them again. Each page's entry records a hash of its
+ * template text and of its page class's bytecode; if either has changed the
+ * template is parsed afresh and the entry is replaced.
+ * <p>
+ * Only the parsed node tree is stored. Widgets hold live collaborators and
+ * compiled expressions, so they are still built from the tree at every start.
+ * Failing to read or write the cache is never fatal: the template is simply
+ * parsed as if there were no cache.
+ */
+@ThreadSafe
+public final class TemplateParseCache {
+  private static final int MAGIC = 0x53425450; // "SBTP"
+  private static final int VERSION = 1;
+
+  private static final byte ELEMENT = 1;
+  private static final byte TEXT = 2;
+  private static final byte ANNOTATION = 3;
+  private static final byte DATA = 4;
+  private static final byte COMMENT = 5;
+  private static final byte DECLARATION = 6;
+
+  private static final String UTF_8 = "UTF-8";
+
+  private final File directory;
+  private final Logger log = Logger.getLogger(TemplateParseCache.class.getName());
+
+  public TemplateParseCache(File directory) {
+    Preconditions.checkArgument(null != directory, "Template cache directory cannot be null");
+    this.directory = directory;
+  }
+
+  /**
+   * @return The parsed template for the given page, from the cache if it was
+   *    stored for this exact template and page class, otherwise freshly parsed
+   *    (and stored for next time).
+   */
+  List<Node> parse(Class<?> page, String text) {
+    File entry = new File(directory, page.getName() + ".parsed");
+    String templateHash = hex(sha1().digest(bytes(text)));
+    String classHash = classHash(page);
+
+    if (entry.isFile()) {
+      try {
+        List<Node> nodes = read(entry, templateHash, classHash);
+        if (null != nodes)
+          return nodes;
+      } catch (IOException e) {
+        log.log(Level.FINE, "Ignoring unreadable template cache entry " + entry, e);
+      } catch (RuntimeException e) {
+        // A damaged entry can still decode into values jsoup rejects.
+        log.log(Level.FINE, "Ignoring unreadable template cache entry " + entry, e);
+      }
+    }
+
+    List<Node> nodes = HtmlParser.parse(text);
+    try {
+      write(entry, templateHash, classHash, nodes);
+    } catch (IOException e) {
+      log.log(Level.WARNING, "Could not write template cache entry " + entry, e);
+    } catch (IllegalArgumentException e) {
+      log.log(Level.FINE, "Template for " + page.getName() + " cannot be cached", e);
+    }
+
+    return nodes;
+  }
+
+  // Returns null if the entry is stale.
+  private static List<Node> read(File entry, String templateHash, String classHash)
+      throws IOException {
+    // No count or length in a sound entry can exceed the entry's own size.
+    long limit = entry.length();
+    DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(entry)));
+    try {
+      if (MAGIC != in.readInt() || VERSION != in.readInt())
+        return null;
+      if (!templateHash.equals(in.readUTF()) || !classHash.equals(in.readUTF()))
+        return null;
+
+      // Nodes are numbered in the order they are read, so the top level can refer to them.
+      List<Node> all = new ArrayList<Node>();
+      int roots = readLength(in, limit);
+      for (int i = 0; i < roots; i++) {
+        readNode(in, all, limit);
+      }
+
+      int topLevel = readLength(in, limit);
+      List<Node> nodes = new ArrayList<Node>(topLevel);
+      for (int i = 0; i < topLevel; i++) {
+        nodes.add(all.get(in.readInt()));
+      }
+      return nodes;
+    } catch (IndexOutOfBoundsException e) {
+      throw new IOException("Corrupt template cache entry: " + entry);
+    } finally {
+      in.close();
+    }
+  }
+
+  private static Node readNode(DataInputStream in, List<Node> all, long limit)
+      throws IOException {
+    byte kind = in.readByte();
+    String value = readString(in, limit);
+    String baseUri = readString(in, limit);
+
+    Node node;
+    switch (kind) {
+      case ELEMENT:
+        node = new Element(Tag.valueOf(value), baseUri);
+        break;
+      case TEXT:
+        node = new TextNode(value, baseUri);
+        break;
+      case ANNOTATION:
+        node = new AnnotationNode(value, baseUri);
+        break;
+      case DATA:
+        node = new DataNode(value, baseUri);
+        break;
+      case COMMENT:
+        node = new Comment(value, baseUri);
+        break;
+      case DECLARATION:
+        node = new XmlDeclaration(value, baseUri, in.readBoolean());
+        break;
+      default:
+        throw new IOException("Unknown node kind in template cache: " + kind);
+    }
+    all.add(node);
+
+    int attributes = readLength(in, limit);
+    for (int i = 0; i < attributes; i++) {
+      node.attr(readString(in, limit), readString(in, limit));
+    }
+
+    int children = readLength(in, limit);
+    if (children > 0 && !(node instanceof Element))
+      throw new IOException("Only elements have children in the template cache, not: " + kind);
+    for (int i = 0; i < children; i++) {
+      ((Element) node).appendChild(readNode(in, all, limit));
+    }
+    return node;
+  }
+
+  private void write(File entry, String templateHash, String classHash, List<Node> nodes)
+      throws IOException {
+    // The parser's top level may include nodes that are also children of others, so
+    // whole trees are written once and the top level refers to their nodes by number.
+    Map<Node, Integer> numbers = new IdentityHashMap<Node, Integer>();
+    List<Node> roots = new ArrayList<Node>();
+    for (Node node : nodes) {
+      Node root = node;
+      while (null != root.parent())
+        root = root.parent();
+
+      if (!numbers.containsKey(root)) {
+        roots.add(root);
+        number(root, numbers);
+      }
+    }
+
+    if (!directory.isDirectory() && !directory.mkdirs())
+      throw new IOException("Could not create template cache directory " + directory);
+
+    // Write to the side and move into place, so readers never see half an entry.
+    File temp = File.createTempFile(entry.getName(), ".tmp", directory);
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+    boolean written = false;
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeUTF(templateHash);
+      out.writeUTF(classHash);
+
+      out.writeInt(roots.size());
+      for (Node root : roots) {
+        writeNode(out, root);
+      }
+
+      out.writeInt(nodes.size());
+      for (Node node : nodes) {
+        out.writeInt(numbers.get(node));
+      }
+      written = true;
+    } finally {
+      out.close();
+      if (!written)
+        temp.delete();
+    }
+
+    if (!temp.renameTo(entry)) {
+      // Some platforms won't rename over an existing file.
+      entry.delete();
+      if (!temp.renameTo(entry)) {
+        temp.delete();
+        throw new IOException("Could not move template cache entry into place: " + entry);
+      }
+    }
+  }
+
+  //numbers nodes in the same (pre-)order that they are written and read
+  private static void number(Node node, Map<Node, Integer> numbers) {
+    numbers.put(node, numbers.size());
+    for (Node child : node.childNodes()) {
+      number(child, numbers);
+    }
+  }
+
+  private static void writeNode(DataOutputStream out, Node node) throws IOException {
+    if (node instanceof Element) {
+      out.writeByte(ELEMENT);
+      writeString(out, ((Element) node).tagName());
+    } else if (node instanceof AnnotationNode) {
+      out.writeByte(ANNOTATION);
+      writeString(out, ((AnnotationNode) node).getWholeText());
+    } else if (node instanceof TextNode) {
+      out.writeByte(TEXT);
+      writeString(out, ((TextNode) node).getWholeText());
+    } else if (node instanceof DataNode) {
+      out.writeByte(DATA);
+      writeString(out, ((DataNode) node).getWholeData());
+    } else if (node instanceof Comment) {
+      out.writeByte(COMMENT);
+      writeString(out, ((Comment) node).getData());
+    } else if (node instanceof XmlDeclaration) {
+      out.writeByte(DECLARATION);
+      writeString(out, ((XmlDeclaration) node).getWholeDeclaration());
+    } else {
+      throw new IllegalArgumentException("Cannot cache node of type " + node.getClass());
+    }
+    writeString(out, node.baseUri());
+
+    if (node instanceof XmlDeclaration)
+      out.writeBoolean(node.outerHtml().startsWith("<!"));
+
+    List<Attribute> attributes = node.attributes().asList();
+    out.writeInt(attributes.size());
+    for (Attribute attribute : attributes) {
+      writeString(out, attribute.getKey());
+      writeString(out, attribute.getValue());
+    }
+
+    out.writeInt(node.childNodes().size());
+    for (Node child : node.childNodes()) {
+      writeNode(out, child);
+    }
+  }
+
+  // Unlike writeUTF(), not limited to 64k (scripts can be long).
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = bytes(value);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(DataInputStream in, long limit) throws IOException {
+    byte[] bytes = new byte[readLength(in, limit)];
+    in.readFully(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  private static int readLength(DataInputStream in, long limit) throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > limit)
+      throw new IOException("Corrupt length in template cache entry: " + length);
+    return length;
+  }
+
+  private static String classHash(Class<?> page) {
+    InputStream in = page.getResourceAsStream('/' + page.getName().replace('.', '/') + ".class");
+    if (null == in)
+      return "";
+
+    try {
+      try {
+        MessageDigest digest = sha1();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+          digest.update(buffer, 0, read);
+        }
+        return hex(digest.digest());
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      return "";
+    }
+  }
+
+  private static String hex(byte[] digest) {
+    StringBuilder hex = new StringBuilder(digest.length * 2);
+    for (byte b : digest) {
+      hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+    }
+    return hex.toString();
+  }
+
+  private static MessageDigest sha1() {
+    try {
+      return MessageDigest.getInstance("SHA-1");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-1 is not available", e);
+    }
+  }
+
+  private static byte[] bytes(String value) {
+    try {
+      return value.getBytes(UTF_8);
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
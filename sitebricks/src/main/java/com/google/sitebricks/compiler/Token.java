@@ -1,5 +1,7 @@
 package com.google.sitebricks.compiler;
 
+import com.google.sitebricks.Respond;
+
 /**
  * Represents a compiled, evaluable expression or raw String token.
  *
@@ -25,4 +27,10 @@ public interface Token {
      *
      */
     String render(Object bound);
+
+    /**
+     * Renders this token straight into the given respond, as {@link #render(Object)}
+     * would have rendered it.
+     */
+    void render(Object bound, Respond respond);
 }
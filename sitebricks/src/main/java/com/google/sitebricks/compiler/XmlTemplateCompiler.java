@@ -3,7 +3,7 @@ package com.google.sitebricks.compiler;
 import java.io.IOException;
 import java.io.StringReader;
 import java.lang.reflect.Type;
-import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Stack;
@@ -401,7 +401,11 @@ public class XmlTemplateCompiler implements TemplateCompiler {
 
         try {
             Type egressType = pc.lexicalScopes.peek().resolveEgressType(repeat.items());
-            Type elementType = Generics.getTypeParameter(egressType, Collection.class.getTypeParameters()[0]);
+            Type elementType;
+            if (Iterator.class.isAssignableFrom(Generics.erase(egressType)))
+                elementType = Generics.getTypeParameter(egressType, Iterator.class.getTypeParameters()[0]);
+            else
+                elementType = Generics.getTypeParameter(egressType, Iterable.class.getTypeParameters()[0]);
 
             context.put(repeat.var(), elementType);
             context.put(repeat.pageVar(), pc.page);
@@ -0,0 +1,16 @@
+package com.google.sitebricks.http.negotiate;
+
+import java.util.List;
+
+/**
+ * Implemented by requests that parse each Accept-style header at most once,
+ * and keep the result for as long as the request lives. Negotiators should
+ * go through {@link MediaRange#of} rather than use this directly.
+ */
+public interface AcceptHeaders {
+  /**
+   * @return All values of the given header parsed into media ranges, in the
+   *    order they were sent. Empty (never null) if the header is absent.
+   */
+  List<MediaRange> mediaRanges(String header);
+}
@@ -0,0 +1,163 @@
+package com.google.sitebricks.http.negotiate;
+
+import com.google.common.collect.ImmutableList;
+import com.google.sitebricks.headless.Request;
+import net.jcip.annotations.Immutable;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One comma separated piece of an Accept-style header, for example
+ * {@code text/html;q=0.7}. Pieces that are not media types (say, in
+ * {@code Accept-Language}) keep their raw text but have no type or subtype.
+ */
+@Immutable
+public final class MediaRange {
+  // Lifted TOKEN, TYPE_PATTERN  from com.google.gdata.util
+
+  private static final String TOKEN =
+    "[\\p{ASCII}&&[^\\p{Cntrl} ;/=\\[\\]\\(\\)\\<\\>\\@\\,\\:\\\"\\?\\=]]+";
+
+  private static final Pattern TYPE_PATTERN = Pattern.compile(
+    "(" + TOKEN + ")" +         // mediatype (G1)
+    "/" +                       // separator
+    "(" + TOKEN + ")" +         // subtype (G2)
+    "\\s*(.*)\\s*", Pattern.DOTALL);
+
+  private static final Pattern SEPARATOR = Pattern.compile(",[ ]*");
+
+  private final String raw;
+  private final String type;
+  private final String subtype;
+  private final float quality;
+
+  private MediaRange(String raw, String type, String subtype, float quality) {
+    this.raw = raw;
+    this.type = type;
+    this.subtype = subtype;
+    this.quality = quality;
+  }
+
+  /**
+   * @return This piece of the header exactly as it was sent.
+   */
+  public String raw() {
+    return raw;
+  }
+
+  /**
+   * @return The lower-cased media type, or null if this is not a media type.
+   */
+  public String type() {
+    return type;
+  }
+
+  /**
+   * @return The lower-cased subtype (possibly {@code *}), or null if this is
+   *    not a media type.
+   */
+  public String subtype() {
+    return subtype;
+  }
+
+  /**
+   * @return The {@code q} parameter, or 1 if there was none.
+   */
+  public float quality() {
+    return quality;
+  }
+
+  public boolean isMediaType() {
+    return null != type;
+  }
+
+  /**
+   * @return 0 for {@code *}{@code /*}, 1 for a wildcard subtype such as
+   *    {@code text/*}, 2 for a full media type, and -1 if this is not a
+   *    media type at all.
+   */
+  public int specificity() {
+    if (null == type)
+      return -1;
+    if ("*".equals(type))
+      return 0;
+    return "*".equals(subtype) ? 1 : 2;
+  }
+
+  /**
+   * @return True if the two ranges have any media type in common (either
+   *    may contain wildcards).
+   */
+  public boolean overlaps(MediaRange other) {
+    return isMediaType() && other.isMediaType()
+        && ("*".equals(type) || "*".equals(other.type) || type.equals(other.type))
+        && ("*".equals(subtype) || "*".equals(other.subtype) || subtype.equals(other.subtype));
+  }
+
+  /**
+   * Parses a single header value into its comma separated media ranges.
+   */
+  public static List<MediaRange> parse(String value) {
+    ImmutableList.Builder<MediaRange> ranges = ImmutableList.builder();
+    for (String piece : SEPARATOR.split(value)) {
+      ranges.add(parseOne(piece));
+    }
+    return ranges.build();
+  }
+
+  /**
+   * Parses all values of the given header. Requests that keep their parsed
+   * headers (see {@link AcceptHeaders}) are asked for them instead, so each
+   * header is parsed at most once per request.
+   */
+  public static List<MediaRange> of(Request request, String header) {
+    if (request instanceof AcceptHeaders) {
+      return ((AcceptHeaders) request).mediaRanges(header);
+    }
+    return parse(request.headers().get(header));
+  }
+
+  /**
+   * Parses every value of a header, in order, as if they had been sent as
+   * one comma separated value (RFC 2616, section 4.2).
+   */
+  public static List<MediaRange> parse(Iterable<String> values) {
+    ImmutableList.Builder<MediaRange> ranges = ImmutableList.builder();
+    for (String value : values) {
+      ranges.addAll(parse(value));
+    }
+    return ranges.build();
+  }
+
+  private static MediaRange parseOne(String piece) {
+    Matcher mediaType = TYPE_PATTERN.matcher(piece);
+    if (!mediaType.matches()) {
+      return new MediaRange(piece, null, null, 1.0f);
+    }
+
+    return new MediaRange(piece, mediaType.group(1).toLowerCase(),
+        mediaType.group(2).toLowerCase(), quality(mediaType.group(3)));
+  }
+
+  private static float quality(String parameters) {
+    for (String parameter : parameters.split(";")) {
+      parameter = parameter.trim();
+      if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+        try {
+          float quality = Float.parseFloat(parameter.substring(2).trim());
+          return Math.max(0.0f, Math.min(1.0f, quality));
+        } catch (NumberFormatException e) {
+          // Malformed, so ignore it like any other unknown parameter.
+        }
+      }
+    }
+    return 1.0f;
+  }
+
+  @Override
+  public String toString() {
+    return raw;
+  }
+}
@@ -1,11 +1,10 @@
 package com.google.sitebricks.http.negotiate;
 
-import com.google.common.collect.Multimap;
+import com.google.common.collect.ImmutableMap;
 import com.google.sitebricks.headless.Request;
 
-import java.util.Collection;
-import java.util.Iterator;
 import java.util.Map;
+import java.util.regex.Pattern;
 
 /**
  * ContentNegotiator that supports one regex match value, for example
@@ -13,32 +12,44 @@ import java.util.Map;
  * HTTP Accept header "text/*" and {@literal @}Referer("(google|yahoo|bing)\\.com") will
  * match requests with HTTP Referer headers from google, yahoo, or bing
  */
-public class RegexNegotiator implements ContentNegotiator {
+public class RegexNegotiator implements ScoringNegotiator {
 
   public boolean shouldCall(Map<String, String> negotiations, Request request) {
-    Multimap<String, String> headers = request.headers();
-    for (Map.Entry<String, String> negotiate : negotiations.entrySet()) {
-
-      Collection<String> collectionOfHeader = headers.get(negotiate.getKey());
-      if (null == collectionOfHeader)
-        continue;
-      Iterator<String> headerValues = collectionOfHeader.iterator();
-      String match = negotiate.getValue();
+    return NOT_ACCEPTABLE != compile(negotiations).score(request);
+  }
 
-      boolean shouldFire = false;       // Guaranteed never to throw NPE
-      while (headerValues.hasNext()) {
-        String value = headerValues.next();
+  public Compiled compile(Map<String, String> negotiations) {
+    // Compile each expression once, rather than on every String.matches().
+    ImmutableMap.Builder<String, Pattern> builder = ImmutableMap.builder();
+    for (Map.Entry<String, String> negotiate : negotiations.entrySet()) {
+      builder.put(negotiate.getKey(), Pattern.compile(negotiate.getValue()));
+    }
+    final Map<String, Pattern> patterns = builder.build();
 
-        shouldFire |= value.matches(match);
-        
-        for (String val: value.split(",[ ]*")) {
-         shouldFire |= val.matches(match);
+    return new Compiled() {
+      public int score(Request request) {
+        for (Map.Entry<String, Pattern> negotiate : patterns.entrySet()) {
+          if (!matches(negotiate.getValue(), request, negotiate.getKey())) {
+            return NOT_ACCEPTABLE;
+          }
         }
+        return 0;
       }
-      if (!shouldFire) {
-        return false;
+    };
+  }
+
+  // Either a whole header value or one of its comma separated pieces may match.
+  private static boolean matches(Pattern pattern, Request request, String header) {
+    for (String value : request.headers().get(header)) {
+      if (pattern.matcher(value).matches()) {
+        return true;
+      }
+    }
+    for (MediaRange piece : MediaRange.of(request, header)) {
+      if (pattern.matcher(piece.raw()).matches()) {
+        return true;
       }
     }
-    return true;
+    return false;
   }
 }
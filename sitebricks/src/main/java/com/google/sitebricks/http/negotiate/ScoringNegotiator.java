@@ -0,0 +1,34 @@
+package com.google.sitebricks.http.negotiate;
+
+import com.google.sitebricks.headless.Request;
+
+import java.util.Map;
+
+/**
+ * A {@link ContentNegotiator} that compiles each request handler's negotiation
+ * rules once, at startup, and then scores requests against them instead of
+ * only accepting or rejecting them. When more than one handler can serve a
+ * request, the one with the best score is called.
+ */
+public interface ScoringNegotiator extends ContentNegotiator {
+  /**
+   * The score of a request that must not be served by a handler.
+   */
+  int NOT_ACCEPTABLE = -1;
+
+  /**
+   * @param negotiations A Map of header names to match expressions, exactly
+   *    as given to {@link #shouldCall}.
+   * @return The rules in a form that is quick to score requests against.
+   */
+  Compiled compile(Map<String, String> negotiations);
+
+  interface Compiled {
+    /**
+     * @return {@link #NOT_ACCEPTABLE} if the request fails these rules,
+     *    otherwise a score where higher is a better match. A handler without
+     *    any rules scores zero.
+     */
+    int score(Request request);
+  }
+}
@@ -1,13 +1,10 @@
 package com.google.sitebricks.http.negotiate;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Sets;
+import com.google.common.collect.ImmutableMap;
 import com.google.sitebricks.headless.Request;
 
-import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.List;
+import java.util.Map;
 
 /**
  * ContentNegotiator that supports comma separated and wildcard matches in Accept header style
@@ -16,84 +13,112 @@ import java.util.regex.Pattern;
  * request with headers "Accept: text/html" or "Accept: text/plain"
  *
  * Notes:
- *   Wildcard for subtypes such as "text/*, image/*" are supported but there is no
- *   wildcard matching on the main media types.   Negotiating on other HTTP request
- *   headers where "/*" might be useful is currently undefined.
+ *   Quality values are honored as in RFC 2616, section 14.1: a media type is scored by
+ *   the q-value of the most specific range in the request that matches it, and q=0 means
+ *   not acceptable. Among several matching handlers, the one with the highest q-value
+ *   wins, then the one matched most specifically. Pieces that are not media types are
+ *   matched literally (and case sensitively).
+ *
+ *   Requests whose header has no media types at all are accepted with a neutral score.
  *
  *
  */
-public class WildcardNegotiator implements ContentNegotiator {
-  // Lifted TOKEN, TYPE_PATTERN  from com.google.gdata.util
-
-  private static String TOKEN =
-    "[\\p{ASCII}&&[^\\p{Cntrl} ;/=\\[\\]\\(\\)\\<\\>\\@\\,\\:\\\"\\?\\=]]+";
-
-  private static Pattern TYPE_PATTERN = Pattern.compile(
-    "(" + TOKEN + ")" +         // mediatype (G1)
-    "/" +                       // separator
-    "(" + TOKEN + ")" +         // subtype (G2)
-    "\\s*(.*)\\s*", Pattern.DOTALL);
-
-  private HashMultimap<String, String> createMultimatch(List<String> matchlist) {
-    HashMultimap<String, String> multimatch = HashMultimap.create();
-      for (String m : matchlist) {
-        Matcher mediaType = TYPE_PATTERN.matcher(m);
-
-        if (mediaType.matches()) {
-          String type = mediaType.group(1).toLowerCase();
-          String subtype = mediaType.group(2).toLowerCase();
-          multimatch.put(type, subtype);
+public class WildcardNegotiator implements ScoringNegotiator {
+
+  public boolean shouldCall(Map<String, String> negotiations, Request request) {
+    return NOT_ACCEPTABLE != compile(negotiations).score(request);
+  }
+
+  public Compiled compile(Map<String, String> negotiations) {
+    ImmutableMap.Builder<String, List<MediaRange>> builder = ImmutableMap.builder();
+    for (Map.Entry<String, String> negotiate : negotiations.entrySet()) {
+      builder.put(negotiate.getKey(), MediaRange.parse(negotiate.getValue()));
+    }
+    final Map<String, List<MediaRange>> offers = builder.build();
+
+    return new Compiled() {
+      public int score(Request request) {
+        int total = 0;
+        for (Map.Entry<String, List<MediaRange>> offer : offers.entrySet()) {
+
+          // Parsed once per request, however many actions are negotiated against it.
+          int score = scoreHeader(offer.getValue(), MediaRange.of(request, offer.getKey()));
+          if (NOT_ACCEPTABLE == score) {
+            return NOT_ACCEPTABLE;
+          }
+          total += score;
         }
+        return total;
       }
-    return multimatch;
+    };
   }
 
-  public boolean shouldCall(Map<String, String> negotiations, Request request) {
-    Multimap<String, String> headers = request.headers();
-    for (Map.Entry<String, String> negotiate : negotiations.entrySet()) {
+  private static int scoreHeader(List<MediaRange> offered, List<MediaRange> accepted) {
+    if (accepted.isEmpty()) {
+      return NOT_ACCEPTABLE;
+    }
 
-      Collection<String> collectionOfHeader = headers.get(negotiate.getKey());
-      if (null == collectionOfHeader)
-        continue;
-      Iterator<String> headerValues = collectionOfHeader.iterator();
-      boolean shouldFire = false;
-
-      List<String> matches = Arrays.asList(negotiate.getValue().split(",[ ]*"));
-      HashMultimap<String,String> mediaMatches = createMultimatch(matches);
-
-      while (headerValues.hasNext()) {
-        String value = headerValues.next();
-
-        List<String> values = Arrays.asList(value.split(",[ ]*"));
-        HashMultimap<String,String> mediaValues = createMultimatch(values);
-
-        if (!mediaMatches.isEmpty()) {
-          Set<String> typeIntersection = Sets.intersection(mediaMatches.keySet(), mediaValues.keySet());
-          if (typeIntersection.isEmpty()) {
-            shouldFire |= typeIntersection.isEmpty();
-          } else {
-            for (String mediaType: typeIntersection) {
-              Set<String> subtypeMatches = mediaMatches.get(mediaType);
-              Set<String> subtypeValues = mediaValues.get(mediaType);
-              
-              shouldFire |= (subtypeMatches.contains("*")
-                  || subtypeValues.contains("*")
-                  || !Sets.intersection(subtypeMatches, subtypeValues).isEmpty());
-            }
+    int best = NOT_ACCEPTABLE;
+    boolean offersMedia = false;
+    for (MediaRange offer : offered) {
+      if (offer.isMediaType()) {
+        offersMedia = true;
+        best = Math.max(best, scoreMedia(offer, accepted));
+      } else {
+        for (MediaRange accept : accepted) {
+          if (offer.raw().equals(accept.raw())) {
+            best = Math.max(best, weigh(1.0f, 2, 2));
           }
-        } else {
-          shouldFire |= !(Collections.disjoint(Arrays.asList(value.split(",[ ]*")), matches));
         }
       }
-      if (!shouldFire) {
-        return false;
+    }
+
+    if (NOT_ACCEPTABLE == best && offersMedia && !anyMedia(accepted)) {
+      return 0;
+    }
+    return best;
+  }
+
+  private static int scoreMedia(MediaRange offer, List<MediaRange> accepted) {
+    // A concrete media type is governed by the most specific range that matches it
+    // (so "text/html;q=0" vetoes "text/*"). A wildcard offer takes its best match.
+    MediaRange mostSpecific = null;
+    int best = NOT_ACCEPTABLE;
+    for (MediaRange accept : accepted) {
+      if (!offer.overlaps(accept)) {
+        continue;
+      }
+
+      if (null == mostSpecific || accept.specificity() > mostSpecific.specificity()) {
+        mostSpecific = accept;
+      }
+      if (accept.quality() > 0) {
+        best = Math.max(best, weigh(accept.quality(), accept.specificity(), offer.specificity()));
+      }
+    }
+
+    if (2 == offer.specificity()) {
+      return (null == mostSpecific || mostSpecific.quality() <= 0)
+          ? NOT_ACCEPTABLE
+          : weigh(mostSpecific.quality(), mostSpecific.specificity(), offer.specificity());
+    }
+    return best;
+  }
+
+  // q-value first (to three places, as in the RFC), then how specific either side is.
+  private static int weigh(float quality, int acceptSpecificity, int offerSpecificity) {
+    int q = Math.max(1, Math.round(quality * 1000));
+    return (q << 4) | (acceptSpecificity << 2) | offerSpecificity;
+  }
+
+  private static boolean anyMedia(List<MediaRange> ranges) {
+    for (MediaRange range : ranges) {
+      if (range.isMediaType()) {
+        return true;
       }
     }
-    return true;
+    return false;
   }
 }
 
-// TODO - http://www.w3.org/Protocols/rfc2616/rfc2616-sec14.html
-//      Accept: text/*;q=0.3, text/html;q=0.7, text/html;level=1, text/html;level=2;q=0.4, */*;q=0.5
-
 // TODO - other headers with slashes (but not signifying media types)
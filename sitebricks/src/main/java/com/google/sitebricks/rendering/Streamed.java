@@ -0,0 +1,21 @@
+package com.google.sitebricks.rendering;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Indicates that the page is to be streamed to the client as it renders,
+ * rather than buffered whole and written at the end. Output is flushed in
+ * chunks as soon as the page's {@code <head>} section closes.
+ * <p>
+ * Any head content contributed after that point (for instance by a
+ * {@code @Require} inside an embedded page in the body) can no longer be
+ * placed in the {@code <head>}, and is instead written inline where it
+ * occurs. See {@link com.google.sitebricks.StreamingRespond}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Streamed {
+}
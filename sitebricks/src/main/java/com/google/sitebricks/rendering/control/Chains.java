@@ -20,4 +20,18 @@ public final class Chains {
     public static WidgetChain proceeding() {
         return new ProceedingWidgetChain();
     }
+
+    /**
+     * Collapses runs of widgets in the given chain that render the same markup
+     * regardless of what they are bound to, into single pre-rendered literals.
+     * Only call this at compile time, once the chain is complete.
+     *
+     * @return Returns the number of widgets eliminated from the chain.
+     */
+    public static int coalesce(WidgetChain chain) {
+        if (chain instanceof ProceedingWidgetChain)
+            return ((ProceedingWidgetChain) chain).coalesce();
+
+        return 0;
+    }
 }
@@ -4,10 +4,8 @@ import com.google.sitebricks.Renderable;
 import com.google.sitebricks.Respond;
 import com.google.sitebricks.compiler.EvaluatorCompiler;
 import com.google.sitebricks.compiler.ExpressionCompileException;
-import com.google.sitebricks.compiler.Token;
 import com.google.sitebricks.rendering.SelfRendering;
 
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -17,7 +15,7 @@ import java.util.Set;
 @SelfRendering
 class HeaderWidget implements Renderable {
   private final WidgetChain widgetChain;
-  private Map<String, List<Token>> attribs;
+  private final XmlWidget.Attribute[] attribs;
 
   public HeaderWidget(WidgetChain widgetChain, Map<String, String> attribs,
                       EvaluatorCompiler compiler) throws ExpressionCompileException {
@@ -0,0 +1,105 @@
+package com.google.sitebricks.rendering.control;
+
+import net.jcip.annotations.NotThreadSafe;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The variables of a single {@code @Repeat} iteration: the current item, the
+ * page, and the {@code index} and {@code isLast} flags. These are kept in plain
+ * fields and updated in place as the loop advances, so an iteration costs no
+ * hashing and (for small indices) no boxing.
+ * <p>
+ * It is still a {@link Map}, so expressions compiled against the repeat's
+ * lexical scope read it exactly as before. Each render makes its own, so
+ * concurrent renders of the same page never share one.
+ */
+@NotThreadSafe
+class LoopContext extends AbstractMap<String, Object> {
+    static final String INDEX = "index";
+    static final String IS_LAST = "isLast";
+
+    private final String var;
+    private final String pageVar;
+
+    private Object item;
+    private Object page;
+    private int index;
+    private boolean last;
+
+    // Anything else put here by nested widgets; rarely used.
+    private Map<String, Object> others;
+
+    LoopContext(String var, String pageVar, Object page) {
+        this.var = var;
+        this.pageVar = pageVar;
+        this.page = page;
+    }
+
+    LoopContext next(Object item, int index, boolean last) {
+        this.item = item;
+        this.index = index;
+        this.last = last;
+        return this;
+    }
+
+    // Slots are checked in reverse of the order the old context map was
+    // filled in, so a var named "index" (say) is shadowed just as it was.
+    @Override
+    public Object get(Object key) {
+        if (IS_LAST.equals(key))
+            return last;
+        if (INDEX.equals(key))
+            return index;
+        if (pageVar.equals(key))
+            return page;
+        if (var.equals(key))
+            return item;
+
+        return null == others ? null : others.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return IS_LAST.equals(key) || INDEX.equals(key) || pageVar.equals(key) || var.equals(key)
+            || (null != others && others.containsKey(key));
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        Object previous = get(key);
+        if (IS_LAST.equals(key))
+            last = (Boolean) value;
+        else if (INDEX.equals(key))
+            index = ((Number) value).intValue();
+        else if (pageVar.equals(key))
+            page = value;
+        else if (var.equals(key))
+            item = value;
+        else {
+            if (null == others)
+                others = new HashMap<String, Object>();
+            others.put(key, value);
+        }
+
+        return previous;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        // Only for iterating or copying the whole context, which is uncommon.
+        Map<String, Object> entries = new LinkedHashMap<String, Object>();
+        entries.put(var, item);
+        entries.put(pageVar, page);
+        entries.put(INDEX, index);
+        entries.put(IS_LAST, last);
+        if (null != others)
+            entries.putAll(others);
+
+        return entries.entrySet();
+    }
+}
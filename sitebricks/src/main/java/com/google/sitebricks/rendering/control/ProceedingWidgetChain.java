@@ -13,7 +13,7 @@ import java.util.Set;
  * @author Dhanji R. Prasanna (dhanji@gmail.com)
  */
 @ThreadSafe
-class ProceedingWidgetChain implements WidgetChain {
+class ProceedingWidgetChain implements WidgetChain, StaticRendering {
     private final List<Renderable> widgets = new ArrayList<Renderable>();
 
     public void render(Object bound, Respond respond) {
@@ -27,6 +27,72 @@ class ProceedingWidgetChain implements WidgetChain {
         return this;
     }
 
+    public synchronized String staticMarkup() {
+        StringBuilder builder = new StringBuilder();
+        for (Renderable widget : widgets) {
+            String markup = staticMarkupOf(widget);
+            if (null == markup)
+                return null;
+
+            builder.append(markup);
+        }
+
+        return builder.toString();
+    }
+
+    /**
+     * Replaces every run of widgets that always render the same markup with a
+     * single pre-rendered literal. Only ever used at compile time, before this
+     * chain is rendered.
+     *
+     * @return Returns the number of widgets eliminated from this chain.
+     */
+    synchronized int coalesce() {
+        List<Renderable> coalesced = new ArrayList<Renderable>(widgets.size());
+        StringBuilder run = new StringBuilder();
+        int runLength = 0;
+        int eliminated = 0;
+
+        for (Renderable widget : widgets) {
+            String markup = staticMarkupOf(widget);
+            if (null != markup) {
+                run.append(markup);
+                runLength++;
+                continue;
+            }
+
+            eliminated += flush(coalesced, run, runLength);
+            runLength = 0;
+            coalesced.add(widget);
+        }
+        eliminated += flush(coalesced, run, runLength);
+
+        widgets.clear();
+        widgets.addAll(coalesced);
+        return eliminated;
+    }
+
+    //adds the given run as a single literal (unless it is empty), returns widgets saved
+    private static int flush(List<Renderable> coalesced, StringBuilder run, int runLength) {
+        if (0 == runLength)
+            return 0;
+
+        int saved = runLength;
+        if (run.length() > 0) {
+            coalesced.add(new RawTextWidget(run.toString()));
+            saved--;
+        }
+
+        run.setLength(0);
+        return saved;
+    }
+
+    private static String staticMarkupOf(Renderable widget) {
+        return (widget instanceof StaticRendering)
+            ? ((StaticRendering) widget).staticMarkup()
+            : null;
+    }
+
     /**
      * This is an expensive method, never use it when live (used best at startup).
      *
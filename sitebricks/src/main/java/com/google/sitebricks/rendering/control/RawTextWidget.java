@@ -11,10 +11,14 @@ import java.util.Collections;
 import java.util.Set;
 
 @ThreadSafe @SelfRendering
-public class RawTextWidget implements Renderable {
-  private String template; //TODO store some metrics to allocate buffers later
+public class RawTextWidget implements Renderable, StaticRendering {
+  private final String template;
 
   RawTextWidget(String template, EvaluatorCompiler compiler) throws ExpressionCompileException {
+    this(template);
+  }
+
+  RawTextWidget(String template) {
     this.template = template;
   }
 
@@ -22,6 +26,10 @@ public class RawTextWidget implements Renderable {
     respond.write(template);
   }
 
+  public String staticMarkup() {
+    return template;
+  }
+
   public <T extends Renderable> Set<T> collect(Class<T> clazz) {
     return Collections.emptySet();
   }
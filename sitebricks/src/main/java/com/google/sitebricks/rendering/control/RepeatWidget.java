@@ -9,9 +9,12 @@ import com.google.sitebricks.conversion.TypeConverter;
 import com.google.sitebricks.rendering.EmbedAs;
 import net.jcip.annotations.Immutable;
 
+import java.lang.reflect.Array;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
 
 /**
@@ -60,31 +63,51 @@ class RepeatWidget implements Renderable {
 	}
 
     public void render(Object bound, Respond respond) {
-        
-    	Object value = evaluator.evaluate(items, bound);
-    	
-    	//do nothing if the collection is unavailable for some reason
-    	if (null == value)
-    		return;
+        Object value = evaluator.evaluate(items, bound);
 
-    	Collection<?> items = converter.convert(value, Collection.class);
-        
-        Map<String, Object> context = new HashMap<String, Object>();
+        //do nothing if the collection is unavailable for some reason
+        if (null == value)
+            return;
 
-        //set up context variables
-        int i = 0;
-        for (Object thing : items) {
+        //one context per render, its slots are reset for each item
+        LoopContext context = new LoopContext(var, pageVar, respond.pageObject());
 
-            //decorate with some context
-            context.put(var, thing);
-            context.put(pageVar, respond.pageObject());
-            context.put("index", i++);
-            context.put("isLast", i == items.size());
-            widgetChain.render(context, respond);
+        //walk arrays, lists and iterables directly rather than converting them
+        if (value instanceof Object[]) {
+            Object[] array = (Object[]) value;
+            int last = array.length - 1;
+            for (int i = 0; i <= last; i++) {
+                widgetChain.render(context.next(array[i], i, i == last), respond);
+            }
+        } else if (value.getClass().isArray()) {
+            int last = Array.getLength(value) - 1;
+            for (int i = 0; i <= last; i++) {
+                widgetChain.render(context.next(Array.get(value, i), i, i == last), respond);
+            }
+        } else if (value instanceof List && value instanceof RandomAccess) {
+            List<?> list = (List<?>) value;
+            int last = list.size() - 1;
+            for (int i = 0; i <= last; i++) {
+                widgetChain.render(context.next(list.get(i), i, i == last), respond);
+            }
+        } else if (value instanceof Iterable) {
+            render(((Iterable<?>) value).iterator(), context, respond);
+        } else if (value instanceof Iterator) {
+            render((Iterator<?>) value, context, respond);
+        } else {
+            Collection<?> collection = converter.convert(value, Collection.class);
+            render(collection.iterator(), context, respond);
         }
-
     }
 
+    // Streams items, looking one ahead to tell the last; never asks for a size.
+    private void render(Iterator<?> iterator, LoopContext context, Respond respond) {
+        int i = 0;
+        while (iterator.hasNext()) {
+            Object thing = iterator.next();
+            widgetChain.render(context.next(thing, i++, !iterator.hasNext()), respond);
+        }
+    }
 
     public <T extends Renderable> Set<T> collect(Class<T> clazz) {
         return widgetChain.collect(clazz);
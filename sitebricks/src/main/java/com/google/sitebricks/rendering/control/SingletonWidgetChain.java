@@ -10,7 +10,7 @@ import java.util.Set;
  * @author Dhanji R. Prasanna (dhanji@gmail.com)
  */
 @Immutable
-class SingletonWidgetChain implements WidgetChain {
+class SingletonWidgetChain implements WidgetChain, StaticRendering {
     private final Renderable widget;
 
     public SingletonWidgetChain(Renderable widget) {
@@ -21,6 +21,12 @@ class SingletonWidgetChain implements WidgetChain {
         widget.render(bound, respond);
     }
 
+    public String staticMarkup() {
+        return (widget instanceof StaticRendering)
+            ? ((StaticRendering) widget).staticMarkup()
+            : null;
+    }
+
     public WidgetChain addWidget(Renderable renderable) {
         throw new IllegalStateException("Cannot add children to singleton widget chain");
     }
@@ -0,0 +1,17 @@
+package com.google.sitebricks.rendering.control;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Implemented by widgets that may render exactly the same markup no matter
+ * what they are bound to, so that runs of them can be collapsed into a single
+ * pre-rendered literal at compile time.
+ */
+interface StaticRendering {
+  /**
+   * @return The markup this widget always renders, or null if its output
+   *    depends on what it is bound to (or on the request).
+   */
+  @Nullable
+  String staticMarkup();
+}
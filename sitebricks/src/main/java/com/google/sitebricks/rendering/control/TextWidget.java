@@ -16,26 +16,43 @@ import java.util.Set;
  * @author Dhanji R. Prasanna (dhanji@gmail.com)
  */
 @ThreadSafe @SelfRendering
-class TextWidget implements Renderable {
-    private final List<Token> tokenizedTemplate;     //TODO store some metrics to allocate buffers later
+class TextWidget implements Renderable, StaticRendering {
+    private final Token[] tokenizedTemplate;
+
+    // Non-null if this template has no expressions in it.
+    private final String markup;
 
     TextWidget(String template, EvaluatorCompiler compiler) throws ExpressionCompileException {
 
         //compile token stream
-        tokenizedTemplate = compiler.tokenizeAndCompile(template);
+        List<Token> tokens = compiler.tokenizeAndCompile(template);
+        tokenizedTemplate = tokens.toArray(new Token[tokens.size()]);
+        markup = precompute(tokenizedTemplate);
+    }
+
+    private static String precompute(Token[] tokens) {
+        StringBuilder builder = new StringBuilder();
+        for (Token token : tokens) {
+            if (token.isExpression())
+                return null;
+
+            builder.append(token.render(null));
+        }
+
+        return builder.toString();
     }
 
     public void render(Object bound, Respond respond) {
 
-        //render template from tokens
-        StringBuilder builder = new StringBuilder();
+        //render template from tokens, straight into the respond
         for (Token token : tokenizedTemplate) {
-            builder.append(token.render(bound));
+            token.render(bound, respond);
         }
-
-        respond.write(builder.toString());
     }
 
+    public String staticMarkup() {
+        return markup;
+    }
 
     public <T extends Renderable> Set<T> collect(Class<T> clazz) {
         return Collections.emptySet();
@@ -21,11 +21,12 @@ import java.util.*;
  */
 @ThreadSafe
 @SelfRendering
-class XmlWidget implements Renderable {
+class XmlWidget implements Renderable, StaticRendering {
   private final WidgetChain widgetChain;
   private final boolean selfClosed;
   private final String name;
-  private final Map<String, List<Token>> attributes;
+  private final String closeTag;
+  private final Attribute[] attributes;
 
   // HACK Extremely ouch! Replace with Assisted inject.
   private static volatile Provider<Request> request;
@@ -47,25 +48,27 @@ class XmlWidget implements Renderable {
             @Attributes Map<String, String> attributes) throws ExpressionCompileException {
     this.widgetChain = widgetChain;
     this.name = name;
-    this.attributes = Collections.unmodifiableMap(compile(attributes, compiler));
+    this.closeTag = "</" + name + '>';
+    this.attributes = compile(attributes, compiler);
 
     //hacky. Script tags should not be self-closed due to IE insanity.
     this.selfClosed =
         widgetChain instanceof TerminalWidgetChain && !"script".equalsIgnoreCase(name);
   }
 
-  //compiles a map of name:value attrs into a map of name:token renderables
-  static Map<String, List<Token>> compile(Map<String, String> attributes,
-                                          EvaluatorCompiler compiler)
+  //compiles a map of name:value attrs into attribute renderables, in order
+  static Attribute[] compile(Map<String, String> attributes, EvaluatorCompiler compiler)
       throws ExpressionCompileException {
 
-    Map<String, List<Token>> map = new LinkedHashMap<String, List<Token>>();
+    Attribute[] compiled = new Attribute[attributes.size()];
 
+    int i = 0;
     for (Map.Entry<String, String> attribute : attributes.entrySet()) {
-      map.put(attribute.getKey(), compiler.tokenizeAndCompile(attribute.getValue()));
+      compiled[i++] = new Attribute(attribute.getKey(),
+          compiler.tokenizeAndCompile(attribute.getValue()));
     }
 
-    return map;
+    return compiled;
   }
 
   public void render(Object bound, Respond respond) {
@@ -79,50 +82,43 @@ class XmlWidget implements Renderable {
       widgetChain.render(bound, respond);
 
       //close tag
-      respond.write("</");
-      respond.write(name);
-      respond.write('>');
+      respond.write(closeTag);
     }
   }
 
-  static void writeOpenTag(Object bound, Respond respond, String name,
-                           Map<String, List<Token>> attributes) {
+  static void writeOpenTag(Object bound, Respond respond, String name, Attribute[] attributes) {
     respond.write('<');
     respond.write(name);
 
-    respond.write(' ');
-
-    //write attributes
-    for (Map.Entry<String, List<Token>> attribute : attributes.entrySet()) {
-      respond.write(attribute.getKey());
-      respond.write("=\"");
+    //write attributes, each with its own leading space
+    for (Attribute attribute : attributes) {
+      attribute.render(bound, respond);
+    }
+  }
 
-      final List<Token> tokenList = attribute.getValue();
-      for (int i = 0; i < tokenList.size(); i++) {
-        Token token = tokenList.get(i);
+  public String staticMarkup() {
+    String children = (widgetChain instanceof StaticRendering)
+        ? ((StaticRendering) widgetChain).staticMarkup()
+        : null;
+    if (null == children)
+      return null;
 
-        if (token.isExpression()) {
-          respond.write(token.render(bound));
-        } else {
-          respond.write(
-              contextualizeIfNeeded(attribute.getKey(), (0 == i), token.render(bound)));
-        }
-      }
+    StringBuilder builder = new StringBuilder().append('<').append(name);
+    for (Attribute attribute : attributes) {
+      if (null == attribute.markup)
+        return null;
 
-      respond.write("\" ");
+      builder.append(attribute.markup);
     }
 
-    respond.chew();
-  }
+    if (selfClosed)
+      return builder.append("/>").toString();
 
-  private static String contextualizeIfNeeded(String attribute, boolean isFirstToken, String raw) {
-    if (isFirstToken && CONTEXTUAL_ATTRIBS.contains(attribute)) {
-      //add context to path if needed
-      if (raw.startsWith("/"))
-        raw = request.get().context() + raw;
-    }
+    return builder.append('>').append(children).append(closeTag).toString();
+  }
 
-    return raw;
+  private static boolean isContextual(String attribute, boolean isFirstToken, String raw) {
+    return isFirstToken && CONTEXTUAL_ATTRIBS.contains(attribute) && raw.startsWith("/");
   }
 
 
@@ -134,4 +130,67 @@ class XmlWidget implements Renderable {
   public void setRequestProvider(Provider<Request> requestProvider) {
     XmlWidget.request = requestProvider;
   }
+
+  /**
+   * A compiled attribute. Attributes made only of text that needs no context
+   * path are rendered in full at compile time; the rest have their
+   * {@code name="} prefix prepared and only their tokens rendered per request.
+   */
+  @ThreadSafe
+  static class Attribute {
+    private final String name;
+    private final String prefix;
+    private final Token[] tokens;
+
+    // Non-null if this attribute renders the same way every time.
+    private final String markup;
+
+    Attribute(String name, List<Token> tokens) {
+      this.name = name;
+      this.prefix = ' ' + name + "=\"";
+      this.tokens = tokens.toArray(new Token[tokens.size()]);
+      this.markup = precompute();
+    }
+
+    private String precompute() {
+      StringBuilder builder = new StringBuilder(prefix);
+      for (int i = 0; i < tokens.length; i++) {
+        Token token = tokens[i];
+        if (token.isExpression())
+          return null;
+
+        String text = token.render(null);
+        if (isContextual(name, 0 == i, text))
+          return null;
+
+        builder.append(text);
+      }
+
+      return builder.append('"').toString();
+    }
+
+    void render(Object bound, Respond respond) {
+      if (null != markup) {
+        respond.write(markup);
+        return;
+      }
+
+      respond.write(prefix);
+      for (int i = 0; i < tokens.length; i++) {
+        Token token = tokens[i];
+
+        if (token.isExpression()) {
+          token.render(bound, respond);
+        } else {
+          String raw = token.render(bound);
+
+          //add context to path if needed
+          if (isContextual(name, 0 == i, raw))
+            respond.write(request.get().context());
+          respond.write(raw);
+        }
+      }
+      respond.write('"');
+    }
+  }
 }
\ No newline at end of file
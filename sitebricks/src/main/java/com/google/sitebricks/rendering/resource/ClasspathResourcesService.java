@@ -1,19 +1,20 @@
 package com.google.sitebricks.rendering.resource;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.MapMaker;
+import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.sitebricks.Export;
 import com.google.sitebricks.Renderable;
 import com.google.sitebricks.Respond;
 import net.jcip.annotations.ThreadSafe;
-import org.apache.commons.io.IOUtils;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.List;
 import java.util.Map;
-import java.util.Properties;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Set;
 
 /**
  * @author Dhanji R. Prasanna (dhanji@gmail com)
@@ -21,30 +22,25 @@ import java.util.concurrent.atomic.AtomicReference;
 @ThreadSafe
 @Singleton
 class ClasspathResourcesService implements ResourcesService {
-  private final Map<String, Resource> resources = new MapMaker().makeMap();
+  static final int MAX_CACHED_RESOURCES = 512;
 
-  private static final AtomicReference<Map<String, String>> mimes =
-      new AtomicReference<Map<String, String>>();
+  private final Map<String, Resource> resources = new MapMaker().makeMap();
 
-  private static final String DEFAULT_MIME = "__defaultMimeType";
+  // Loaded resources, evicted when there are too many or memory runs low.
+  private final Map<String, ResourceContent> contents = new MapMaker()
+      .maximumSize(MAX_CACHED_RESOURCES)
+      .softValues()
+      .makeMap();
 
-  public ClasspathResourcesService() {
-    if (null == mimes.get()) {
-      final Properties properties = new Properties();
-      try {
-        properties.load(
-            ClasspathResourcesService.class.getResourceAsStream("mimetypes.properties"));
-      } catch (IOException e) {
-        throw new ResourceLoadingException("Can't find mimetypes.properties", e);
-      }
+  private volatile MimeTypes mimeTypes = MimeTypes.of(ImmutableSet.<MimeType>of());
 
-      //noinspection unchecked
-      mimes.compareAndSet(null, (Map) properties);
-    }
+  @Inject(optional = true)
+  void registerMimeTypes(Set<MimeType> additional) {
+    this.mimeTypes = MimeTypes.of(additional);
   }
 
   public void add(Class<?> clazz, Export export) {
-    resources.put(export.at(), new Resource(export, clazz));
+    resources.put(export.at(), new Resource(export, clazz, mimeOf(export.resource())));
   }
 
   public Respond serve(String uri) {
@@ -56,19 +52,36 @@ class ClasspathResourcesService implements ResourcesService {
     }
 
     //load and render resource to responder
-    return new StaticResourceRespond(resource);
+    return new StaticResourceRespond(resource, contentOf(resource));
   }
 
+  private ResourceContent contentOf(Resource resource) {
+    final String uri = resource.export.at();
+    ResourceContent content = contents.get(uri);
 
-  static String mimeOf(String file) {
-    final Map<String, String> mimeTypes = mimes.get();
-    for (Map.Entry<String, String> mime : mimeTypes.entrySet()) {
-      if (file.matches(mime.getKey()))
-        return mime.getValue();
+    if (null == content) {
+      try {
+        content = ResourceContent.load(resource.clazz, resource.export.resource(),
+            resource.mimeType);
+      } catch (IOException e) {
+        throw new ResourceLoadingException(
+            "Error loading static resource specified by: " + resource, e);
+      }
+
+      if (null == content)
+        throw new ResourceLoadingException(
+            "Couldn't find static resource (did you spell it right?) specified by: "
+                + resource);
+
+      contents.put(uri, content);
     }
 
-    //no match, use the default?
-    return mimeTypes.get(DEFAULT_MIME);
+    return content;
+  }
+
+
+  String mimeOf(String file) {
+    return mimeTypes.mimeOf(file);
   }
 
   private static class Resource {
@@ -76,11 +89,10 @@ class ClasspathResourcesService implements ResourcesService {
     private final Class<?> clazz;
     private final String mimeType;
 
-    private Resource(Export export, Class<?> clazz) {
+    private Resource(Export export, Class<?> clazz, String mimeType) {
       this.export = export;
       this.clazz = clazz;
-
-      this.mimeType = mimeOf(export.resource());
+      this.mimeType = mimeType;
     }
 
     public String toString() {
@@ -95,41 +107,121 @@ class ClasspathResourcesService implements ResourcesService {
     }
   }
 
-  private static class StaticResourceRespond implements Respond {
+  private static class StaticResourceRespond implements ResourceRespond {
     private final Resource resource;
+    private final ResourceContent content;
 
-    public StaticResourceRespond(Resource resource) {
+    public StaticResourceRespond(Resource resource, ResourceContent content) {
       this.resource = resource;
+      this.content = content;
     }
 
     public String getContentType() {
       return resource.mimeType;
     }
 
-    @Override
-    public String toString() {
-      //load and render
-      List list;
+    public void writeTo(HttpServletRequest request, HttpServletResponse response)
+        throws IOException {
+      final ResourceContent.Entity entity = content.negotiate(request.getHeader("Accept-Encoding"));
+
+      response.setContentType(resource.mimeType);
+      response.setDateHeader("Last-Modified", content.lastModified());
+      response.setHeader("ETag", entity.etag());
+      if (content.hasVariants())
+        response.setHeader("Vary", "Accept-Encoding");
+      if (null == entity.encoding())
+        response.setHeader("Accept-Ranges", "bytes");
+
+      if (isNotModified(request, entity)) {
+        response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        return;
+      }
+
+      if (null != entity.encoding())
+        response.setHeader("Content-Encoding", entity.encoding());
+
+      // Ranges are only served from the identity encoding.
+      long offset = 0;
+      long count = entity.length();
+      final String range = request.getHeader("Range");
+      if (null != range && null == entity.encoding() && isCurrent(request, entity)) {
+        final long[] bounds = Ranges.parse(range, entity.length());
+
+        if (Ranges.UNSATISFIABLE == bounds) {
+          response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+          response.setHeader("Content-Range", "bytes */" + entity.length());
+          return;
+        } else if (null != bounds) {
+          offset = bounds[0];
+          count = bounds[1] - bounds[0] + 1;
+          response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+          response.setHeader("Content-Range",
+              "bytes " + bounds[0] + '-' + bounds[1] + '/' + entity.length());
+        }
+      }
+
+      response.setHeader("Content-Length", Long.toString(count));
+      if (!"HEAD".equalsIgnoreCase(request.getMethod()))
+        entity.writeTo(response.getOutputStream(), offset, count);
+    }
+
+    private boolean isNotModified(HttpServletRequest request, ResourceContent.Entity entity) {
+      // If-None-Match takes precedence over If-Modified-Since.
+      final String ifNoneMatch = request.getHeader("If-None-Match");
+      if (null != ifNoneMatch) {
+        for (String etag : ifNoneMatch.split(",")) {
+          etag = etag.trim();
+          if ("*".equals(etag) || entity.etag().equals(etag))
+            return true;
+        }
+        return false;
+      }
+
+      final long ifModifiedSince = dateHeader(request, "If-Modified-Since");
+      return ifModifiedSince >= content.lastModified();
+    }
+
+    // An If-Range that names some older version means the whole resource must be sent.
+    private boolean isCurrent(HttpServletRequest request, ResourceContent.Entity entity) {
+      final String ifRange = request.getHeader("If-Range");
+      if (null == ifRange)
+        return true;
+
+      if (ifRange.trim().startsWith("\""))
+        return entity.etag().equals(ifRange.trim());
+      return dateHeader(request, "If-Range") == content.lastModified();
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
       try {
-        final InputStream stream = resource.clazz.getResourceAsStream(resource.export.resource());
+        return request.getDateHeader(name);
+      } catch (IllegalArgumentException e) {
+        // unparseable dates are ignored
+        return -1;
+      }
+    }
 
-        if (null == stream)
-          throw new ResourceLoadingException(
-              "Couldn't find static resource (did you spell it right?) specified by: "
-                  + resource);
+    /**
+     * @return The resource content as text (assuming UTF-8). Only for use
+     *     outside a servlet response, see {@link #writeTo}.
+     */
+    @Override
+    public String toString() {
+      final ResourceContent.Entity entity = content.identity();
 
-        list = IOUtils.readLines(stream);
+      try {
+        byte[] bytes = entity.bytes();
+        if (null == bytes) {
+          ByteArrayOutputStream out = new ByteArrayOutputStream((int) entity.length());
+          entity.writeTo(out, 0, entity.length());
+          bytes = out.toByteArray();
+        }
+
+        return new String(bytes, "UTF-8");
       } catch (IOException e) {
         throw new ResourceLoadingException(
             "Error loading static resource specified by: " + resource, e);
       }
-
-      StringBuilder buffer = new StringBuilder();
-      for (Object o : list) {
-        buffer.append((String) o);
-      }
-
-      return buffer.toString();
     }
 
     public void write(String text) {
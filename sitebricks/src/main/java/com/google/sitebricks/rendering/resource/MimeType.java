@@ -0,0 +1,62 @@
+package com.google.sitebricks.rendering.resource;
+
+import com.google.common.base.Preconditions;
+import net.jcip.annotations.Immutable;
+
+import java.util.regex.Pattern;
+
+/**
+ * Maps static resource file names to a content type. Register additional
+ * mime types with {@link com.google.sitebricks.SitebricksModule#mimeType}; these
+ * take precedence over the built-in ones.
+ */
+@Immutable
+public final class MimeType {
+  private final String extension;
+  private final Pattern pattern;
+  private final String type;
+
+  private MimeType(String extension, Pattern pattern, String type) {
+    Preconditions.checkArgument(null != type && type.length() > 0, "Mime type cannot be empty");
+    this.extension = extension;
+    this.pattern = pattern;
+    this.type = type;
+  }
+
+  /**
+   * Files ending in {@code .extension} (matched case-insensitively) have the
+   * given type. For example: {@code forExtension("svg", "image/svg+xml")}.
+   */
+  public static MimeType forExtension(String extension, String type) {
+    Preconditions.checkArgument(null != extension && extension.length() > 0
+        && extension.indexOf('.') < 0 && extension.indexOf('/') < 0,
+        "Not a file extension: %s", extension);
+    return new MimeType(extension.toLowerCase(), null, type);
+  }
+
+  /**
+   * Files whose whole name matches the given regex have the given type. Only
+   * consulted when there is no match by extension, in registration order.
+   */
+  public static MimeType forPattern(String regex, String type) {
+    Preconditions.checkArgument(null != regex, "Pattern cannot be null");
+    return new MimeType(null, Pattern.compile(regex), type);
+  }
+
+  String extension() {
+    return extension;
+  }
+
+  Pattern pattern() {
+    return pattern;
+  }
+
+  String type() {
+    return type;
+  }
+
+  @Override
+  public String toString() {
+    return (null != extension ? "*." + extension : pattern.pattern()) + '=' + type;
+  }
+}
@@ -0,0 +1,124 @@
+package com.google.sitebricks.rendering.resource;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import net.jcip.annotations.Immutable;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled table of {@link MimeType}s. Most files are resolved with a
+ * single map lookup on their extension; the remaining regex patterns are
+ * precompiled and tried in order.
+ */
+@Immutable
+class MimeTypes {
+  private static final String DEFAULT_MIME = "__defaultMimeType";
+
+  // Entries in mimetypes.properties of this form are really just extensions.
+  private static final Pattern EXTENSION_REGEX =
+      Pattern.compile("(?:\\(\\.\\)|\\.)\\*\\\\\\.([A-Za-z0-9]+)");
+
+  private final Map<String, String> extensions;
+  private final List<MimeType> patterns;
+  private final String defaultType;
+
+  private MimeTypes(Map<String, String> extensions, List<MimeType> patterns, String defaultType) {
+    this.extensions = ImmutableMap.copyOf(extensions);
+    this.patterns = ImmutableList.copyOf(patterns);
+    this.defaultType = defaultType;
+  }
+
+  /**
+   * @return The built-in mime types from {@code mimetypes.properties},
+   *    preceded by any additional types given.
+   */
+  static MimeTypes of(Iterable<MimeType> additional) {
+    final Map<String, String> extensions = new LinkedHashMap<String, String>();
+    final List<MimeType> patterns = new ArrayList<MimeType>();
+    String defaultType = null;
+
+    // First registration wins, so additional types take precedence.
+    for (MimeType mimeType : additional) {
+      add(mimeType, extensions, patterns);
+    }
+
+    for (Map.Entry<String, String> entry : readDefaults().entrySet()) {
+      if (DEFAULT_MIME.equals(entry.getKey())) {
+        defaultType = entry.getValue();
+        continue;
+      }
+
+      Matcher matcher = EXTENSION_REGEX.matcher(entry.getKey());
+      add(matcher.matches()
+          ? MimeType.forExtension(matcher.group(1), entry.getValue())
+          : MimeType.forPattern(entry.getKey(), entry.getValue()),
+          extensions, patterns);
+    }
+
+    return new MimeTypes(extensions, patterns, defaultType);
+  }
+
+  private static void add(MimeType mimeType, Map<String, String> extensions,
+                          List<MimeType> patterns) {
+    if (null == mimeType.extension())
+      patterns.add(mimeType);
+    else if (!extensions.containsKey(mimeType.extension()))
+      extensions.put(mimeType.extension(), mimeType.type());
+  }
+
+  String mimeOf(String file) {
+    // The extension is whatever follows the last dot in the last path segment.
+    final int dot = file.lastIndexOf('.');
+    if (dot > file.lastIndexOf('/')) {
+      String type = extensions.get(file.substring(dot + 1).toLowerCase());
+      if (null != type)
+        return type;
+    }
+
+    for (MimeType mimeType : patterns) {
+      if (mimeType.pattern().matcher(file).matches())
+        return mimeType.type();
+    }
+
+    //no match, use the default
+    return defaultType;
+  }
+
+  // Reads mimetypes.properties, keeping entries in the order they appear in the file.
+  private static Map<String, String> readDefaults() {
+    final Map<String, String> ordered = new LinkedHashMap<String, String>();
+    final Properties properties = new Properties() {
+      @Override
+      public synchronized Object put(Object key, Object value) {
+        ordered.put((String) key, (String) value);
+        return super.put(key, value);
+      }
+    };
+
+    InputStream in = MimeTypes.class.getResourceAsStream("mimetypes.properties");
+    if (null == in)
+      throw new ResourceLoadingException("Can't find mimetypes.properties");
+    try {
+      properties.load(in);
+    } catch (IOException e) {
+      throw new ResourceLoadingException("Can't read mimetypes.properties", e);
+    } finally {
+      try {
+        in.close();
+      } catch (IOException e) {
+        // nothing useful to do
+      }
+    }
+
+    return ordered;
+  }
+}
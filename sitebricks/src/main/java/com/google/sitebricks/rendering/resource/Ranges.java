@@ -0,0 +1,62 @@
+package com.google.sitebricks.rendering.resource;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Parses HTTP byte range headers. Only single ranges are supported; a request
+ * for several ranges is answered with the whole resource, as the spec allows.
+ */
+class Ranges {
+  private static final String BYTES = "bytes=";
+
+  static final long[] UNSATISFIABLE = new long[0];
+
+  private Ranges() {
+  }
+
+  /**
+   * @return The first and last (inclusive) byte positions requested by the
+   *    given Range header, {@link #UNSATISFIABLE} if the range lies outside
+   *    the resource, or null if the header should be ignored.
+   */
+  @Nullable
+  static long[] parse(String range, long length) {
+    if (!range.startsWith(BYTES) || range.indexOf(',') >= 0)
+      return null;
+
+    final String spec = range.substring(BYTES.length()).trim();
+    final int dash = spec.indexOf('-');
+    if (dash < 0)
+      return null;
+
+    long first;
+    long last;
+    try {
+      if (0 == dash) {
+        // suffix range, i.e. the last n bytes
+        long suffix = Long.parseLong(spec.substring(1));
+        if (suffix <= 0)
+          return UNSATISFIABLE;
+
+        first = Math.max(0, length - suffix);
+        last = length - 1;
+      } else {
+        first = Long.parseLong(spec.substring(0, dash));
+        last = (dash == spec.length() - 1)
+            ? length - 1
+            : Math.min(Long.parseLong(spec.substring(dash + 1)), length - 1);
+      }
+    } catch (NumberFormatException e) {
+      return null;
+    }
+
+    if (first >= length)
+      return UNSATISFIABLE;
+
+    // a last position before the first makes the header invalid, not unsatisfiable
+    if (last < first)
+      return null;
+
+    return new long[] { first, last };
+  }
+}
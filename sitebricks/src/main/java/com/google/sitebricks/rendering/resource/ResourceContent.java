@@ -0,0 +1,275 @@
+package com.google.sitebricks.rendering.resource;
+
+import net.jcip.annotations.Immutable;
+import org.apache.commons.io.IOUtils;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The loaded content of a static resource, along with its validators (ETag
+ * and last modified time) and any compressed variants. Small resources are
+ * held in memory; larger ones are streamed from the classpath every time.
+ * <p>
+ * Compressed variants come from pre-compressed files sitting next to the
+ * resource on the classpath ({@code app.js.br}, {@code app.js.gz}). Small
+ * textual resources with no pre-compressed gzip file are gzipped once on load.
+ */
+@Immutable
+class ResourceContent {
+  static final int MAX_CACHED_BYTES = 1024 * 1024;
+
+  static final String GZIP = "gzip";
+  static final String BROTLI = "br";
+
+  private final long lastModified;
+  private final Entity identity;
+  private final Entity gzip;
+  private final Entity brotli;
+
+  private ResourceContent(long lastModified, Entity identity, Entity gzip, Entity brotli) {
+    this.lastModified = lastModified;
+    this.identity = identity;
+    this.gzip = gzip;
+    this.brotli = brotli;
+  }
+
+  /**
+   * @return The resource content, or null if there is no such resource.
+   */
+  @Nullable
+  static ResourceContent load(Class<?> clazz, String path, String mimeType) throws IOException {
+    URL url = clazz.getResource(path);
+    if (null == url)
+      return null;
+
+    // HTTP dates have a resolution of seconds.
+    URLConnection connection = url.openConnection();
+    long lastModified = connection.getLastModified();
+    if (lastModified <= 0)
+      lastModified = System.currentTimeMillis();
+    lastModified = lastModified / 1000 * 1000;
+
+    Entity identity = Entity.load(url, "");
+    Entity brotli = Entity.load(clazz.getResource(path + ".br"), '-' + BROTLI);
+    Entity gzip = Entity.load(clazz.getResource(path + ".gz"), '-' + GZIP);
+    if (null == gzip && isCompressible(mimeType))
+      gzip = identity.gzip();
+
+    return new ResourceContent(lastModified, identity, gzip, brotli);
+  }
+
+  long lastModified() {
+    return lastModified;
+  }
+
+  Entity identity() {
+    return identity;
+  }
+
+  /**
+   * @return The best variant acceptable according to the given Accept-Encoding
+   *    header, preferring brotli.
+   */
+  Entity negotiate(@Nullable String acceptEncoding) {
+    if (null == acceptEncoding)
+      return identity;
+
+    if (null != brotli && accepts(acceptEncoding, BROTLI))
+      return brotli;
+    if (null != gzip && accepts(acceptEncoding, GZIP))
+      return gzip;
+    return identity;
+  }
+
+  boolean hasVariants() {
+    return null != gzip || null != brotli;
+  }
+
+  private static boolean accepts(String acceptEncoding, String encoding) {
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parameters = coding.split(";");
+      if (!encoding.equalsIgnoreCase(parameters[0].trim()))
+        continue;
+
+      // q=0 means the encoding is explicitly not acceptable.
+      for (int i = 1; i < parameters.length; i++) {
+        String parameter = parameters[i].trim();
+        if (parameter.startsWith("q=")) {
+          try {
+            return Double.parseDouble(parameter.substring(2)) > 0;
+          } catch (NumberFormatException e) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  private static boolean isCompressible(String mimeType) {
+    return null != mimeType && (mimeType.startsWith("text/")
+        || mimeType.endsWith("javascript")
+        || mimeType.endsWith("json")
+        || mimeType.endsWith("xml"));
+  }
+
+  /**
+   * One representation of the resource: its bytes if small enough, otherwise
+   * the classpath location to stream them from.
+   */
+  @Immutable
+  static class Entity {
+    private final String encoding;
+    private final String etag;
+    private final long length;
+    private final byte[] bytes;
+    private final URL url;
+
+    private Entity(String encoding, String etag, long length, byte[] bytes, URL url) {
+      this.encoding = encoding;
+      this.etag = etag;
+      this.length = length;
+      this.bytes = bytes;
+      this.url = url;
+    }
+
+    @Nullable
+    static Entity load(@Nullable URL url, String suffix) throws IOException {
+      if (null == url)
+        return null;
+
+      MessageDigest digest = md5();
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      long length = 0;
+      InputStream in = new DigestInputStream(url.openStream(), digest);
+      try {
+        byte[] buffer = new byte[8192];
+        for (int read; (read = in.read(buffer)) != -1; ) {
+          length += read;
+
+          // Keep the bytes only while they still fit in the cache.
+          if (null != out) {
+            if (length <= MAX_CACHED_BYTES)
+              out.write(buffer, 0, read);
+            else
+              out = null;
+          }
+        }
+      } finally {
+        in.close();
+      }
+
+      String encoding = (suffix.length() == 0) ? null : suffix.substring(1);
+      String etag = '"' + toHex(digest.digest()) + suffix + '"';
+      return new Entity(encoding, etag, length, null == out ? null : out.toByteArray(),
+          null == out ? url : null);
+    }
+
+    /**
+     * @return A gzipped copy of this entity, or null if it isn't held in memory
+     *    or doesn't get any smaller.
+     */
+    @Nullable
+    Entity gzip() throws IOException {
+      if (null == bytes)
+        return null;
+
+      ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+      GZIPOutputStream out = new GZIPOutputStream(compressed);
+      out.write(bytes);
+      out.close();
+
+      if (compressed.size() >= bytes.length)
+        return null;
+
+      // Derived from the identity's hash, it changes whenever the resource does.
+      String etag = etag().substring(0, etag().length() - 1) + '-' + GZIP + '"';
+      byte[] gzipped = compressed.toByteArray();
+      return new Entity(GZIP, etag, gzipped.length, gzipped, null);
+    }
+
+    /**
+     * @return The content coding of this entity, or null for the identity.
+     */
+    @Nullable
+    String encoding() {
+      return encoding;
+    }
+
+    String etag() {
+      return etag;
+    }
+
+    long length() {
+      return length;
+    }
+
+    /**
+     * @return The content, if it is held in memory; otherwise null.
+     */
+    @Nullable
+    byte[] bytes() {
+      return bytes;
+    }
+
+    /**
+     * Copies {@code count} bytes of this entity starting at {@code offset}.
+     */
+    void writeTo(OutputStream out, long offset, long count) throws IOException {
+      if (null != bytes) {
+        out.write(bytes, (int) offset, (int) count);
+        return;
+      }
+
+      InputStream in = url.openStream();
+      try {
+        long skipped = 0;
+        while (skipped < offset) {
+          long skip = in.skip(offset - skipped);
+          if (skip <= 0)
+            throw new IOException("Resource is shorter than expected: " + url);
+          skipped += skip;
+        }
+
+        byte[] buffer = new byte[8192];
+        while (count > 0) {
+          int read = in.read(buffer, 0, (int) Math.min(buffer.length, count));
+          if (read == -1)
+            throw new IOException("Resource is shorter than expected: " + url);
+          out.write(buffer, 0, read);
+          count -= read;
+        }
+      } finally {
+        IOUtils.closeQuietly(in);
+      }
+    }
+
+    private static MessageDigest md5() {
+      try {
+        return MessageDigest.getInstance("MD5");
+      } catch (NoSuchAlgorithmException e) {
+        throw new ResourceLoadingException("MD5 is not available in this JVM", e);
+      }
+    }
+
+    private static String toHex(byte[] digest) {
+      StringBuilder hex = new StringBuilder(digest.length * 2);
+      for (byte b : digest) {
+        hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+        hex.append(Character.forDigit(b & 0xF, 16));
+      }
+      return hex.toString();
+    }
+  }
+}
@@ -0,0 +1,21 @@
+package com.google.sitebricks.rendering.resource;
+
+import com.google.sitebricks.Respond;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * A respond for static resources, which writes its content as raw bytes
+ * directly to the servlet response rather than through the character-based
+ * rendering pipeline. It also takes care of caching headers, conditional
+ * requests, ranges and content encoding.
+ */
+public interface ResourceRespond extends Respond {
+  /**
+   * Writes the resource (or a 304/206/416 response as appropriate for the
+   * given request) to the servlet response.
+   */
+  void writeTo(HttpServletRequest request, HttpServletResponse response) throws IOException;
+}
@@ -6,10 +6,12 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
+import com.google.common.primitives.Primitives;
 import com.google.inject.BindingAnnotation;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.google.inject.Key;
+import com.google.inject.Provider;
 import com.google.inject.Singleton;
 import com.google.inject.TypeLiteral;
 import com.google.inject.name.Named;
@@ -17,11 +19,16 @@ import com.google.sitebricks.ActionDescriptor;
 import com.google.sitebricks.At;
 import com.google.sitebricks.Bricks;
 import com.google.sitebricks.Renderable;
+import com.google.sitebricks.conversion.Converter;
+import com.google.sitebricks.conversion.ConverterRegistry;
+import com.google.sitebricks.conversion.StandardTypeConverter;
 import com.google.sitebricks.conversion.TypeConverter;
+import com.google.sitebricks.conversion.generics.Generics;
 import com.google.sitebricks.headless.Request;
 import com.google.sitebricks.headless.Service;
 import com.google.sitebricks.http.Select;
 import com.google.sitebricks.http.negotiate.ContentNegotiator;
+import com.google.sitebricks.http.negotiate.ScoringNegotiator;
 import com.google.sitebricks.http.negotiate.Negotiation;
 import com.google.sitebricks.rendering.Strings;
 import com.google.sitebricks.rendering.control.DecorateWidget;
@@ -56,6 +63,10 @@ public class DefaultPageBook implements PageBook {
   private final List<PageTuple> universalMatchingPages = Lists.newArrayList();
   private final Map<String, PageTuple> pagesByName = Maps.newHashMap();
 
+  // Compiled index of all the above uri-mapped pages, used for resolution.
+  @GuardedBy("lock")
+  private final RoutingTrie<PageTuple> routes = new RoutingTrie<PageTuple>();
+
   private final ConcurrentMap<Class<?>, PageTuple> classToPageMap =
       new MapMaker()
           .weakKeys()
@@ -139,6 +150,7 @@ public class DefaultPageBook implements PageBook {
       } else {
         multiput(pages, key, page);
       }
+      routes.add(page.getUri(), page);
     }
 
     // Actions are not backed by classes.
@@ -158,6 +170,7 @@ public class DefaultPageBook implements PageBook {
       else {
         multiput(pages, key, pageTuple);
       }
+      routes.add(uri, pageTuple);
     }
 
     // Does not need to be inside lock, as it is concurrent.
@@ -221,30 +234,21 @@ public class DefaultPageBook implements PageBook {
     return (index >= 0) ? shortUri.substring(0, index) : shortUri;
   }
 
+  /**
+   * Resolves the page at the given uri using the compiled route trie. See
+   * {@link RoutingTrie} for the precedence rules when several uri templates
+   * could match. The returned page carries any captured path variables, so
+   * they need not be re-matched when firing events on it.
+   */
   @Nullable
   public Page get(String uri) {
-    final String key = firstPathElement(uri);
-
-    List<PageTuple> tuple = pages.get(key);
-
-    //first try static first piece
-    if (null != tuple) {
-
-      //first try static first piece
-      for (PageTuple pageTuple : tuple) {
-        if (pageTuple.matcher.matches(uri))
-          return pageTuple;
-      }
-    }
-
-    //now try dynamic first piece (how can we make this faster?)
-    for (PageTuple pageTuple : universalMatchingPages) {
-      if (pageTuple.matcher.matches(uri))
-        return pageTuple;
-    }
+    RoutingTrie.Match<PageTuple> match = routes.find(uri);
 
     //nothing matched
-    return null;
+    if (null == match)
+      return null;
+
+    return new RoutedPage(match.value(), match);
   }
 
   public Page forName(String name) {
@@ -329,6 +333,74 @@ public class DefaultPageBook implements PageBook {
     }
   }
 
+  /**
+   * A page resolved from a uri, which remembers the path variables captured
+   * during resolution and reuses them when dispatching to that same uri.
+   */
+  static class RoutedPage implements Page {
+    private final PageTuple delegate;
+    private final RoutingTrie.Match<PageTuple> match;
+
+    private RoutedPage(PageTuple delegate, RoutingTrie.Match<PageTuple> match) {
+      this.delegate = delegate;
+      this.match = match;
+    }
+
+    public Renderable widget() {
+      return delegate.widget();
+    }
+
+    public Object instantiate() {
+      return delegate.instantiate();
+    }
+
+    public Object doMethod(String httpMethod, Object page, String pathInfo, Request request) {
+      if (!match.uri().equals(pathInfo))
+        return delegate.doMethod(httpMethod, page, pathInfo, request);
+
+      return delegate.doMethod(httpMethod, page, match.variables(), request);
+    }
+
+    public Class<?> pageClass() {
+      return delegate.pageClass();
+    }
+
+    public void apply(Renderable widget) {
+      delegate.apply(widget);
+    }
+
+    public String getUri() {
+      return delegate.getUri();
+    }
+
+    public boolean isHeadless() {
+      return delegate.isHeadless();
+    }
+
+    @Override
+    public boolean isDecorated() {
+      return delegate.isDecorated();
+    }
+
+    public Set<String> getMethod() {
+      return delegate.getMethod();
+    }
+
+    public int compareTo(Page page) {
+      return delegate.compareTo(page);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return delegate.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+      return delegate.hashCode();
+    }
+  }
+
   @Select("") //the default select (hacky!!)
   public static class PageTuple implements Page {
     private final String uri;
@@ -407,11 +479,15 @@ public class DefaultPageBook implements PageBook {
 
       Multimap<String, Action> map = HashMultimap.create();
 
+      // Reflect once, rather than once for every kind of HTTP method.
+      Method[] publicMethods = clazz.getMethods();
+      Method[] declaredMethods = clazz.getDeclaredMethods();
+
       for (Map.Entry<String, Class<? extends Annotation>> entry : methodMap.entrySet()) {
 
           Class<? extends Annotation> get = entry.getValue();
           // First search any available public methods and store them (including inherited ones)
-          for (Method method : clazz.getMethods()) {
+          for (Method method : publicMethods) {
             if (method.isAnnotationPresent(get)) {
               if (!method.isAccessible())
                 method.setAccessible(true); //ugh
@@ -443,7 +519,7 @@ public class DefaultPageBook implements PageBook {
           }
 
           // Then search class's declared methods only (these take precedence)
-          for (Method method : clazz.getDeclaredMethods()) {
+          for (Method method : declaredMethods) {
             if (method.isAnnotationPresent(get)) {
               if (!method.isAccessible())
                 method.setAccessible(true); //ugh
@@ -515,12 +591,25 @@ public class DefaultPageBook implements PageBook {
         return null;
       }
 
+      // Extract injectable pieces of the pathInfo.
+      return doMethod(httpMethod, page, matcher.findMatches(pathInfo), request);
+    }
+
+    /**
+     * Same as {@link #doMethod(String, Object, String, Request)} but with the
+     * path variables already extracted (e.g. by the {@link RoutingTrie}).
+     */
+    Object doMethod(String httpMethod, Object page, Map<String, String> map,
+                    Request request) {
+
+      //nothing to fire
+      if (Strings.empty(httpMethod)) {
+        return null;
+      }
+
       // NOTE(dhanji): This slurps the entire Map. It could potentially be optimized...
       Multimap<String, String> params = request.params();
 
-      // Extract injectable pieces of the pathInfo.
-      final Map<String, String> map = matcher.findMatches(pathInfo);
-
       // Find method(s) to dispatch to.
       Collection<String> events = params.get(select.value());
       if (null != events) {
@@ -531,12 +620,10 @@ public class DefaultPageBook implements PageBook {
           Object redirect = null;
 
           if (null != tuples) {
-            for (Action action : tuples) {
-              if (action.shouldCall(request)) {
-                matched = true;
-                redirect = action.call(request, page, map);
-                break;
-              }
+            Action action = select(tuples, request);
+            if (null != action) {
+              matched = true;
+              redirect = action.call(request, page, map);
             }
           }
 
@@ -568,16 +655,35 @@ public class DefaultPageBook implements PageBook {
       Collection<Action> tuple = methods.get(httpMethod);
       Object redirect = null;
       if (null != tuple) {
-        for (Action action : tuple) {
-          if (action.shouldCall(request)) {
-            redirect = action.call(request, page, pathMap);
-            break;
-          }
+        Action action = select(tuple, request);
+        if (null != action) {
+          redirect = action.call(request, page, pathMap);
         }
       }
       return redirect;
     }
 
+    /**
+     * Picks the handler that best fits the request's negotiated headers (for
+     * example the highest q-value in its Accept header) in a single pass. Ties
+     * go to the first handler, as do handlers that don't negotiate at all.
+     */
+    private static Action select(Collection<Action> actions, Request request) {
+      Action best = null;
+      int bestScore = ScoringNegotiator.NOT_ACCEPTABLE;
+      for (Action action : actions) {
+        int score = (action instanceof MethodTuple)
+            ? ((MethodTuple) action).score(request)
+            : (action.shouldCall(request) ? 0 : ScoringNegotiator.NOT_ACCEPTABLE);
+
+        if (score > bestScore) {
+          best = action;
+          bestScore = score;
+        }
+      }
+      return best;
+    }
+
     public Class<?> pageClass() {
       return clazz;
     }
@@ -607,64 +713,70 @@ public class DefaultPageBook implements PageBook {
   }
 
   private static class MethodTuple implements Action {
+    private static final Object[] NO_ARGS = new Object[0];
+
     private final Method method;
-    private final Injector injector;
-    private final List<Object> args;
+    private final Parameter[] parameters;
     private final Map<String, String> negotiates;
     private final ContentNegotiator negotiator;
-	  private final TypeConverter converter;
+    private final ScoringNegotiator.Compiled negotiation;
 
     private MethodTuple(Method method, Injector injector) {
       this.method = method;
-      this.injector = injector;
-      this.args = reflect(method);
+      this.parameters = reflect(method, injector, injector.getInstance(TypeConverter.class));
       this.negotiates = discoverNegotiates(method, injector);
       this.negotiator = injector.getInstance(ContentNegotiator.class);
-      this.converter = injector.getInstance(TypeConverter.class);
+
+      // Compile negotiation rules once here, rather than on every request.
+      this.negotiation = (negotiator instanceof ScoringNegotiator)
+          ? ((ScoringNegotiator) negotiator).compile(negotiates)
+          : null;
     }
 
-    private List<Object> reflect(Method method) {
+    /**
+     * Resolves how to obtain each argument of the given event handler once,
+     * up front, so that dispatch is only a matter of filling in a fixed-size
+     * argument array.
+     */
+    private static Parameter[] reflect(Method method, Injector injector, TypeConverter converter) {
       final Annotation[][] annotationsGrid = method.getParameterAnnotations();
       if (null == annotationsGrid)
-        return Collections.emptyList();
+        return new Parameter[0];
 
-      List<Object> args = new ArrayList<Object>();
+      Parameter[] parameters = new Parameter[annotationsGrid.length];
       for (int i = 0; i < annotationsGrid.length; i++) {
         Annotation[] annotations = annotationsGrid[i];
 
         Annotation bindingAnnotation = null;
-        boolean namedFound = false;
         for (Annotation annotation : annotations) {
           if (Named.class.isInstance(annotation)) {
             Named named = (Named) annotation;
 
-			      args.add(new NamedParameter(named.value(), method.getGenericParameterTypes()[i]));
-            namedFound = true;
-
+            parameters[i] = new NamedParameter(named.value(), method.getGenericParameterTypes()[i],
+                converter);
             break;
           } else if (annotation.annotationType().isAnnotationPresent(BindingAnnotation.class)) {
             bindingAnnotation = annotation;
           }
         }
 
-        if (!namedFound) {
+        if (null == parameters[i]) {
           // Could be an arbitrary injection request.
           Class<?> argType = method.getParameterTypes()[i];
           Key<?> key = (null != bindingAnnotation)
               ? Key.get(argType, bindingAnnotation)
               : Key.get(argType);
 
-          args.add(key);
-
           if (null == injector.getBindings().get(key))
             throw new InvalidEventHandlerException(
                 "Encountered an argument not annotated with @Named and not a valid injection key"
                 + " in event handler method: " + method + " " + key);
-        }
 
+          parameters[i] = new InjectedParameter(injector.getProvider(key));
+        }
       }
 
-      return Collections.unmodifiableList(args);
+      return parameters;
     }
 
     /**
@@ -673,24 +785,29 @@ public class DefaultPageBook implements PageBook {
      */
     @Override
     public boolean shouldCall(Request request) {
-      return negotiator.shouldCall(negotiates, request);
+      return ScoringNegotiator.NOT_ACCEPTABLE != score(request);
+    }
+
+    /**
+     * @return How well this method tuple's content negotiation fits the request,
+     * see {@link ScoringNegotiator.Compiled#score}.
+     */
+    int score(Request request) {
+      if (null != negotiation) {
+        return negotiation.score(request);
+      }
+      return negotiator.shouldCall(negotiates, request) ? 0 : ScoringNegotiator.NOT_ACCEPTABLE;
     }
 
 
     @Override
     public Object call(Request request, Object page, Map<String, String> map) {
-      List<Object> arguments = new ArrayList<Object>();
-      for (Object arg : args) {
-    	  if (arg instanceof NamedParameter) {
-			NamedParameter np = (NamedParameter) arg;
-			String text = map.get(np.getName());
-			Object value = converter.convert(text, np.getType());
-			arguments.add(value);
-		} else
-          arguments.add(injector.getInstance((Key<?>) arg));
+      Object[] arguments = (0 == parameters.length) ? NO_ARGS : new Object[parameters.length];
+      for (int i = 0; i < parameters.length; i++) {
+        arguments[i] = parameters[i].resolve(map);
       }
 
-      return call(page, method, arguments.toArray());
+      return call(page, method, arguments);
     }
 
     private static Object call(Object page, final Method method,
@@ -729,25 +846,76 @@ public class DefaultPageBook implements PageBook {
 
       return negotiations;
     }
+  }
 
-	public class NamedParameter {
-		private final String name;
-		private final Type type;
+  /**
+   * A pre-resolved source for one argument of an event handler method.
+   */
+  private static interface Parameter {
+    Object resolve(Map<String, String> pathVariables);
+  }
 
-		public NamedParameter(String name, Type type) {
-			this.name = name;
-			this.type = type;
-		}
+  private static class InjectedParameter implements Parameter {
+    private final Provider<?> provider;
 
-		public String getName() {
-			return name;
-		}
+    private InjectedParameter(Provider<?> provider) {
+      this.provider = provider;
+    }
 
-		public Type getType() {
-			return type;
-		}
-	}
+    public Object resolve(Map<String, String> pathVariables) {
+      return provider.get();
+    }
+  }
 
+  /**
+   * A path variable, converted to the parameter's type. Converters from String
+   * to that type are selected ahead of time where possible; anything else
+   * (nulls, empty strings, reverse or super-type conversions) goes through the
+   * general {@link TypeConverter}.
+   */
+  private static class NamedParameter implements Parameter {
+    private final String name;
+    private final Type type;
+    private final TypeConverter converter;
+
+    // True if the parameter can take the String as-is.
+    private final boolean assignable;
+    private final Converter<?, ?>[] converters;
+
+    private NamedParameter(String name, Type type, TypeConverter converter) {
+      this.name = name;
+      this.type = type;
+      this.converter = converter;
+      this.assignable = Generics.isSuperType(type, String.class);
+
+      Type target = type;
+      if (type instanceof Class<?> && ((Class<?>) type).isPrimitive())
+        target = Primitives.wrap((Class<?>) type);
+
+      Collection<Converter<?, ?>> direct = (converter instanceof ConverterRegistry)
+          ? ((ConverterRegistry) converter).converter(String.class, target)
+          : Collections.<Converter<?, ?>>emptyList();
+      this.converters = direct.toArray(new Converter<?, ?>[direct.size()]);
+    }
+
+    public Object resolve(Map<String, String> pathVariables) {
+      String text = pathVariables.get(name);
+
+      if (null != text) {
+        if (assignable)
+          return text;
+
+        if (!text.isEmpty()) {
+          for (Converter<?, ?> forward : converters) {
+            Object value = StandardTypeConverter.typeSafeTo(forward, text);
+            if (null != value)
+              return value;
+          }
+        }
+      }
+
+      return converter.convert(text, type);
+    }
   }
 
   /**
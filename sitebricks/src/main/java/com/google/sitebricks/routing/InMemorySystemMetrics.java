@@ -8,6 +8,7 @@ import net.jcip.annotations.ThreadSafe;
 import java.util.List;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
@@ -44,6 +45,10 @@ class InMemorySystemMetrics implements SystemMetrics {
     log.warning(errorTuple.toString());
   }
 
+  public void logCoalescedWidgets(Class<?> page, int widgets) {
+    putIfAbsent(page).coalescedWidgets.set(widgets);
+  }
+
   public void activate() {
     active.set(true);
   }
@@ -81,6 +86,7 @@ class InMemorySystemMetrics implements SystemMetrics {
   private static class Metric {
     private final AtomicLong lastRenderTime = new AtomicLong(0);
     private final AtomicReference<ErrorTuple> lastErrors = new AtomicReference<ErrorTuple>();
+    private final AtomicInteger coalescedWidgets = new AtomicInteger(0);
 
   }
 
@@ -0,0 +1,299 @@
+package com.google.sitebricks.routing;
+
+import net.jcip.annotations.NotThreadSafe;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A compiled segment trie of URI templates (e.g. {@code /wiki/:title/page/:id}).
+ * Incoming URIs are resolved in a single left-to-right pass over the string,
+ * without regular expressions, {@code String.split()} or any per-segment
+ * allocation. Path variables are captured as offsets into the incoming URI
+ * and only turned into Strings once a route has been found.
+ * <p>
+ * Segments are delimited by {@code /} and trailing empty segments are
+ * ignored, exactly as with {@link PathMatcherChain} (so {@code /wiki/}
+ * resolves to {@code /wiki}).
+ * <p>
+ * Precedence, when more than one template could match a URI:
+ * <ol>
+ *   <li>At each segment, a static (literal) child is tried before a variable
+ *   ({@code :name}) child. So {@code /wiki/new} beats {@code /wiki/:title}
+ *   for the URI {@code /wiki/new}, regardless of registration order.</li>
+ *   <li>Segments are compared left to right, so the first segment at which
+ *   two templates differ decides: {@code /wiki/:title/edit} beats
+ *   {@code /:section/new/edit} for {@code /wiki/new/edit}.</li>
+ *   <li>If a static branch fails further down, matching backtracks and
+ *   tries the variable branch at that segment.</li>
+ *   <li>Among templates with the identical shape (e.g. {@code /wiki/:a} and
+ *   {@code /wiki/:b}), the first one registered wins.</li>
+ * </ol>
+ *
+ * Writes must be externally synchronized; reads may proceed concurrently
+ * once registration has been published (as at the end of bootstrap).
+ */
+@NotThreadSafe
+class RoutingTrie<T> {
+  private static final char PATH_SEPARATOR = '/';
+  private static final char VARIABLE_PREFIX = ':';
+
+  private final Node<T> root = new Node<T>();
+
+  // Deepest registered template, used to size the capture buffer.
+  private volatile int maxDepth;
+
+  /**
+   * Registers a value against the given URI template. If a template of
+   * the same shape is already registered, the earlier one is kept.
+   */
+  public void add(String template, T value) {
+    int end = effectiveLength(template);
+    Node<T> node = root;
+
+    int depth = 0;
+    String[] names = new String[segmentCount(template, end)];
+    for (int start = 0; start <= end && end > 0; depth++) {
+      int segmentEnd = segmentEnd(template, start, end);
+
+      if (segmentEnd > start && VARIABLE_PREFIX == template.charAt(start)) {
+        names[depth] = template.substring(start + 1, segmentEnd);
+        node = node.variableChild();
+      } else
+        node = node.staticChild(template.substring(start, segmentEnd));
+
+      start = segmentEnd + 1;
+    }
+
+    if (null == node.route)
+      node.route = new Route<T>(value, names);
+
+    if (depth > maxDepth)
+      maxDepth = depth;
+  }
+
+  /**
+   * @return A match for the given incoming URI, or null if no registered
+   *     template matches it.
+   */
+  @Nullable
+  public Match<T> find(String uri) {
+    int end = effectiveLength(uri);
+
+    // Empty (or all-slashes) URIs consist of zero segments.
+    if (0 == end) {
+      if (uri.length() == 0 || null == root.route)
+        return null;
+
+      return new Match<T>(root.route, uri, null);
+    }
+
+    int[] captures = new int[maxDepth * 2];
+    Route<T> route = find(root, uri, 0, end, 0, captures);
+
+    return (null == route) ? null : new Match<T>(route, uri, captures);
+  }
+
+  private static <T> Route<T> find(Node<T> node, String uri, int start, int end, int depth,
+                                   int[] captures) {
+    // All segments consumed.
+    if (start > end)
+      return node.route;
+
+    int segmentEnd = segmentEnd(uri, start, end);
+
+    // Static children take precedence.
+    Node<T> child = node.lookup(uri, start, segmentEnd);
+    if (null != child) {
+      Route<T> route = find(child, uri, segmentEnd + 1, end, depth + 1, captures);
+      if (null != route)
+        return route;
+    }
+
+    // Otherwise fall back to capturing this segment as a variable.
+    if (null != node.variable) {
+      captures[depth * 2] = start;
+      captures[depth * 2 + 1] = segmentEnd;
+
+      return find(node.variable, uri, segmentEnd + 1, end, depth + 1, captures);
+    }
+
+    return null;
+  }
+
+  // Length of the URI with trailing separators dropped (mirrors String.split()).
+  private static int effectiveLength(String uri) {
+    int end = uri.length();
+    while (end > 0 && PATH_SEPARATOR == uri.charAt(end - 1))
+      end--;
+
+    return end;
+  }
+
+  private static int segmentEnd(String uri, int start, int end) {
+    int index = uri.indexOf(PATH_SEPARATOR, start);
+    return (index < 0 || index > end) ? end : index;
+  }
+
+  private static int segmentCount(String uri, int end) {
+    if (0 == end)
+      return 0;
+
+    int count = 1;
+    for (int i = 0; i < end; i++)
+      if (PATH_SEPARATOR == uri.charAt(i))
+        count++;
+
+    return count;
+  }
+
+  /**
+   * The result of resolving a URI. Path variables are materialized lazily.
+   */
+  public static final class Match<T> {
+    private final Route<T> route;
+    private final String uri;
+    private final int[] captures;
+    private Map<String, String> variables;
+
+    private Match(Route<T> route, String uri, int[] captures) {
+      this.route = route;
+      this.uri = uri;
+      this.captures = captures;
+    }
+
+    public T value() {
+      return route.value;
+    }
+
+    public String uri() {
+      return uri;
+    }
+
+    /**
+     * @return A map of path variable names to their values in the matched URI.
+     */
+    public Map<String, String> variables() {
+      if (null != variables)
+        return variables;
+
+      String[] names = route.names;
+      if (0 == route.variableCount) {
+        variables = Collections.emptyMap();
+        return variables;
+      }
+
+      Map<String, String> map = new HashMap<String, String>(route.variableCount * 2);
+      for (int i = 0; i < names.length; i++) {
+        if (null != names[i])
+          map.put(names[i], uri.substring(captures[i * 2], captures[i * 2 + 1]));
+      }
+
+      return variables = map;
+    }
+  }
+
+  private static final class Route<T> {
+    private final T value;
+
+    // Variable name by segment index, null for static segments.
+    private final String[] names;
+    private final int variableCount;
+
+    private Route(T value, String[] names) {
+      this.value = value;
+      this.names = names;
+
+      int count = 0;
+      for (String name : names)
+        if (null != name)
+          count++;
+      this.variableCount = count;
+    }
+  }
+
+  /**
+   * A trie node. Static children live in a small open-addressed table keyed
+   * by segment text, so that they can be probed with a region of the incoming
+   * URI rather than a substring of it.
+   */
+  private static final class Node<T> {
+    private String[] keys = new String[4];
+    @SuppressWarnings("unchecked")
+    private Node<T>[] children = new Node[4];
+    private int size;
+
+    private Node<T> variable;
+    private Route<T> route;
+
+    Node<T> variableChild() {
+      if (null == variable)
+        variable = new Node<T>();
+
+      return variable;
+    }
+
+    Node<T> staticChild(String key) {
+      Node<T> child = lookup(key, 0, key.length());
+      if (null != child)
+        return child;
+
+      // Keep the load factor under one half.
+      if ((size + 1) * 2 > keys.length)
+        resize();
+
+      child = new Node<T>();
+      insert(keys, children, key, child);
+      size++;
+
+      return child;
+    }
+
+    Node<T> lookup(String uri, int start, int end) {
+      int length = end - start;
+      int mask = keys.length - 1;
+
+      for (int i = hash(uri, start, end) & mask; null != keys[i]; i = (i + 1) & mask) {
+        String key = keys[i];
+        if (key.length() == length && uri.regionMatches(start, key, 0, length))
+          return children[i];
+      }
+
+      return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resize() {
+      String[] newKeys = new String[keys.length * 2];
+      Node<T>[] newChildren = new Node[keys.length * 2];
+
+      for (int i = 0; i < keys.length; i++)
+        if (null != keys[i])
+          insert(newKeys, newChildren, keys[i], children[i]);
+
+      keys = newKeys;
+      children = newChildren;
+    }
+
+    private static <T> void insert(String[] keys, Node<T>[] children, String key, Node<T> child) {
+      int mask = keys.length - 1;
+      int i = hash(key, 0, key.length()) & mask;
+      while (null != keys[i])
+        i = (i + 1) & mask;
+
+      keys[i] = key;
+      children[i] = child;
+    }
+
+    // Same as String.hashCode() over the region, then spread.
+    private static int hash(String s, int start, int end) {
+      int h = 0;
+      for (int i = start; i < end; i++)
+        h = 31 * h + s.charAt(i);
+
+      return h ^ (h >>> 16);
+    }
+  }
+}
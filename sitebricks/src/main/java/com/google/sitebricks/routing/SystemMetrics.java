@@ -25,6 +25,13 @@ public interface SystemMetrics {
      */
     void logErrorsAndWarnings(Class<?> page, List<CompileError> errors, List<CompileError> warnings);
 
+    /**
+     * Records how many widgets were eliminated from the given page's template
+     * by collapsing static markup into pre-rendered literals when it was last
+     * compiled.
+     */
+    void logCoalescedWidgets(Class<?> page, int widgets);
+
     /**
      * Puts the system into a ready state. This is used by Sitebricks to
      * determine whether we're in the compile phase.
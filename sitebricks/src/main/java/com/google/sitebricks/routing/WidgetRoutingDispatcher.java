@@ -4,15 +4,18 @@ import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
 import com.google.sitebricks.Respond;
+import com.google.sitebricks.StreamingRespond;
 import com.google.sitebricks.StringBuilderRespond;
 import com.google.sitebricks.binding.FlashCache;
 import com.google.sitebricks.binding.RequestBinder;
 import com.google.sitebricks.headless.HeadlessRenderer;
 import com.google.sitebricks.headless.Request;
+import com.google.sitebricks.rendering.Streamed;
 import com.google.sitebricks.rendering.resource.ResourcesService;
 import com.google.sitebricks.routing.PageBook.Page;
 import net.jcip.annotations.Immutable;
 
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 
 /**
@@ -26,13 +29,16 @@ class WidgetRoutingDispatcher implements RoutingDispatcher {
   private final ResourcesService resourcesService;
   private final Provider<FlashCache> flashCacheProvider;
   private final HeadlessRenderer headlessRenderer;
+  private final Provider<HttpServletResponse> responseProvider;
 
   @Inject
   public WidgetRoutingDispatcher(PageBook book, RequestBinder binder,
                                  ResourcesService resourcesService,
                                  Provider<FlashCache> flashCacheProvider,
-                                 HeadlessRenderer headlessRenderer) {
+                                 HeadlessRenderer headlessRenderer,
+                                 Provider<HttpServletResponse> responseProvider) {
     this.headlessRenderer = headlessRenderer;
+    this.responseProvider = responseProvider;
     this.book = book;
     this.binder = binder;
     this.resourcesService = resourcesService;
@@ -70,7 +76,12 @@ class WidgetRoutingDispatcher implements RoutingDispatcher {
     if (page.isHeadless()) {
       return bindAndReply(request, page, instance);
     } else {
-      respond = new StringBuilderRespond(instance);
+      // Streamed pages are written to the client as they render.
+      Class<?> pageClass = page.pageClass();
+      if (null != pageClass && pageClass.isAnnotationPresent(Streamed.class))
+        respond = new StreamingRespond(instance, responseProvider.get());
+      else
+        respond = new StringBuilderRespond(instance);
 
       //fire events and render reponders
       bindAndRespond(request, page, respond, instance);
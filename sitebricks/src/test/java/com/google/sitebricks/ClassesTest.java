@@ -0,0 +1,98 @@
+package com.google.sitebricks;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import com.google.common.io.Resources;
+import com.google.sitebricks.compiler.HtmlTemplateCompilerTest;
+import com.google.sitebricks.rendering.EmbedAs;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.util.Set;
+
+import static com.google.inject.matcher.Matchers.annotatedWith;
+
+public class ClassesTest {
+
+  @Test
+  public final void pageIndexIsWrittenAtCompileTime() {
+    // Our own test classes are compiled with the page index processor.
+    URL index = ClassesTest.class.getClassLoader().getResource(PageIndexProcessor.INDEX);
+    assert null != index : "no page index was written by the annotation processor";
+
+    Set<Class<?>> embeds = Classes.matching(annotatedWith(EmbedAs.class))
+        .in(HtmlTemplateCompilerTest.class.getPackage());
+    assert embeds.contains(HtmlTemplateCompilerTest.MyEmbeddedPage.class) : embeds;
+  }
+
+  @Test
+  public final void readClassesFromPageIndexInsteadOfScanning() throws Exception {
+    File root = Files.createTempDir();
+    try {
+      // A classpath root with the package directory, but no classes in it, only an index.
+      String pkg = HtmlTemplateCompilerTest.class.getPackage().getName();
+      new File(root, pkg.replace('.', '/')).mkdirs();
+
+      File index = new File(root, PageIndexProcessor.INDEX);
+      Files.createParentDirs(index);
+      Files.write(HtmlTemplateCompilerTest.MyEmbeddedPage.class.getName() + "\n"
+          + pkg + ".NoLongerThere\n"
+          + ClassesTest.class.getName() + "\n", index, Charset.forName("UTF-8"));
+
+      ClassLoader previous = Thread.currentThread().getContextClassLoader();
+      Thread.currentThread().setContextClassLoader(
+          new URLClassLoader(new URL[] { root.toURI().toURL() }, null));
+      Set<Class<?>> classes;
+      try {
+        classes = Classes.matching(annotatedWith(EmbedAs.class))
+            .in(HtmlTemplateCompilerTest.class.getPackage());
+      } finally {
+        Thread.currentThread().setContextClassLoader(previous);
+      }
+
+      // Stale names, and names outside the package, are skipped.
+      assert ImmutableSet.<Class<?>>of(HtmlTemplateCompilerTest.MyEmbeddedPage.class)
+          .equals(classes) : classes;
+    } finally {
+      Files.deleteRecursively(root);
+    }
+  }
+
+  @Test
+  public final void scanIndexedRootsFindsClassesMissingFromIndex() throws Exception {
+    File root = Files.createTempDir();
+    try {
+      // A classpath root whose index has fallen behind the classes compiled into it.
+      Class<?> unindexed = HtmlTemplateCompilerTest.MyEmbeddedPage.class;
+      String path = unindexed.getName().replace('.', '/') + ".class";
+      File classFile = new File(root, path);
+      Files.createParentDirs(classFile);
+      Files.copy(Resources.newInputStreamSupplier(unindexed.getResource('/' + path)), classFile);
+
+      File index = new File(root, PageIndexProcessor.INDEX);
+      Files.createParentDirs(index);
+      Files.write(ClassesTest.class.getName() + "\n", index, Charset.forName("UTF-8"));
+
+      ClassLoader previous = Thread.currentThread().getContextClassLoader();
+      Thread.currentThread().setContextClassLoader(
+          new URLClassLoader(new URL[] { root.toURI().toURL() }, null));
+      Set<Class<?>> trusted;
+      Set<Class<?>> scanned;
+      try {
+        Classes classes = Classes.matching(annotatedWith(EmbedAs.class));
+        trusted = classes.in(unindexed.getPackage());
+        scanned = classes.scanIndexedRoots().in(unindexed.getPackage());
+      } finally {
+        Thread.currentThread().setContextClassLoader(previous);
+      }
+
+      assert trusted.isEmpty() : trusted;
+      assert ImmutableSet.<Class<?>>of(unindexed).equals(scanned) : scanned;
+    } finally {
+      Files.deleteRecursively(root);
+    }
+  }
+}
@@ -27,4 +27,34 @@ public class RespondTest {
 
         assert ("" + null).equals(respond.toString());
     }
+
+    @Test
+    public final void respondInsertsHeadAndRequiresAtPlaceholder() {
+        final Respond respond = new StringBuilderRespond(new Object());
+        respond.write("<html><head><title>");
+        respond.write(A_STRING);
+        respond.write("</title>");
+        respond.require("<script/>");
+        respond.withHtml().headerPlaceholder();
+        respond.write("</head><body>");
+        respond.writeToHead("<meta/>");
+        respond.require("<script/>");
+        respond.write("</body></html>");
+
+        final String expected = "<html><head><title>" + A_STRING + "</title><meta/><script/>"
+            + "</head><body></body></html>";
+        assert expected.equals(respond.toString()) : respond.toString();
+
+        // Rendering out again should not duplicate requires.
+        assert expected.equals(respond.toString()) : respond.toString();
+    }
+
+    @Test
+    public final void respondWithoutHeadIgnoresHeadContent() {
+        final Respond respond = new StringBuilderRespond(new Object());
+        respond.write(A_STRING);
+        respond.writeToHead("<meta/>");
+
+        assert A_STRING.equals(respond.toString());
+    }
 }
@@ -0,0 +1,117 @@
+package com.google.sitebricks;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+
+public class StreamingRespondTest {
+  private static final String REQUIRE = "<script src=\"a.js\"></script>";
+
+  private StringWriter client;
+  private StreamingRespond respond;
+
+  @BeforeMethod
+  public final void pre() throws Exception {
+    client = new StringWriter();
+    HttpServletResponse response = createNiceMock(HttpServletResponse.class);
+    expect(response.getWriter()).andReturn(new PrintWriter(client));
+    replay(response);
+
+    respond = new StreamingRespond(new Object(), response);
+  }
+
+  @Test
+  public final void flushesWhenHeadCloses() throws Exception {
+    respond.write("<html><head><title>hi</title>");
+    respond.require(REQUIRE);
+    assert client.toString().isEmpty() : "Streamed before the head was closed";
+
+    respond.withHtml().headerPlaceholder();
+    respond.write("</head><body>");
+
+    assert client.toString().equals("<html><head><title>hi</title>" + REQUIRE) : client;
+
+    respond.write("</body></html>");
+    respond.finish();
+
+    assert client.toString().equals("<html><head><title>hi</title>" + REQUIRE
+        + "</head><body></body></html>") : client;
+  }
+
+  @Test
+  public final void sameOutputAsStringBuilderRespond() throws Exception {
+    Respond buffered = new StringBuilderRespond(new Object());
+    for (Respond respond : new Respond[] { this.respond, buffered }) {
+      respond.write("<html><head>");
+      respond.writeToHead("<meta name=\"x\"/>");
+      respond.require(REQUIRE);
+      respond.require(REQUIRE);
+      respond.withHtml().headerPlaceholder();
+      respond.write("</head><body>");
+      for (int i = 0; i < 10000; i++) {
+        respond.write("<p class=\"x\" ");
+        respond.chew();
+        respond.write('>');
+        respond.write(Integer.toString(i));
+        respond.write("</p>");
+      }
+      respond.write("</body></html>");
+    }
+    this.respond.finish();
+
+    assert client.toString().equals(buffered.toString());
+  }
+
+  @Test
+  public final void bodyIsFlushedInChunks() throws Exception {
+    respond.write("<html><head>");
+    respond.withHtml().headerPlaceholder();
+    respond.write("</head><body>");
+
+    for (int i = 0; i < StreamingRespond.CHUNK_SIZE; i++) {
+      respond.write("<p>x</p>");
+    }
+
+    // Only the tail of the page should remain buffered.
+    assert respond.toString().length() <= StreamingRespond.CHUNK_SIZE + "<p>x</p>".length();
+    assert client.toString().length() > StreamingRespond.CHUNK_SIZE;
+  }
+
+  @Test
+  public final void lateRequiresAreWrittenInline() throws Exception {
+    respond.write("<html><head>");
+    respond.require(REQUIRE);
+    respond.withHtml().headerPlaceholder();
+    respond.write("</head><body>");
+
+    respond.require(REQUIRE);
+    respond.require("<link href=\"b.css\"/>");
+    respond.write("</body>");
+    respond.finish();
+
+    assert client.toString().equals("<html><head>" + REQUIRE
+        + "</head><body><link href=\"b.css\"/></body>") : client;
+  }
+
+  @Test
+  public final void headlessPageIsStillStreamed() throws Exception {
+    respond.write("<body>");
+    for (int i = 0; i < StreamingRespond.MAX_HELD_BACK; i++) {
+      respond.write("<p>x</p>");
+      respond.writeToHead("<meta/>");
+    }
+
+    // Neither the page nor its head content is held back without limit.
+    assert respond.toString().length()
+        <= StreamingRespond.MAX_HELD_BACK + "<p>x</p><meta/>".length();
+    assert respond.getHead().length() <= StreamingRespond.MAX_HELD_BACK;
+    assert client.toString().startsWith("<body><p>x</p>") : client;
+  }
+}
@@ -154,6 +154,51 @@ public class MvelRequestBinderTest {
 
   }
 
+  @Test
+  public final void bindRequestToFieldsAndNestedProperties() {
+    final HttpServletRequest request = createMock(HttpServletRequest.class);
+
+    expect(request.getParameterMap())
+        .andReturn(new HashMap<String, String[]>() {{
+          put("count", new String[]{"42"});
+          put("child.name", new String[]{"Dhanji"});
+          put("child.age", new String[]{"27"});
+        }});
+
+    replay(request);
+
+    final AParent o = new AParent();
+
+    final Evaluator evaluator = Guice.createInjector()
+        .getInstance(Evaluator.class);
+
+    new MvelRequestBinder(evaluator, new Provider<FlashCache>() {
+      public FlashCache get() {
+        return new HttpSessionFlashCache();
+      }
+    })
+        .bind(TestRequestCreator.from(request, null), o);
+
+    assert 42 == o.count;
+    assert "Dhanji".equals(o.child.getName());
+    assert 27 == o.child.getAge();
+
+    verify(request);
+  }
+
+  @Test
+  public final void validBindingCharacters() {
+    assert MvelRequestBinder.isValidBinding("child.name_2$");
+    assert !MvelRequestBinder.isValidBinding("name.toString()");
+    assert !MvelRequestBinder.isValidBinding("2 + 12");
+    assert !MvelRequestBinder.isValidBinding("na\u00efve");
+  }
+
+  public static class AParent {
+    public int count;
+    public final AnObject child = new AnObject();
+  }
+
   @SuppressWarnings({"UnusedDeclaration"})  
   public static class AnObject {
     private String name;
@@ -1,8 +1,10 @@
 package com.google.sitebricks.compiler;
 
+import static org.easymock.EasyMock.createMock;
 import static org.easymock.EasyMock.createNiceMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
 import static org.testng.Assert.assertEquals;
 
 import java.lang.annotation.Annotation;
@@ -277,6 +279,24 @@ public class HtmlTemplateCompilerTest {
     assertEquals(s, "<!doctype html><html><body><div class=\"content\">hello </div></body></html>");
   }
 
+  @Test
+  public final void coalesceStaticMarkupIntoLiterals() {
+    metrics = createMock(SystemMetrics.class);
+    metrics.logCoalescedWidgets(TestBackingType.class, 2);
+    replay(metrics);
+
+    Renderable widget = compiler()
+        .compile(TestBackingType.class, new Template("<html><div class='${clazz}'>"
+            + "<p id='intro'>Hello <b>there</b></p><span>!</span>${name}</div></html>"));
+
+    final Respond mockRespond = RespondersForTesting.newRespond();
+    widget.render(new TestBackingType("Dhanji", "content", 12), mockRespond);
+    assertEquals(mockRespond.toString(), "<html><div class=\"content\">"
+        + "<p id=\"intro\">Hello <b>there</b></p><span>!</span>Dhanji</div></html>");
+
+    verify(metrics);
+  }
+
   @EmbedAs(MyEmbeddedPage.MY_FAVE_ANNOTATION)
   public static class MyEmbeddedPage {
     protected static final String MY_FAVE_ANNOTATION = "MyFave";
@@ -0,0 +1,113 @@
+package com.google.sitebricks.compiler;
+
+import com.google.common.io.Files;
+import org.jsoup.nodes.Attribute;
+import org.jsoup.nodes.Node;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+
+public class TemplateParseCacheTest {
+  private static final String TEMPLATE = "<!doctype html>\n"
+      + "<html><head><title>${title}</title>\n"
+      + "<script type='text/javascript'>var a = { name: \"${user.name}\" };</script></head>\n"
+      + "<body><!-- a comment -->\n"
+      + "@ShowIf(user.admin)\n<p class=\"admin\">Administrator</p>\n"
+      + "<ul>@Repeat(items=rows, var=\"row\")\n<li>${row}<li>unclosed</ul>\n"
+      + "<![CDATA[ raw <text> ]]>\n"
+      + "<a href='/users/${user.id}/edit'>Edit &amp; ${user.name}</a><br/>\n"
+      + "</body>\n</html>";
+
+  private File directory;
+
+  @BeforeMethod
+  public final void pre() {
+    directory = Files.createTempDir();
+  }
+
+  @AfterMethod
+  public final void post() throws IOException {
+    Files.deleteRecursively(directory);
+  }
+
+  @Test
+  public final void cachedTemplateIsIdenticalToParsedTemplate() {
+    TemplateParseCache cache = new TemplateParseCache(directory);
+    String parsed = describe(cache.parse(TemplateParseCacheTest.class, TEMPLATE));
+
+    File entry = new File(directory, TemplateParseCacheTest.class.getName() + ".parsed");
+    assert entry.isFile() : "no cache entry written";
+
+    // A fresh cache, as after a restart.
+    String cached = describe(new TemplateParseCache(directory)
+        .parse(TemplateParseCacheTest.class, TEMPLATE));
+
+    assertEquals(cached, parsed);
+    assertEquals(cached, describe(HtmlParser.parse(TEMPLATE)));
+  }
+
+  @Test
+  public final void changedTemplateIsParsedAgain() {
+    TemplateParseCache cache = new TemplateParseCache(directory);
+    cache.parse(TemplateParseCacheTest.class, TEMPLATE);
+
+    String changed = TEMPLATE.replace("Administrator", "Superuser");
+    assertEquals(describe(cache.parse(TemplateParseCacheTest.class, changed)),
+        describe(HtmlParser.parse(changed)));
+  }
+
+  @Test
+  public final void corruptEntryIsParsedAgain() throws IOException {
+    Files.write("not a cache entry", new File(directory,
+        TemplateParseCacheTest.class.getName() + ".parsed"), Charset.forName("UTF-8"));
+
+    assertEquals(describe(new TemplateParseCache(directory)
+        .parse(TemplateParseCacheTest.class, TEMPLATE)), describe(HtmlParser.parse(TEMPLATE)));
+  }
+
+  @Test
+  public final void damagedEntryIsParsedAgain() throws IOException {
+    File entry = new File(directory, TemplateParseCacheTest.class.getName() + ".parsed");
+    new TemplateParseCache(directory).parse(TemplateParseCacheTest.class, TEMPLATE);
+    byte[] sound = Files.toByteArray(entry);
+
+    // Smash each byte in turn, turning counts negative or huge and node kinds into others.
+    for (byte smashed : new byte[] { (byte) 0xff, 0x01, 0x02 }) {
+      for (int i = 0; i < sound.length; i++) {
+        byte[] damaged = sound.clone();
+        damaged[i] = smashed;
+        Files.write(damaged, entry);
+
+        new TemplateParseCache(directory).parse(TemplateParseCacheTest.class, TEMPLATE);
+      }
+    }
+  }
+
+  private static String describe(List<Node> nodes) {
+    StringBuilder builder = new StringBuilder();
+    for (Node node : nodes) {
+      builder.append(null == node.parent() ? "root " : "child@" + node.siblingIndex() + " ");
+      describe(node, builder);
+      builder.append(' ').append(node.outerHtml()).append('\n');
+    }
+    return builder.toString();
+  }
+
+  private static void describe(Node node, StringBuilder builder) {
+    builder.append(node.getClass().getSimpleName()).append(node.attributes().size()).append('{');
+    for (Attribute attribute : node.attributes().asList()) {
+      builder.append(attribute.getKey()).append('=').append(attribute.getValue()).append(';');
+    }
+    for (Node child : node.childNodes()) {
+      describe(child, builder);
+    }
+    builder.append('}');
+  }
+}
@@ -0,0 +1,64 @@
+package com.google.sitebricks.http.negotiate;
+
+import com.google.common.collect.Iterators;
+import com.google.sitebricks.TestRequestCreator;
+import com.google.sitebricks.headless.Request;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.testng.Assert.assertEquals;
+
+public class MediaRangeTest {
+  private static final String RANGES = "RANGES";
+
+  @DataProvider(name = RANGES)
+  public Object[][] ranges() {
+    return new Object[][] {
+        { "text/html", "text", "html", 1.0f },
+        { "TEXT/Html", "text", "html", 1.0f },
+        { "text/*;q=0.3", "text", "*", 0.3f },
+        { "text/html;level=2;q=0.4", "text", "html", 0.4f },
+        { "*/*; q=0", "*", "*", 0.0f },
+        { "image/png;q=abc", "image", "png", 1.0f },
+        { "image/png;q=7", "image", "png", 1.0f },
+        { "en-gb", null, null, 1.0f },
+    };
+  }
+
+  @Test(dataProvider = RANGES)
+  public final void parseMediaRange(String value, String type, String subtype, float quality) {
+    List<MediaRange> ranges = MediaRange.parse(value);
+    assertEquals(ranges.size(), 1);
+
+    MediaRange range = ranges.get(0);
+    assertEquals(range.raw(), value);
+    assertEquals(range.type(), type);
+    assertEquals(range.subtype(), subtype);
+    assertEquals(range.quality(), quality);
+  }
+
+  @Test
+  public final void headerIsParsedOncePerRequest() {
+    HttpServletRequest servletRequest = createMock(HttpServletRequest.class);
+    expect(servletRequest.getHeaders("Accept"))
+        .andReturn(Iterators.asEnumeration(Arrays.asList("text/html, text/*;q=0.5", "*/*;q=0.1")
+            .iterator()));
+    replay(servletRequest);
+
+    Request request = TestRequestCreator.from(servletRequest, null);
+    List<MediaRange> ranges = MediaRange.of(request, "Accept");
+
+    // Repeated header values are read as one list.
+    assertEquals(ranges.toString(), "[text/html, text/*;q=0.5, */*;q=0.1]");
+    assert ranges == MediaRange.of(request, "Accept");
+    verify(servletRequest);
+  }
+}
@@ -5,6 +5,7 @@ import com.google.common.collect.Iterators;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.sitebricks.TestRequestCreator;
+import com.google.sitebricks.headless.Request;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
@@ -102,17 +103,43 @@ public class WildcardNegotiatorTest {
           "application/x-silverlight-2-b2, application/x-silverlight, application/vnd.ms-excel, application/vnd.ms-powerpoint, */*")),
         true },
 
-
-
-
+        // q-values: zero means not acceptable, and the most specific range decides
+        { ImmutableMap.of("Accept", "text/html"), Multimaps.forMap(ImmutableMap.of
+          ("Accept", "text/html;q=0, text/*")), false },
+        { ImmutableMap.of("Accept", "text/plain"), Multimaps.forMap(ImmutableMap.of
+          ("Accept", "text/html;q=0, text/*")), true },
+        { ImmutableMap.of("Accept", "image/png"), Multimaps.forMap(ImmutableMap.of
+          ("Accept", "text/html, */*;q=0.1")), true },
     };
   }
 
+  @Test
+  public final void preferHigherQualityThenMoreSpecificMatch() {
+    Map<String, String> headers = ImmutableMap.of("Accept",
+        "text/html;q=0.5, application/json;q=0.9, image/*;q=0.9, image/png;q=0.9");
+    Request request = requestWith(Multimaps.forMap(headers));
+    ScoringNegotiator negotiator = new WildcardNegotiator();
+
+    int html = negotiator.compile(ImmutableMap.of("Accept", "text/html")).score(request);
+    int json = negotiator.compile(ImmutableMap.of("Accept", "application/json")).score(request);
+    int gif = negotiator.compile(ImmutableMap.of("Accept", "image/gif")).score(request);
+    int png = negotiator.compile(ImmutableMap.of("Accept", "image/png")).score(request);
+    int none = negotiator.compile(ImmutableMap.<String, String>of()).score(request);
+
+    assert json > html : json + " <= " + html;
+    assert png > gif : png + " <= " + gif;
+    assert html > none && 0 == none : html + ", " + none;
+  }
+
 
   @Test(dataProvider = HEADERS_AND_NEGOTIATIONS)
   public final void variousHeadersAndNegotiations(Map<String, String> negotiations,
                                                   final Multimap<String, String> headers,
                                                   boolean shouldPass) {
+    assert shouldPass == new WildcardNegotiator().shouldCall(negotiations, requestWith(headers));
+  }
+
+  private static Request requestWith(final Multimap<String, String> headers) {
     HttpServletRequest request = new HttpServletRequestWrapper(createMock(HttpServletRequest.class)) {
       @Override
       public Enumeration getHeaders(String name) {
@@ -124,7 +151,6 @@ public class WildcardNegotiatorTest {
       }
     };
 
-    assert shouldPass == new WildcardNegotiator().shouldCall(negotiations, TestRequestCreator.from(
-        request, null));
+    return TestRequestCreator.from(request, null);
   }
 }
\ No newline at end of file
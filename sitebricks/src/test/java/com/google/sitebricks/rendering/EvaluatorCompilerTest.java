@@ -10,7 +10,9 @@ import org.testng.annotations.Test;
 import java.lang.reflect.Type;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author Dhanji R. Prasanna (dhanji@gmail com)
@@ -181,6 +183,35 @@ public class EvaluatorCompilerTest {
                                     .compile("name - 2");
     }
 
+    @Test
+    public final void readPropertyChainsWithoutMvel() throws ExpressionCompileException {
+        final AType anA = new AType(A_NAME);
+        final MvelEvaluatorCompiler compiler = new MvelEvaluatorCompiler(AType.class);
+
+        Evaluator compiled = compiler.compile("b.name");
+        assert "PropertyChainEvaluator".equals(compiled.getClass().getSimpleName());
+        assert 45 == (Integer) compiled.evaluate(null, anA);
+
+        // Getters declared by an interface.
+        assert 100.0 == (Double) compiler.compile("bkind.dubdub").evaluate(null, anA);
+
+        // Anything else still goes through mvel.
+        compiled = compiler.compile("b.name == 45");
+        assert !"PropertyChainEvaluator".equals(compiled.getClass().getSimpleName());
+        assert (Boolean) compiled.evaluate(null, anA);
+    }
+
+    @Test
+    public final void readPropertyChainsOfContextVariables() throws ExpressionCompileException {
+        final Map<String, Type> context = new HashMap<String, Type>();
+        context.put("item", AType.class);
+        final Evaluator compiled = new MvelEvaluatorCompiler(context).compile("item.b.name");
+
+        final Map<String, Object> bound = new HashMap<String, Object>();
+        bound.put("item", new AType(A_NAME));
+        assert 45 == (Integer) compiled.evaluate(null, bound);
+    }
+
     @Test
     public final void determineEgressTypeParameter() throws ExpressionCompileException {
         final Type egressType = new MvelEvaluatorCompiler(AType.class)
@@ -14,9 +14,13 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author Dhanji R. Prasanna (dhanji@gmail.com)
@@ -34,12 +38,16 @@ public class RepeatWidgetTest {
             { 4, Arrays.asList(1,2,3,4) },
             { 16, Arrays.asList(1,2,3,2,2,2,2,1,2,1,2,1,2,1,2,2) },
             { 0, Arrays.asList() },
+            { 3, new Integer[] { 1, 2, 3 } },
+            { 2, new int[] { 1, 2 } },
+            { 3, new LinkedList<Integer>(Arrays.asList(1, 2, 3)) },
+            { 4, Arrays.asList(1, 2, 3, 4).iterator() },
         };
     }
 
 
     @Test(dataProvider = LISTS_AND_TIMES)
-    public final void repeatNumberOfTimes(int should, final Collection<Integer> ints) {
+    public final void repeatNumberOfTimes(int should, final Object ints) {
 
         final int[] times = new int[1];
         final WidgetChain mockChain = new ProceedingWidgetChain() {
@@ -62,6 +70,26 @@ public class RepeatWidgetTest {
         assert times[0] == should : "Did not run expected number of times: " + should;
     }
 
+    @Test
+    public final void repeatSetsIndexAndIsLast() {
+        final List<String> seen = new ArrayList<String>();
+        final WidgetChain mockChain = new ProceedingWidgetChain() {
+            @Override
+            public void render(Object bound, Respond respond) {
+                Map<?, ?> context = (Map<?, ?>) bound;
+                seen.add(context.get("thing") + ":" + context.get("index") + ":" + context.get("isLast"));
+            }
+        };
+
+        RepeatWidget widget = new RepeatWidget(mockChain, "items=beans, var='thing'", new MvelEvaluator());
+        widget.setConverter(new DummyTypeConverter());
+        widget.render(new HashMap<String, Object>() {{
+                    put("beans", new LinkedHashSet<String>(Arrays.asList("a", "b", "c")));
+                }}, RespondersForTesting.newRespond());
+
+        assert Arrays.asList("a:0:false", "b:1:false", "c:2:true").equals(seen) : seen;
+    }
+
     @DataProvider(name = EXPRS_AND_OBJECTS)
     public Object[][] getExpressionsAndObjects() {
         return new Object[][] {
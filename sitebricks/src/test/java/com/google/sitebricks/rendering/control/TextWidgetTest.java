@@ -68,8 +68,8 @@ public class TextWidgetTest {
     public final void renderATemplateWithObject(final String name) throws ExpressionCompileException {
         final String[] out = new String[1];
         Respond respond = createMock(Respond.class);
-        respond.write("Hello " + name);
-
+        respond.write("Hello ");
+        respond.write(name);
 
         replay(respond);
 
@@ -97,7 +97,8 @@ public class TextWidgetTest {
         final String[] out = new String[1];
         Respond respond = createMock(Respond.class);
 
-        respond.write("Hello " + name);
+        respond.write("Hello ");
+        respond.write(name);
 
         replay(respond);
 
@@ -1,5 +1,6 @@
 package com.google.sitebricks.rendering.resource;
 
+import com.google.common.collect.ImmutableSet;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
@@ -18,14 +19,27 @@ public class MimeTypesRegexIntegrationTest {
             { "/thing/%20blah.thingaly.xml", "text/xml" },
             { "/thing/%20blah.thingalyxml", "text/plain" },     //default
             { "/thing/holy.js/nekkid.png", "image/png" },
+            { "/thing/holy.js/nekkid", "text/plain" },
+            { "/thing/NEKKID.PNG", "image/png" },
+            { "/thing/styles.css", "text/css" },
         };
     }
 
     @Test(dataProvider = MIMES_AND_FILES)
     public final void mimeTypeMatching(final String file, final String mimeType) throws IOException {
-        new ClasspathResourcesService();    //impure call loads mimetypes from classpath
-
-        final String mime = ClasspathResourcesService.mimeOf(file);
+        final String mime = new ClasspathResourcesService().mimeOf(file);
         assert mimeType.equals(mime) : "Did not match, instead was: " + mime;
     }
+
+    @Test
+    public final void registeredMimeTypesTakePrecedence() {
+        final ClasspathResourcesService service = new ClasspathResourcesService();
+        service.registerMimeTypes(ImmutableSet.of(
+            MimeType.forExtension("JS", "application/javascript"),
+            MimeType.forPattern(".*/manifest", "text/cache-manifest")));
+
+        assert "application/javascript".equals(service.mimeOf("/thing/holy.js"));
+        assert "text/cache-manifest".equals(service.mimeOf("/thing/manifest"));
+        assert "text/xml".equals(service.mimeOf("/thing/blah.xml"));
+    }
 }
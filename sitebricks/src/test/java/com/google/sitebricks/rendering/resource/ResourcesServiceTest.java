@@ -0,0 +1,183 @@
+package com.google.sitebricks.rendering.resource;
+
+import com.google.sitebricks.Export;
+import org.apache.commons.io.IOUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+/**
+ * @author Dhanji R. Prasanna (dhanji@gmail com)
+ */
+public class ResourcesServiceTest {
+  private static final String RANGES = "ranges";
+
+  private ResourcesService service;
+  private ByteArrayOutputStream client;
+  private byte[] xml;
+
+  @BeforeMethod
+  public final void pre() throws IOException {
+    service = new ClasspathResourcesService();
+    service.add(MyResources.class, MyResources.class.getAnnotation(Export.class));
+    service.add(MyStyles.class, MyStyles.class.getAnnotation(Export.class));
+
+    client = new ByteArrayOutputStream();
+    xml = IOUtils.toByteArray(ResourcesServiceTest.class.getResourceAsStream("my.xml"));
+  }
+
+  @Test
+  public final void serveResourceBytesUnchanged() throws IOException {
+    HttpServletRequest request = request(null, null, null);
+    HttpServletResponse response = response();
+    response.setHeader("Content-Length", Integer.toString(xml.length));
+    response.setHeader("Accept-Ranges", "bytes");
+    replay(request, response);
+
+    resource("/my.xml").writeTo(request, response);
+
+    // newlines and all
+    assert Arrays.equals(xml, client.toByteArray()) : client;
+    assert new String(xml, "UTF-8").equals(resource("/my.xml").toString());
+    verify(response);
+  }
+
+  @Test
+  public final void notModifiedWhenEtagMatches() throws IOException {
+    String etag = ResourceContent.load(MyResources.class, "my.xml", "text/xml").identity().etag();
+
+    HttpServletRequest request = request("W/\"other\", " + etag, null, null);
+    HttpServletResponse response = response();
+    response.setHeader("ETag", etag);
+    response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    replay(request, response);
+
+    resource("/my.xml").writeTo(request, response);
+
+    assert 0 == client.size();
+    verify(response);
+  }
+
+  @Test
+  public final void partialContentForRange() throws IOException {
+    HttpServletRequest request = request(null, "bytes=2-4", null);
+    HttpServletResponse response = response();
+    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+    response.setHeader("Content-Range", "bytes 2-4/" + xml.length);
+    response.setHeader("Content-Length", "3");
+    replay(request, response);
+
+    resource("/my.xml").writeTo(request, response);
+
+    assert Arrays.equals(Arrays.copyOfRange(xml, 2, 5), client.toByteArray()) : client;
+    verify(response);
+  }
+
+  @Test
+  public final void unsatisfiableRange() throws IOException {
+    HttpServletRequest request = request(null, "bytes=" + xml.length + "-", null);
+    HttpServletResponse response = response();
+    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+    response.setHeader("Content-Range", "bytes */" + xml.length);
+    replay(request, response);
+
+    resource("/my.xml").writeTo(request, response);
+
+    assert 0 == client.size();
+    verify(response);
+  }
+
+  @Test
+  public final void gzipTextWhenAccepted() throws IOException {
+    byte[] css = IOUtils.toByteArray(ResourcesServiceTest.class.getResourceAsStream("styles.css"));
+
+    HttpServletRequest request = request(null, null, "deflate, gzip;q=0.8, br;q=0");
+    HttpServletResponse response = response();
+    response.setHeader("Content-Encoding", "gzip");
+    response.setHeader("Vary", "Accept-Encoding");
+    replay(request, response);
+
+    resource("/styles.css").writeTo(request, response);
+
+    assert client.size() < css.length;
+    byte[] unzipped = IOUtils.toByteArray(
+        new GZIPInputStream(new ByteArrayInputStream(client.toByteArray())));
+    assert Arrays.equals(css, unzipped);
+    verify(response);
+  }
+
+  @DataProvider(name = RANGES)
+  public Object[][] ranges() {
+    return new Object[][] {
+        { "bytes=0-9", new long[] { 0, 9 } },
+        { "bytes=5-", new long[] { 5, 99 } },
+        { "bytes=-10", new long[] { 90, 99 } },
+        { "bytes=-200", new long[] { 0, 99 } },
+        { "bytes=90-200", new long[] { 90, 99 } },
+        { "bytes=100-", Ranges.UNSATISFIABLE },
+        { "bytes=-0", Ranges.UNSATISFIABLE },
+        { "bytes=9-5", null },
+        { "bytes=0-1,5-6", null },
+        { "bytes=a-b", null },
+        { "lines=1-2", null },
+    };
+  }
+
+  @Test(dataProvider = RANGES)
+  public final void parseRanges(String header, long[] expected) {
+    long[] range = Ranges.parse(header, 100);
+
+    if (Ranges.UNSATISFIABLE == expected || null == expected)
+      assert expected == range : header;
+    else
+      assert Arrays.equals(expected, range) : header;
+  }
+
+  private ResourceRespond resource(String uri) {
+    return (ResourceRespond) service.serve(uri);
+  }
+
+  private static HttpServletRequest request(String ifNoneMatch, String range,
+                                            String acceptEncoding) {
+    HttpServletRequest request = createNiceMock(HttpServletRequest.class);
+    expect(request.getMethod()).andReturn("GET").anyTimes();
+    expect(request.getHeader("If-None-Match")).andReturn(ifNoneMatch).anyTimes();
+    expect(request.getHeader("Range")).andReturn(range).anyTimes();
+    expect(request.getHeader("Accept-Encoding")).andReturn(acceptEncoding).anyTimes();
+    expect(request.getDateHeader("If-Modified-Since")).andReturn(-1L).anyTimes();
+    return request;
+  }
+
+  private HttpServletResponse response() throws IOException {
+    HttpServletResponse response = createNiceMock(HttpServletResponse.class);
+    expect(response.getOutputStream()).andReturn(new ServletOutputStream() {
+      @Override
+      public void write(int b) {
+        client.write(b);
+      }
+    }).anyTimes();
+    return response;
+  }
+
+  @Export(at = "/my.xml", resource = "my.xml")
+  public static class MyResources {
+  }
+
+  @Export(at = "/styles.css", resource = "styles.css")
+  public static class MyStyles {
+  }
+}
@@ -462,6 +462,29 @@ public class PageBookImplTest {
     assert bound.posted : "@Post method was not fired, on doPost()";
   }
 
+  @Test
+  public final void fireGetMethodWithInjectedArgsOnPage() {
+    final PageBook pageBook = new DefaultPageBook(injector);
+    pageBook.at("/wiki/:title", MyPageWithInjectedArgs.class);
+
+    PageBook.Page page = pageBook.get("/wiki/IMAX");
+    final MyPageWithInjectedArgs bound = new MyPageWithInjectedArgs();
+    page.doMethod("get", bound, "/wiki/IMAX", fakeRequestWithParams(new HashMap<String, String[]>()));
+
+    assert "IMAX".equals(bound.title) : bound.title;
+    assert null != bound.injector : "@Get method was not passed its injected arg";
+  }
+
+  @Test(expectedExceptions = EventDispatchException.class)
+  public final void wrapExceptionThrownByEventHandler() {
+    final PageBook pageBook = new DefaultPageBook(injector);
+    pageBook.at("/wiki", MyThrowingPage.class);
+
+    PageBook.Page page = pageBook.get("/wiki");
+    page.doMethod("get", new MyThrowingPage(), "/wiki",
+        fakeRequestWithParams(new HashMap<String, String[]>()));
+  }
+
   @DataProvider(name = URI_TEMPLATES_AND_MATCHES)
   public Object[][] getUriTemplatesAndMatches() {
     return new Object[][]{
@@ -644,6 +667,27 @@ public class PageBookImplTest {
 
   }
 
+  @At("/wiki/:title")
+  public static class MyPageWithInjectedArgs {
+    private String title;
+    private Injector injector;
+
+    @Get
+    public void get(Injector injector, @Named("title") String title) {
+      this.injector = injector;
+      this.title = title;
+    }
+  }
+
+  @At("/wiki")
+  public static class MyThrowingPage {
+
+    @Get
+    public void get() {
+      throw new IllegalStateException("boom");
+    }
+  }
+
   @DataProvider(name = FIRST_PATH_ELEMENTS)
   public Object[][] get() {
     return new Object[][]{
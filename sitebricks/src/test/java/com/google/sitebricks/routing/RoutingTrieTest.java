@@ -0,0 +1,121 @@
+package com.google.sitebricks.routing;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+
+public class RoutingTrieTest {
+  private static final String MATCHING_PATHS = "matchingPaths";
+  private static final String NON_MATCHING_PATHS = "nonMatchingPaths";
+
+  @DataProvider(name = MATCHING_PATHS)
+  public Object[][] matchingPaths() {
+    return new Object[][] {
+        { "/wiki", "/wiki" },
+        { "/wiki", "/wiki/" },
+        { "/", "/" },
+        { "/wiki/:title", "/wiki/hello" },
+        { "/wiki/:title", "/wiki/hello/" },
+        { "/wiki/:title", "/wiki/hoolig An+*" },
+        { "/wiki/:title/page/:id", "/wiki/hello/page/12" },
+        { "/:title/thing", "/wiki/thing" },
+    };
+  }
+
+  @Test(dataProvider = MATCHING_PATHS)
+  public final void matchSameAsPathMatcherChain(String template, String incoming) {
+    RoutingTrie<String> trie = new RoutingTrie<String>();
+    trie.add(template, template);
+
+    RoutingTrie.Match<String> match = trie.find(incoming);
+    assert null != match : incoming;
+    assert template.equals(match.value());
+    assert new PathMatcherChain(template).matches(incoming);
+  }
+
+  @DataProvider(name = NON_MATCHING_PATHS)
+  public Object[][] nonMatchingPaths() {
+    return new Object[][] {
+        { "/wiki/:title", "/clicky/hello" },
+        { "/wiki/:title/page/:id", "/wiki/hello/dago/12" },
+        { "/wiki/:title", "/wikia" },
+        { "/wiki", "/" },
+        { "/wiki/fencepost/stupid", "/" },
+        { "/wiki/hicki", "/wiki" },
+        { "/wiki/:title", "/wiki/" },
+        { "/wiki/:hickory/dickory", "/wiki/dickory" },
+        { "/wiki/:title", "/wiki/hello/bye" },
+        { "/", "" },
+    };
+  }
+
+  @Test(dataProvider = NON_MATCHING_PATHS)
+  public final void notMatchSameAsPathMatcherChain(String template, String incoming) {
+    RoutingTrie<String> trie = new RoutingTrie<String>();
+    trie.add(template, template);
+
+    assert null == trie.find(incoming) : incoming;
+    assert !new PathMatcherChain(template).matches(incoming);
+  }
+
+  @Test
+  public final void captureVariables() {
+    RoutingTrie<String> trie = new RoutingTrie<String>();
+    trie.add("/wiki/:title/page/:id", "page");
+
+    Map<String, String> variables = trie.find("/wiki/sokdoasd/page/aoskpaokda/").variables();
+    assert 2 == variables.size() : variables;
+    assert "sokdoasd".equals(variables.get("title"));
+    assert "aoskpaokda".equals(variables.get("id"));
+  }
+
+  @Test
+  public final void staticSegmentsTakePrecedenceOverVariables() {
+    RoutingTrie<String> trie = new RoutingTrie<String>();
+    trie.add("/wiki/:title", "variable");
+    trie.add("/wiki/new", "static");
+    trie.add("/:section/new/edit", "universal");
+    trie.add("/wiki/:title/edit", "edit");
+
+    assert "static".equals(trie.find("/wiki/new").value());
+    assert "variable".equals(trie.find("/wiki/old").value());
+    assert "edit".equals(trie.find("/wiki/new/edit").value());
+    assert "universal".equals(trie.find("/blog/new/edit").value());
+    assert trie.find("/wiki/new").variables().isEmpty();
+  }
+
+  @Test
+  public final void backtrackIntoVariableWhenStaticBranchFails() {
+    RoutingTrie<String> trie = new RoutingTrie<String>();
+    trie.add("/wiki/new/draft", "draft");
+    trie.add("/wiki/:title/history", "history");
+
+    RoutingTrie.Match<String> match = trie.find("/wiki/new/history");
+    assert "history".equals(match.value());
+    assert "new".equals(match.variables().get("title"));
+  }
+
+  @Test
+  public final void firstRegisteredWinsForSameShape() {
+    RoutingTrie<String> trie = new RoutingTrie<String>();
+    trie.add("/wiki/:a", "first");
+    trie.add("/wiki/:b", "second");
+
+    RoutingTrie.Match<String> match = trie.find("/wiki/x");
+    assert "first".equals(match.value());
+    assert "x".equals(match.variables().get("a"));
+  }
+
+  @Test
+  public final void manyStaticSiblings() {
+    RoutingTrie<Integer> trie = new RoutingTrie<Integer>();
+    for (int i = 0; i < 600; i++)
+      trie.add("/route" + i + "/:id", i);
+
+    for (int i = 0; i < 600; i++)
+      assert i == trie.find("/route" + i + "/" + i).value();
+
+    assert null == trie.find("/route600/1");
+  }
+}